@@ -4,12 +4,14 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Главный класс приложения для запуска Spring Boot приложения "Carwash API".
  * Используется для инициализации и запуска приложения с помощью Spring Boot.
  */
 @SpringBootApplication
+@EnableScheduling
 public class CarwashApiApplication extends SpringBootServletInitializer {
 
 	/**
@@ -1,5 +1,6 @@
 package ru.pin120.carwashAPI.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -110,14 +111,15 @@ public class SecurityConfig {
                     return corsConfiguration;
                 }))
                 .authorizeHttpRequests(auth->
-                        auth.requestMatchers("/api/users/register","api/users/login").permitAll()
+                        auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                                .requestMatchers("/api/users/register","api/users/login").permitAll()
                                 .requestMatchers("/api/users", "/api/users/delete/**", "/api/users/editPassword/**").hasAuthority(UserRole.OWNER.name())
 
                                 .requestMatchers("/api/boxes", "/api/boxes/available", "/api/boxes/edit/**").hasAnyAuthority(UserRole.ADMINISTRATOR.name(), UserRole.OWNER.name())
                                 .requestMatchers("/api/boxes/create/**", "/api/boxes/delete/**").hasAuthority(UserRole.OWNER.name())
 
-                                .requestMatchers("/api/bookings/boxBookings/**", "/api/bookings", "/api/bookings/getInfo/**", "/api/bookings/getInfoAboutWorkOfCleaner/**", "/api/bookings/create/**", "/api/bookings/newStatus/**", "/api/bookings/edit/**").hasAnyAuthority(UserRole.ADMINISTRATOR.name(), UserRole.OWNER.name())
-                                .requestMatchers( "/api/bookings/delete/**").hasAuthority(UserRole.OWNER.name())
+                                .requestMatchers("/api/bookings/boxBookings/**", "/api/bookings", "/api/bookings/getInfo/**", "/api/bookings/getInfoAboutWorkOfCleaner/**", "/api/bookings/create/**", "/api/bookings/newStatus/**", "/api/bookings/edit/**", "/api/bookings/freeSlots/**", "/api/bookings/batch/**", "/api/bookings/events/**", "/api/bookings/dayBoard/**", "/api/bookings/export/**", "/api/bookings/quote/**").hasAnyAuthority(UserRole.ADMINISTRATOR.name(), UserRole.OWNER.name())
+                                .requestMatchers( "/api/bookings/delete/**", "/api/bookings/occupancy/**").hasAuthority(UserRole.OWNER.name())
 
                                 .requestMatchers("/api/categoriesOfSupplies").hasAnyAuthority(UserRole.ADMINISTRATOR.name(), UserRole.OWNER.name())
                                 .requestMatchers("/api/categoriesOfSupplies/create/**", "/api/categoriesOfSupplies/delete/**").hasAuthority(UserRole.OWNER.name())
@@ -135,7 +137,7 @@ public class SecurityConfig {
                                 .requestMatchers("/api/clientsTransport/**").hasAnyAuthority(UserRole.ADMINISTRATOR.name(), UserRole.OWNER.name())
 
                                 .requestMatchers("/api/priceList/", "/api/priceList/getPriceListOfCategoryTransport", "/api/priceList").hasAnyAuthority(UserRole.ADMINISTRATOR.name(), UserRole.OWNER.name())
-                                .requestMatchers("/api/priceList/create/**", "/api/priceList/edit/**", "/api/priceList/delete/**").hasAuthority(UserRole.OWNER.name())
+                                .requestMatchers("/api/priceList/create/**", "/api/priceList/edit/**", "/api/priceList/delete/**", "/api/priceList/import/**").hasAuthority(UserRole.OWNER.name())
 
                                 .requestMatchers("/api/services/", "/api/services/getByServName/**","/api/services/get/**", "/api/services").hasAnyAuthority(UserRole.ADMINISTRATOR.name(), UserRole.OWNER.name())
                                 .requestMatchers("/api/services/create/**", "/api/services/necessaryCategoriesOfSupplies/**", "/api/services/bindServicesToCategory/**", "/api/services/bindServiceToCategory/**", "/api/services/delete/**").hasAuthority(UserRole.OWNER.name())
@@ -1,18 +1,35 @@
 package ru.pin120.carwashAPI.controllers;
 
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.pin120.carwashAPI.Exceptions.FileIsNotImageException;
+import ru.pin120.carwashAPI.dtos.BookingBatchResultDTO;
 import ru.pin120.carwashAPI.dtos.BookingDTO;
+import ru.pin120.carwashAPI.dtos.BookingPageDTO;
+import ru.pin120.carwashAPI.dtos.BookingViewDTO;
+import ru.pin120.carwashAPI.dtos.BoxOccupancyDTO;
 import ru.pin120.carwashAPI.dtos.BookingsInfoDTO;
+import ru.pin120.carwashAPI.dtos.DayBoardBoxDTO;
+import ru.pin120.carwashAPI.dtos.FreeSlotDTO;
+import ru.pin120.carwashAPI.dtos.PriceQuoteDTO;
 import ru.pin120.carwashAPI.models.Booking;
 import ru.pin120.carwashAPI.models.BookingStatus;
 import ru.pin120.carwashAPI.models.Cleaner;
+import ru.pin120.carwashAPI.models.ClientsTransport;
+import ru.pin120.carwashAPI.services.BookingEventService;
+import ru.pin120.carwashAPI.services.BookingExportService;
+import ru.pin120.carwashAPI.services.BookingOccupancyService;
 import ru.pin120.carwashAPI.services.BookingService;
+import ru.pin120.carwashAPI.services.ClientsTransportService;
+import ru.pin120.carwashAPI.services.FilterQueryService;
 import ru.pin120.carwashAPI.services.ValidateInputService;
 
 import java.time.LocalDate;
@@ -38,15 +55,39 @@ public class BookingController {
      * Сервис для валидации входных данных
      */
     private final ValidateInputService validateInputService;
+    /**
+     * Сервис для работы с транспортом клиентов
+     */
+    private final ClientsTransportService clientsTransportService;
+    /**
+     * Сервис рассылки изменений заказов
+     */
+    private final BookingEventService bookingEventService;
+    /**
+     * Сервис для выгрузки журнала заказов
+     */
+    private final BookingExportService bookingExportService;
+    /**
+     * Сервис расчета загруженности боксов
+     */
+    private final BookingOccupancyService bookingOccupancyService;
 
     /**
      * Конструктор для внедрения зависимостей
      * @param bookingService сервис для работы с заказами
      * @param validateInputService сервис для валидации входных данных
+     * @param clientsTransportService сервис для работы с транспортом клиентов
+     * @param bookingEventService сервис рассылки изменений заказов
+     * @param bookingExportService сервис для выгрузки журнала заказов
+     * @param bookingOccupancyService сервис расчета загруженности боксов
      */
-    public BookingController(BookingService bookingService, ValidateInputService validateInputService) {
+    public BookingController(BookingService bookingService, ValidateInputService validateInputService, ClientsTransportService clientsTransportService, BookingEventService bookingEventService, BookingExportService bookingExportService, BookingOccupancyService bookingOccupancyService) {
         this.bookingService = bookingService;
         this.validateInputService = validateInputService;
+        this.clientsTransportService = clientsTransportService;
+        this.bookingEventService = bookingEventService;
+        this.bookingExportService = bookingExportService;
+        this.bookingOccupancyService = bookingOccupancyService;
     }
 
     /**
@@ -62,7 +103,7 @@ public class BookingController {
                                             @RequestParam("boxId") Long boxId)
     {
         try{
-            List<Booking> bookings = bookingService.getBoxBookings(startInterval, endInterval, boxId);
+            List<BookingViewDTO> bookings = bookingService.getBoxBookings(startInterval, endInterval, boxId);
             return new ResponseEntity<>(bookings, HttpStatus.OK);
         }catch (Exception e){
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -70,23 +111,161 @@ public class BookingController {
     }
 
     /**
-     * Метод, обрабатывающий GET запрос на получение заказов с учётом пагинации
+     * Метод, обрабатывающий GET запрос на получение табло заказов за день
+     * @param date день
+     * @return ResponseEntity со списком боксов с мойщиками и заказами и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом 500
+     */
+    @GetMapping("/dayBoard")
+    public ResponseEntity<?> getDayBoard(@RequestParam("date") LocalDate date)
+    {
+        try{
+            List<DayBoardBoxDTO> boxes = bookingService.getDayBoard(date);
+            return new ResponseEntity<>(boxes, HttpStatus.OK);
+        }catch (Exception e){
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Метод, обрабатывающий GET запрос на получение загруженности боксов по дням недели и часам за период
+     * @param startDate начальный день периода
+     * @param endDate конечный день периода
+     * @param boxId id бокса (если не указан, то загруженность всех боксов)
+     * @return ResponseEntity со списком загруженности боксов и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом
+     */
+    @GetMapping("/occupancy")
+    public ResponseEntity<?> getOccupancy(@RequestParam("startDate") LocalDate startDate,
+                                          @RequestParam("endDate") LocalDate endDate,
+                                          @RequestParam(value = "boxId", required = false) Long boxId)
+    {
+        try{
+            List<BoxOccupancyDTO> occupancy = bookingOccupancyService.getOccupancy(startDate, endDate, boxId);
+            return new ResponseEntity<>(occupancy, HttpStatus.OK);
+        }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Метод, обрабатывающий GET запрос на подписку на изменения заказов (Server-Sent Events).
+     * При создании, изменении, удалении и смене статуса заказа подписчику отправляется событие с кратким описанием изменения
+     * @param boxId id бокса (если не указан, то отправляются изменения заказов во всех боксах)
+     * @return Поток событий
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToEvents(@RequestParam(value = "boxId", required = false) Long boxId){
+        return bookingEventService.subscribe(boxId);
+    }
+
+    /**
+     * Метод, обрабатывающий GET запрос на расчет стоимости и времени выполнения услуг по прайс-листу.
+     * Если указан транспорт клиента, то используются его категория и скидка клиента
+     * @param clTrId id транспорта клиента
+     * @param catTrId id категории транспорта (используется, если не указан транспорт клиента)
+     * @param servNames названия услуг
+     * @param discount скидка (используется, если не указан транспорт клиента)
+     * @return ResponseEntity с расчетом стоимости и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом
+     */
+    @GetMapping("/quote")
+    public ResponseEntity<?> getQuote(@RequestParam(value = "clTrId", required = false) Long clTrId,
+                                      @RequestParam(value = "catTrId", required = false) Long catTrId,
+                                      @RequestParam(value = "services") List<String> servNames,
+                                      @RequestParam(value = "discount", required = false) Integer discount)
+    {
+        try{
+            if(clTrId != null){
+                Optional<ClientsTransport> clientsTransportOptional = clientsTransportService.findById(clTrId);
+                if(clientsTransportOptional.isEmpty()){
+                    return new ResponseEntity<>("Транспорт клиента не существует в базе данных", HttpStatus.BAD_REQUEST);
+                }
+                ClientsTransport clientsTransport = clientsTransportOptional.get();
+                catTrId = clientsTransport.getTransport().getCategoryOfTransport().getCatTrId();
+                discount = clientsTransport.getClient().getClDiscount();
+            }
+            if(catTrId == null){
+                return new ResponseEntity<>("Необходимо указать транспорт клиента или категорию транспорта", HttpStatus.BAD_REQUEST);
+            }
+
+            PriceQuoteDTO quote = bookingService.getQuote(catTrId, servNames, discount == null ? 0 : discount);
+            return new ResponseEntity<>(quote, HttpStatus.OK);
+        }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Метод, обрабатывающий GET запрос на поиск ближайшего свободного времени во всех незакрытых боксах
+     * @param clTrId id транспорта клиента
+     * @param catTrId id категории транспорта (используется, если не указан транспорт клиента)
+     * @param servNames названия услуг
+     * @param startDate начальный день поиска
+     * @param endDate конечный день поиска
+     * @param count максимальное количество найденного свободного времени
+     * @return ResponseEntity со списком свободного времени и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом
+     */
+    @GetMapping("/freeSlots")
+    public ResponseEntity<?> getFreeSlots(@RequestParam(value = "clTrId", required = false) Long clTrId,
+                                          @RequestParam(value = "catTrId", required = false) Long catTrId,
+                                          @RequestParam(value = "services") List<String> servNames,
+                                          @RequestParam(value = "startDate") LocalDate startDate,
+                                          @RequestParam(value = "endDate") LocalDate endDate,
+                                          @RequestParam(value = "count", required = false) Integer count)
+    {
+        try{
+            String stateNumber = null;
+            if(clTrId != null){
+                Optional<ClientsTransport> clientsTransportOptional = clientsTransportService.findById(clTrId);
+                if(clientsTransportOptional.isEmpty()){
+                    return new ResponseEntity<>("Транспорт клиента не существует в базе данных", HttpStatus.BAD_REQUEST);
+                }
+                ClientsTransport clientsTransport = clientsTransportOptional.get();
+                catTrId = clientsTransport.getTransport().getCategoryOfTransport().getCatTrId();
+                stateNumber = clientsTransport.getClTrStateNumber();
+            }
+            if(catTrId == null){
+                return new ResponseEntity<>("Необходимо указать транспорт клиента или категорию транспорта", HttpStatus.BAD_REQUEST);
+            }
+            if(count == null){
+                count = bookingService.getDefaultCountFreeSlots();
+            }
+
+            List<FreeSlotDTO> freeSlots = bookingService.getFreeSlots(catTrId, stateNumber, servNames, startDate, endDate, count);
+            return new ResponseEntity<>(freeSlots, HttpStatus.OK);
+        }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Метод, обрабатывающий GET запрос на получение заказов с учётом пагинации.
+     * Если индекс страницы не указан, страница получается по курсору
      * @param cleanerId id мойщика
      * @param clientId id клиента
      * @param boxId id бокса
      * @param pageIndex индекс страницы
+     * @param cursor курсор, полученный вместе с предыдущей страницей
      * @param startInterval начало временного интервала
      * @param endInterval конец временного интервала
      * @param bookingStatus статус заказа
      * @param compareOperator оператор сравнения стоимости
      * @param price стоимость
-     * @return ResponseEntity со списком заказов и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом 500
+     * @return ResponseEntity со списком заказов (или страницей заказов с курсором) и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом
      */
     @GetMapping
     public ResponseEntity<?> get(@RequestParam(value = "cleanerId", required = false) Long cleanerId,
                                                @RequestParam(value = "clientId",required = false) Long clientId,
                                                @RequestParam(value = "boxId",required = false) Long boxId,
-                                               @RequestParam(value = "pageIndex") Integer pageIndex,
+                                               @RequestParam(value = "pageIndex", required = false) Integer pageIndex,
+                                               @RequestParam(value = "cursor", required = false) String cursor,
                                                @RequestParam(value = "startInterval",required = false)LocalDateTime startInterval,
                                                @RequestParam(value = "endInterval",required = false) LocalDateTime endInterval,
                                                @RequestParam(value = "status",required = false) BookingStatus bookingStatus,
@@ -94,9 +273,57 @@ public class BookingController {
                                                @RequestParam(value = "price",required = false) Integer price)
     {
         try{
-            List<Booking> bookings = bookingService.getClientBookings(pageIndex, cleanerId,clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price);
+            if(pageIndex == null){
+                BookingPageDTO bookingPage = bookingService.getClientBookingsByCursor(cursor, cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price);
+                return new ResponseEntity<>(bookingPage, HttpStatus.OK);
+            }
+            List<BookingViewDTO> bookings = bookingService.getClientBookings(pageIndex, cleanerId,clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price);
             return new ResponseEntity<>(bookings, HttpStatus.OK);
         }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Метод, обрабатывающий GET запрос на выгрузку журнала заказов.
+     * Заказы записываются в ответ по мере чтения из базы данных
+     * @param cleanerId id мойщика
+     * @param clientId id клиента
+     * @param boxId id бокса
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param bookingStatus статус заказа
+     * @param compareOperator оператор сравнения стоимости
+     * @param price стоимость
+     * @param format формат выгрузки: csv или ndjson
+     * @return ResponseEntity с потоком выгружаемых заказов и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> export(@RequestParam(value = "cleanerId", required = false) Long cleanerId,
+                                    @RequestParam(value = "clientId",required = false) Long clientId,
+                                    @RequestParam(value = "boxId",required = false) Long boxId,
+                                    @RequestParam(value = "startInterval",required = false)LocalDateTime startInterval,
+                                    @RequestParam(value = "endInterval",required = false) LocalDateTime endInterval,
+                                    @RequestParam(value = "status",required = false) BookingStatus bookingStatus,
+                                    @RequestParam(value = "operator",required = false) String compareOperator,
+                                    @RequestParam(value = "price",required = false) Integer price,
+                                    @RequestParam(value = "format",required = false, defaultValue = "csv") String format)
+    {
+        try{
+            BookingExportService.Format exportFormat = bookingExportService.getFormat(format);
+            FilterQueryService.checkCompareOperator(compareOperator);
+            StreamingResponseBody body = outputStream -> bookingExportService.export(outputStream, exportFormat, cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=bookings." + exportFormat.getExtension())
+                    .body(body);
+        }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
@@ -111,7 +338,8 @@ public class BookingController {
      * @param bookingStatus статус
      * @param compareOperator заказа
      * @param price оператор сравнения заказов
-     * @return ResponseEntity со списком заказов и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом 500
+     * @param groupBy группировка: box - по боксам, status - по статусам, day - по дням
+     * @return ResponseEntity с информацией о заказах и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом
      */
     @GetMapping("/getInfo")
     public ResponseEntity<?> getInfo(@RequestParam(value = "cleanerId", required = false) Long cleanerId,
@@ -121,12 +349,16 @@ public class BookingController {
                                     @RequestParam(value = "endInterval",required = false) LocalDateTime endInterval,
                                     @RequestParam(value = "status",required = false) BookingStatus bookingStatus,
                                     @RequestParam(value = "operator",required = false) String compareOperator,
-                                    @RequestParam(value = "price",required = false) Integer price)
+                                    @RequestParam(value = "price",required = false) Integer price,
+                                    @RequestParam(value = "groupBy",required = false) String groupBy)
     {
         try{
-            BookingsInfoDTO bookingsInfoDTO = bookingService.getBookingsInfo(cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price);
+            BookingsInfoDTO bookingsInfoDTO = bookingService.getBookingsInfo(cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price, groupBy);
             return new ResponseEntity<>(bookingsInfoDTO, HttpStatus.OK);
         }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
@@ -164,15 +396,28 @@ public class BookingController {
                 return new ResponseEntity<>(validateInputService.getErrors(bindingResult), HttpStatus.BAD_REQUEST);
             }
 
-            List<Booking> getCrossedBookings = bookingService.getCrossedBookings(booking.getBkStartTime(), booking.getBkEndTime(), booking.getBox().getBoxId());
-            if(!getCrossedBookings.isEmpty()){
-                return new ResponseEntity<>("Формируемый заказ пересекается по времени с заказом " + getCrossedBookings.get(0).getBkId(), HttpStatus.BAD_REQUEST);
-            }else{
-                Booking createdBooking = bookingService.create(booking);
-                return new ResponseEntity<>(createdBooking, HttpStatus.OK);
+            Booking createdBooking = bookingService.create(booking);
+            return new ResponseEntity<>(createdBooking, HttpStatus.OK);
+        }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
             }
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Метод, обрабатывающий POST запрос на пакетное добавление заказов
+     * @param bookings список заказов
+     * @return ResponseEntity cо списком результатов создания заказов и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createBatch(@RequestBody List<BookingDTO> bookings){
+        try{
+            List<BookingBatchResultDTO> results = bookingService.createBatch(bookings);
+            return new ResponseEntity<>(results, HttpStatus.OK);
         }catch (Exception e){
-            if(e instanceof IllegalFormatException){
+            if(e instanceof IllegalArgumentException){
                 return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
             }
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
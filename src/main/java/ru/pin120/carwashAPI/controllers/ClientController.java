@@ -64,6 +64,51 @@ public class ClientController {
                 clients = clientService.search(pageIndex,surname,name,phone,discount, filterDiscountOperator);
             }
         }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        return new ResponseEntity<>(clients, HttpStatus.OK);
+    }
+
+    /**
+     * Метод, обрабатывающий GET запрос на получение клиентов по началу фамилии или номера телефона для автодополнения
+     * @param prefix начало фамилии или номера телефона
+     * @param limit максимальное количество клиентов
+     * @return ResponseEntity со списком клиентов и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом 400 или 500
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<?> autocomplete(@RequestParam(value = "prefix") String prefix, @RequestParam(value = "limit", required = false) Integer limit){
+        List<Client> clients;
+        try{
+            clients = clientService.autocomplete(prefix, limit);
+        }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        return new ResponseEntity<>(clients, HttpStatus.OK);
+    }
+
+    /**
+     * Метод, обрабатывающий GET запрос на нечеткий поиск клиентов по фамилии или имени
+     * @param query строка поиска
+     * @param limit максимальное количество клиентов
+     * @return ResponseEntity со списком клиентов, упорядоченным по сходству, и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом 400 или 500
+     */
+    @GetMapping("/fuzzy")
+    public ResponseEntity<?> fuzzySearch(@RequestParam(value = "query") String query, @RequestParam(value = "limit", required = false) Integer limit){
+        List<Client> clients;
+        try{
+            clients = clientService.fuzzySearch(query, limit);
+        }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
 
@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.*;
 import ru.pin120.carwashAPI.models.ClientsTransport;
 import ru.pin120.carwashAPI.models.Transport;
 import ru.pin120.carwashAPI.services.ClientsTransportService;
+import ru.pin120.carwashAPI.services.StateNumberLookupService;
 import ru.pin120.carwashAPI.services.ValidateInputService;
 
 import java.util.ArrayList;
@@ -32,15 +33,21 @@ public class ClientsTransportController {
      */
     private final ValidateInputService validateInputService;
 
+    /**
+     * Сервис для пакетного поиска транспорта клиентов по госномерам
+     */
+    private final StateNumberLookupService stateNumberLookupService;
 
     /**
      * Конструктор для внедрения зависимостей
      * @param clientsTransportService сервис для работы с транспортом клиента
      * @param validateInputService сервис для валидации входных данных
+     * @param stateNumberLookupService сервис для пакетного поиска транспорта клиентов по госномерам
      */
-    public ClientsTransportController(ClientsTransportService clientsTransportService, ValidateInputService validateInputService) {
+    public ClientsTransportController(ClientsTransportService clientsTransportService, ValidateInputService validateInputService, StateNumberLookupService stateNumberLookupService) {
         this.clientsTransportService = clientsTransportService;
         this.validateInputService = validateInputService;
+        this.stateNumberLookupService = stateNumberLookupService;
     }
 
     /**
@@ -85,6 +92,22 @@ public class ClientsTransportController {
         }
     }
 
+    /**
+     * Метод, обрабатывающий POST запрос на пакетный поиск транспорта клиентов и их текущих заказов по госномерам
+     * @param stateNumbers список госномеров
+     * @return ResponseEntity со списком результатов поиска в порядке госномеров и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом 400 или 500
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<?> lookup(@RequestBody List<String> stateNumbers){
+        try{
+            return new ResponseEntity<>(stateNumberLookupService.lookup(stateNumbers), HttpStatus.OK);
+        }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
 
     /**
      * Метод, обрабатывающий POST запрос на добавление транспорта клиента
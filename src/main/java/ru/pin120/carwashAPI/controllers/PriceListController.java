@@ -1,15 +1,23 @@
 package ru.pin120.carwashAPI.controllers;
 
 import jakarta.validation.Valid;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
-import ru.pin120.carwashAPI.dtos.ServiceWithPriceListDTO;
+import org.springframework.web.context.request.WebRequest;
 import ru.pin120.carwashAPI.models.PriceList;
+import ru.pin120.carwashAPI.dtos.PriceListImportResultDTO;
+import ru.pin120.carwashAPI.services.PriceListDocumentService;
+import ru.pin120.carwashAPI.services.PriceListImportService;
 import ru.pin120.carwashAPI.services.PriceListService;
 import ru.pin120.carwashAPI.services.ValidateInputService;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,24 +39,44 @@ public class PriceListController {
      */
     private final ValidateInputService validateInputService;
 
+    /**
+     * Сервис готовых JSON-документов прайс-листа
+     */
+    private final PriceListDocumentService priceListDocumentService;
+
+    /**
+     * Сервис для пакетной загрузки позиций прайс-листа
+     */
+    private final PriceListImportService priceListImportService;
+
 
     /**
      * Конструктор для внедрения зависимостей
      * @param priceListService сервис для работы с позициями прайс-листа
      * @param validateInputService сервис для валидации входных данных
+     * @param priceListDocumentService сервис готовых JSON-документов прайс-листа
+     * @param priceListImportService сервис для пакетной загрузки позиций прайс-листа
      */
-    public PriceListController(PriceListService priceListService, ValidateInputService validateInputService) {
+    public PriceListController(PriceListService priceListService, ValidateInputService validateInputService, PriceListDocumentService priceListDocumentService, PriceListImportService priceListImportService) {
         this.priceListService = priceListService;
         this.validateInputService = validateInputService;
+        this.priceListDocumentService = priceListDocumentService;
+        this.priceListImportService = priceListImportService;
     }
 
     /**
-     * Метод, обрабатывающий GET запрос на получение позиций прайс-листа определенной услуги
+     * Метод, обрабатывающий GET запрос на получение позиций прайс-листа определенной услуги.
+     * Если тег сущности из заголовка If-None-Match совпадает с текущей версией прайс-листа, то возвращается статус-код 304
      * @param servName название услуги
+     * @param request текущий запрос
      * @return ResponseEntity со списком позиций прайс-листа и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом 500
      */
     @GetMapping("/{servName}")
-    public ResponseEntity<?> get(@PathVariable(name = "servName") String servName){
+    public ResponseEntity<?> get(@PathVariable(name = "servName") String servName, WebRequest request){
+        String eTag = priceListDocumentService.getETag();
+        if(request.checkNotModified(eTag)){
+            return null;
+        }
         List<PriceList> priceListList = null;
         try {
             priceListList = priceListService.getByServName(servName);
@@ -57,19 +85,26 @@ public class PriceListController {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
 
-        return new ResponseEntity<>(priceListList, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(priceListList);
     }
 
     /**
      * Метод, обрабатывающий GET запрос на получение списка позиций прайс-листа определенной категории транспорта
+     * Список отдается готовым JSON-документом текущей версии прайс-листа.
+     * Если тег сущности из заголовка If-None-Match совпадает с текущей версией прайс-листа, то возвращается статус-код 304
      * @param catTrId id категории транспорта
+     * @param request текущий запрос
      * @return ResponseEntity со списком позиций прайс-листа и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом 500
      */
     @GetMapping("/getPriceListOfCategoryTransport")
-    public ResponseEntity<?> getPriceListOfCategoryTransport(@RequestParam(value = "catTrId") Long catTrId){
+    public ResponseEntity<?> getPriceListOfCategoryTransport(@RequestParam(value = "catTrId") Long catTrId, WebRequest request){
+        String eTag = priceListDocumentService.getETag();
+        if(request.checkNotModified(eTag)){
+            return null;
+        }
         try{
-            List<ServiceWithPriceListDTO> serviceWithPriceListDTOS = priceListService.getTransportPriceList(catTrId);
-            return new ResponseEntity<>(serviceWithPriceListDTOS, HttpStatus.OK);
+            byte[] document = priceListDocumentService.getTransportPriceList(catTrId);
+            return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).contentType(MediaType.APPLICATION_JSON).body(document);
         }catch (Exception e){
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -95,6 +130,9 @@ public class PriceListController {
         try {
             priceListPositions = priceListService.search(servName,catTrName,priceOperator,price,timeOperator,time);
         }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
 
@@ -126,6 +164,26 @@ public class PriceListController {
         return new ResponseEntity<>(priceListPosition, HttpStatus.OK);
     }
 
+    /**
+     * Метод, обрабатывающий POST запрос на пакетную загрузку позиций прайс-листа в формате CSV или JSON-массива.
+     * Существующие позиции (по услуге и категории транспорта) обновляются, остальные добавляются
+     * @param contentType тип содержимого (text/csv или application/json)
+     * @param body поток с позициями
+     * @return ResponseEntity с количеством добавленных и измененных позиций, ошибками в пропущенных позициях и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importPriceList(@RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType, InputStream body){
+        try{
+            PriceListImportResultDTO result = priceListImportService.importPriceList(body, priceListImportService.getFormat(contentType));
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        }catch (Exception e){
+            if(e instanceof IllegalArgumentException || e instanceof JsonProcessingException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Метод, обрабатывающий PUT запрос на изменение данных о позиции прайс-листа
      * @param plId id позиции
@@ -68,6 +68,27 @@ public class TransportController {
         return new ResponseEntity<>(transports, HttpStatus.OK);
     }
 
+    /**
+     * Метод, обрабатывающий GET запрос на получение подсказок для ввода транспорта
+     * @param query часть марки, модели или названия категории
+     * @param pageIndex индекс страницы
+     * @return ResponseEntity со списком транспорта и статус-кодом 200, если все прошло успешно, иначе ResponseEntity с сообщением об ошибке и статус-кодом 400 или 500
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam(value = "query") String query, @RequestParam(value = "pageIndex", defaultValue = "0") Integer pageIndex){
+        List<Transport> transports;
+        try{
+            transports = transportService.suggest(query, pageIndex);
+        }catch (Exception e){
+            if(e instanceof IllegalArgumentException){
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        return new ResponseEntity<>(transports, HttpStatus.OK);
+    }
+
     /**
      *  Метод, обрабатывающий POST запрос на добавление транспорта
      * @param transport транспорт
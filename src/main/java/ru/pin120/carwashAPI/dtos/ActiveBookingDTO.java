@@ -0,0 +1,49 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.pin120.carwashAPI.models.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO с текущим заказом транспорта клиента
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class ActiveBookingDTO {
+
+    /**
+     * id транспорта клиента
+     */
+    private Long clTrId;
+
+    /**
+     * Номер заказа
+     */
+    private String bkId;
+
+    /**
+     * id бокса
+     */
+    private Long boxId;
+
+    /**
+     * Статус заказа
+     */
+    private BookingStatus bkStatus;
+
+    /**
+     * Время начала выполнения
+     */
+    private LocalDateTime bkStartTime;
+
+    /**
+     * Время окончания выполнения
+     */
+    private LocalDateTime bkEndTime;
+}
@@ -0,0 +1,32 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.pin120.carwashAPI.models.Booking;
+
+/**
+ * DTO с результатом создания одного заказа из пакета
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookingBatchResultDTO {
+
+    /**
+     * Позиция заказа в пакете (начиная с 1)
+     */
+    private int position;
+
+    /**
+     * Созданный заказ
+     */
+    private Booking booking;
+
+    /**
+     * Сообщение об ошибке, если заказ не создан
+     */
+    private String error;
+}
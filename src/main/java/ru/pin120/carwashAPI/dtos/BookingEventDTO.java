@@ -0,0 +1,88 @@
+package ru.pin120.carwashAPI.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.pin120.carwashAPI.models.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO с изменением заказа, отправляемое подписчикам потока событий бокса
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingEventDTO {
+
+    /**
+     * Тип изменения
+     */
+    private Type type;
+
+    /**
+     * Номер заказа
+     */
+    private String bkId;
+
+    /**
+     * id бокса
+     */
+    private Long boxId;
+
+    /**
+     * id бокса до изменения заказа (указывается, если заказ перенесен в другой бокс)
+     */
+    private Long previousBoxId;
+
+    /**
+     * Статус заказа
+     */
+    private BookingStatus bkStatus;
+
+    /**
+     * Время начала выполнения
+     */
+    private LocalDateTime bkStartTime;
+
+    /**
+     * Время окончания выполнения
+     */
+    private LocalDateTime bkEndTime;
+
+    /**
+     * Госномер транспорта клиента
+     */
+    private String clTrStateNumber;
+
+    /**
+     * Стоимость заказа
+     */
+    private Integer bkPrice;
+
+    /**
+     * Тип изменения заказа
+     */
+    public enum Type {
+        /**
+         * Заказ создан
+         */
+        CREATED,
+        /**
+         * Данные о заказе изменены
+         */
+        EDITED,
+        /**
+         * Изменен статус заказа
+         */
+        STATUS_CHANGED,
+        /**
+         * Заказ удален
+         */
+        DELETED
+    }
+}
@@ -0,0 +1,99 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.pin120.carwashAPI.models.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO со строкой выгрузки журнала заказов
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookingExportRowDTO {
+
+    /**
+     * Номер заказа
+     */
+    private String bkId;
+
+    /**
+     * Статус заказа
+     */
+    private BookingStatus bkStatus;
+
+    /**
+     * Время начала выполнения
+     */
+    private LocalDateTime bkStartTime;
+
+    /**
+     * Время окончания выполнения
+     */
+    private LocalDateTime bkEndTime;
+
+    /**
+     * Стоимость заказа
+     */
+    private Integer bkPrice;
+
+    /**
+     * id бокса
+     */
+    private Long boxId;
+
+    /**
+     * id мойщика
+     */
+    private Long clrId;
+
+    /**
+     * Фамилия мойщика
+     */
+    private String clrSurname;
+
+    /**
+     * Имя мойщика
+     */
+    private String clrName;
+
+    /**
+     * Госномер транспорта клиента
+     */
+    private String clTrStateNumber;
+
+    /**
+     * Марка транспорта
+     */
+    private String trMark;
+
+    /**
+     * Модель транспорта
+     */
+    private String trModel;
+
+    /**
+     * id клиента
+     */
+    private Long clId;
+
+    /**
+     * Фамилия клиента
+     */
+    private String clSurname;
+
+    /**
+     * Имя клиента
+     */
+    private String clName;
+
+    /**
+     * Телефон клиента
+     */
+    private String clPhone;
+}
@@ -0,0 +1,48 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO с интервалом выполнения заказа, используемый при проверке пересечений заказов
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookingIntervalDTO {
+
+    /**
+     * Номер заказа
+     */
+    private String bkId;
+
+    /**
+     * id бокса
+     */
+    private Long boxId;
+
+    /**
+     * id транспорта клиента
+     */
+    private Long clTrId;
+
+    /**
+     * Госномер транспорта клиента
+     */
+    private String clTrStateNumber;
+
+    /**
+     * Время начала выполнения
+     */
+    private LocalDateTime bkStartTime;
+
+    /**
+     * Время окончания выполнения
+     */
+    private LocalDateTime bkEndTime;
+}
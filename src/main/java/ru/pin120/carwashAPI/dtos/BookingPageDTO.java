@@ -0,0 +1,28 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * DTO со страницей заказов, полученной по курсору
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookingPageDTO {
+
+    /**
+     * Список заказов
+     */
+    private List<BookingViewDTO> bookings;
+
+    /**
+     * Курсор для получения следующей страницы или null, если страница последняя
+     */
+    private String nextCursor;
+}
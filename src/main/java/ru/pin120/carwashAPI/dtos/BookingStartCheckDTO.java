@@ -0,0 +1,38 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.pin120.carwashAPI.models.Cleaner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO с результатом проверки возможности начать выполнение заказа
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookingStartCheckDTO {
+
+    /**
+     * Список причин, по которым нельзя начать выполнение заказа
+     */
+    private List<String> errors = new ArrayList<>();
+
+    /**
+     * Мойщик, работающий в боксе в день выполнения заказа (null, если мойщик отсутствует)
+     */
+    private Cleaner cleaner;
+
+    /**
+     * Проверяет, можно ли начать выполнение заказа
+     * @return true, если ошибок не найдено, иначе false
+     */
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+}
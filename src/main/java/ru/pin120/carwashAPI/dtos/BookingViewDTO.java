@@ -0,0 +1,200 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.pin120.carwashAPI.models.BookingStatus;
+import ru.pin120.carwashAPI.models.BoxStatus;
+import ru.pin120.carwashAPI.models.CleanerStatus;
+import ru.pin120.carwashAPI.models.UnitOfMeasure;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO с заказом для списков заказов.
+ * Повторяет JSON-представление модели заказа, но заполняется одним запросом с явными соединениями
+ * вместо загрузки связанных сущностей
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookingViewDTO {
+
+    /**
+     * Номер заказа
+     */
+    private String bkId;
+
+    /**
+     * Время начала выполнения
+     */
+    private LocalDateTime bkStartTime;
+
+    /**
+     * Время окончания выполнения
+     */
+    private LocalDateTime bkEndTime;
+
+    /**
+     * Стоимость
+     */
+    private Integer bkPrice;
+
+    /**
+     * Статус
+     */
+    private BookingStatus bkStatus;
+
+    /**
+     * Бокс
+     */
+    private BoxView box;
+
+    /**
+     * Мойщик
+     */
+    private CleanerView cleaner;
+
+    /**
+     * Транспорт клиента
+     */
+    private ClientTransportView clientTransport;
+
+    /**
+     * Список услуг
+     */
+    private List<ServiceView> services = new ArrayList<>();
+
+    /**
+     * Конструктор, используемый в запросе на получение заказов
+     */
+    public BookingViewDTO(String bkId, LocalDateTime bkStartTime, LocalDateTime bkEndTime, Integer bkPrice, BookingStatus bkStatus,
+                          Long boxId, BoxStatus boxStatus,
+                          Long clrId, String clrSurname, String clrName, String clrPatronymic, String clrPhone, CleanerStatus clrStatus, String clrPhotoName,
+                          Long clTrId, String clTrStateNumber,
+                          Long trId, String trMark, String trModel, Long catTrId, String catTrName,
+                          Long clId, String clSurname, String clName, String clPhone, Integer clDiscount) {
+        this.bkId = bkId;
+        this.bkStartTime = bkStartTime;
+        this.bkEndTime = bkEndTime;
+        this.bkPrice = bkPrice;
+        this.bkStatus = bkStatus;
+        this.box = new BoxView(boxId, boxStatus);
+        this.cleaner = clrId == null ? null : new CleanerView(clrId, clrSurname, clrName, clrPatronymic, clrPhone, clrStatus, clrPhotoName);
+        this.clientTransport = new ClientTransportView(clTrId, clTrStateNumber,
+                new TransportView(trId, trMark, trModel, new CategoryOfTransportView(catTrId, catTrName)),
+                new ClientView(clId, clSurname, clName, clPhone, clDiscount));
+    }
+
+    /**
+     * Бокс заказа
+     */
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class BoxView {
+        private Long boxId;
+        private BoxStatus boxStatus;
+    }
+
+    /**
+     * Мойщик, выполняющий заказ
+     */
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class CleanerView {
+        private Long clrId;
+        private String clrSurname;
+        private String clrName;
+        private String clrPatronymic;
+        private String clrPhone;
+        private CleanerStatus clrStatus;
+        private String clrPhotoName;
+    }
+
+    /**
+     * Транспорт клиента
+     */
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class ClientTransportView {
+        private Long clTrId;
+        private String clTrStateNumber;
+        private TransportView transport;
+        private ClientView client;
+    }
+
+    /**
+     * Транспорт
+     */
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class TransportView {
+        private Long trId;
+        private String trMark;
+        private String trModel;
+        private CategoryOfTransportView categoryOfTransport;
+    }
+
+    /**
+     * Категория транспорта
+     */
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class CategoryOfTransportView {
+        private Long catTrId;
+        private String catTrName;
+    }
+
+    /**
+     * Клиент
+     */
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class ClientView {
+        private Long clId;
+        private String clSurname;
+        private String clName;
+        private String clPhone;
+        private Integer clDiscount;
+    }
+
+    /**
+     * Услуга заказа
+     */
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class ServiceView {
+        private String servName;
+        private List<CategoryOfSuppliesView> categoriesOfSupplies = new ArrayList<>();
+    }
+
+    /**
+     * Категория расходных материалов, необходимая для выполнения услуги
+     */
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class CategoryOfSuppliesView {
+        private String cSupName;
+        private UnitOfMeasure unit;
+    }
+}
@@ -1,14 +1,15 @@
 package ru.pin120.carwashAPI.dtos;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.List;
+
 /**
  * DTO с данными об общем количестве и стоимости выполнения заказов
  */
-@AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
@@ -22,4 +23,20 @@ public class BookingsInfoDTO {
      * Стоимость заказов
      */
     private int totalPrice;
+
+    /**
+     * Количество и стоимость заказов по группам (если группировка запрошена)
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<BookingsInfoGroupDTO> groups;
+
+    /**
+     * Конструктор
+     * @param totalCount количество заказов
+     * @param totalPrice стоимость заказов
+     */
+    public BookingsInfoDTO(int totalCount, int totalPrice) {
+        this.totalCount = totalCount;
+        this.totalPrice = totalPrice;
+    }
 }
@@ -0,0 +1,31 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO с количеством и стоимостью заказов одной группы
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookingsInfoGroupDTO {
+
+    /**
+     * Значение группы (номер бокса, статус или день)
+     */
+    private String key;
+
+    /**
+     * Количество заказов
+     */
+    private int totalCount;
+
+    /**
+     * Стоимость заказов
+     */
+    private int totalPrice;
+}
@@ -0,0 +1,36 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO с загруженностью бокса за период
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BoxOccupancyDTO {
+
+    /**
+     * id бокса
+     */
+    private Long boxId;
+
+    /**
+     * Количество занятых минут по дням недели (0 - понедельник, 6 - воскресенье) и часам (0-23)
+     */
+    private int[][] minutes;
+
+    /**
+     * Общее количество занятых минут
+     */
+    private long totalMinutes;
+
+    /**
+     * Доля занятого времени от рабочего времени за период
+     */
+    private double utilisation;
+}
@@ -0,0 +1,74 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.pin120.carwashAPI.models.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO с заказом на табло заказов за день
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class DayBoardBookingDTO {
+
+    /**
+     * Номер заказа
+     */
+    private String bkId;
+
+    /**
+     * Статус заказа
+     */
+    private BookingStatus bkStatus;
+
+    /**
+     * Время начала выполнения
+     */
+    private LocalDateTime bkStartTime;
+
+    /**
+     * Время окончания выполнения
+     */
+    private LocalDateTime bkEndTime;
+
+    /**
+     * Стоимость заказа
+     */
+    private Integer bkPrice;
+
+    /**
+     * Госномер транспорта клиента
+     */
+    private String clTrStateNumber;
+
+    /**
+     * Марка транспорта
+     */
+    private String trMark;
+
+    /**
+     * Модель транспорта
+     */
+    private String trModel;
+
+    /**
+     * Фамилия клиента
+     */
+    private String clSurname;
+
+    /**
+     * Имя клиента
+     */
+    private String clName;
+
+    /**
+     * Телефон клиента
+     */
+    private String clPhone;
+}
@@ -0,0 +1,55 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.pin120.carwashAPI.models.BoxStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO с боксом на табло заказов за день: мойщик, работающий в боксе, и заказы бокса
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class DayBoardBoxDTO {
+
+    /**
+     * id бокса
+     */
+    private Long boxId;
+
+    /**
+     * Статус бокса
+     */
+    private BoxStatus boxStatus;
+
+    /**
+     * id мойщика (null, если в этот день в боксе нет мойщика)
+     */
+    private Long clrId;
+
+    /**
+     * Фамилия мойщика
+     */
+    private String clrSurname;
+
+    /**
+     * Имя мойщика
+     */
+    private String clrName;
+
+    /**
+     * Отчество мойщика
+     */
+    private String clrPatronymic;
+
+    /**
+     * Заказы бокса, упорядоченные по времени начала выполнения
+     */
+    private List<DayBoardBookingDTO> bookings = new ArrayList<>();
+}
@@ -0,0 +1,106 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.pin120.carwashAPI.models.BookingStatus;
+import ru.pin120.carwashAPI.models.BoxStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка результата запроса для табло заказов за день: бокс, мойщик в боксе и один из заказов бокса.
+ * Поля мойщика и заказа равны null, если в боксе нет мойщика или заказов
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class DayBoardRowDTO {
+
+    /**
+     * id бокса
+     */
+    private Long boxId;
+
+    /**
+     * Статус бокса
+     */
+    private BoxStatus boxStatus;
+
+    /**
+     * id мойщика
+     */
+    private Long clrId;
+
+    /**
+     * Фамилия мойщика
+     */
+    private String clrSurname;
+
+    /**
+     * Имя мойщика
+     */
+    private String clrName;
+
+    /**
+     * Отчество мойщика
+     */
+    private String clrPatronymic;
+
+    /**
+     * Номер заказа
+     */
+    private String bkId;
+
+    /**
+     * Статус заказа
+     */
+    private BookingStatus bkStatus;
+
+    /**
+     * Время начала выполнения
+     */
+    private LocalDateTime bkStartTime;
+
+    /**
+     * Время окончания выполнения
+     */
+    private LocalDateTime bkEndTime;
+
+    /**
+     * Стоимость заказа
+     */
+    private Integer bkPrice;
+
+    /**
+     * Госномер транспорта клиента
+     */
+    private String clTrStateNumber;
+
+    /**
+     * Марка транспорта
+     */
+    private String trMark;
+
+    /**
+     * Модель транспорта
+     */
+    private String trModel;
+
+    /**
+     * Фамилия клиента
+     */
+    private String clSurname;
+
+    /**
+     * Имя клиента
+     */
+    private String clName;
+
+    /**
+     * Телефон клиента
+     */
+    private String clPhone;
+}
@@ -0,0 +1,33 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO со свободным временем в боксе, в которое можно сформировать заказ
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class FreeSlotDTO {
+
+    /**
+     * id бокса
+     */
+    private Long boxId;
+
+    /**
+     * Время начала выполнения
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * Время окончания выполнения
+     */
+    private LocalDateTime endTime;
+}
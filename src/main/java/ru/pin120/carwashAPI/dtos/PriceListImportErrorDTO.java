@@ -0,0 +1,26 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO с ошибкой в позиции прайс-листа при пакетной загрузке
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PriceListImportErrorDTO {
+
+    /**
+     * Номер строки CSV или элемента JSON-массива (начиная с 1)
+     */
+    private int position;
+
+    /**
+     * Сообщение об ошибке
+     */
+    private String error;
+}
@@ -0,0 +1,34 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO с результатом пакетной загрузки позиций прайс-листа
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PriceListImportResultDTO {
+
+    /**
+     * Количество добавленных позиций
+     */
+    private int created;
+
+    /**
+     * Количество измененных позиций
+     */
+    private int updated;
+
+    /**
+     * Ошибки в позициях, которые не были загружены
+     */
+    private List<PriceListImportErrorDTO> errors = new ArrayList<>();
+}
@@ -0,0 +1,48 @@
+package ru.pin120.carwashAPI.dtos;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO с позицией прайс-листа для пакетной загрузки
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PriceListImportRowDTO {
+
+    /**
+     * Название услуги
+     */
+    @NotBlank(message = "Необходимо указать услугу")
+    private String servName;
+
+    /**
+     * Название категории транспорта
+     */
+    @NotBlank(message = "Необходимо указать категорию автомобилей")
+    private String catTrName;
+
+    /**
+     * Стоимость выполнения
+     */
+    @NotNull(message = "Необходимо указать цену")
+    @Min(value = 1, message = "Минимальная стоимость = 1 ₽")
+    @Max(value = 50000, message = "Максимальная стоимость = 50000 ₽")
+    private Integer plPrice;
+
+    /**
+     * Время выполнения
+     */
+    @NotNull(message = "Необходимо указать время выполнения")
+    @Min(value = 1, message = "Минимальное время выполнения - 1 минута")
+    @Max(value = 1440, message = "Максимальное время выполнения - 1 день")
+    private Integer plTime;
+}
@@ -0,0 +1,61 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO с расчетом стоимости и времени выполнения услуг для категории транспорта
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PriceQuoteDTO {
+
+    /**
+     * id категории транспорта
+     */
+    private Long catTrId;
+
+    /**
+     * Услуги, которые можно выполнить для категории транспорта, с их стоимостью и временем выполнения
+     */
+    private List<ServiceWithPriceListDTO> services = new ArrayList<>();
+
+    /**
+     * Названия услуг, которые нельзя выполнить для категории транспорта
+     */
+    private List<String> unavailableServices = new ArrayList<>();
+
+    /**
+     * Стоимость без учёта скидки
+     */
+    private int price;
+
+    /**
+     * Скидка
+     */
+    private int discount;
+
+    /**
+     * Стоимость с учётом скидки
+     */
+    private int discountedPrice;
+
+    /**
+     * Общее время выполнения в минутах
+     */
+    private int time;
+
+    /**
+     * Можно ли выполнить все услуги для категории транспорта
+     */
+    public boolean isAvailable() {
+        return unavailableServices.isEmpty();
+    }
+}
@@ -0,0 +1,50 @@
+package ru.pin120.carwashAPI.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.pin120.carwashAPI.models.ClientsTransport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO с результатом поиска транспорта клиентов по одному госномеру из пакета
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class StateNumberLookupDTO {
+
+    /**
+     * Госномер в том виде, в котором он был передан
+     */
+    private String stateNumber;
+
+    /**
+     * Найденный транспорт клиентов (пустой, если госномер не найден)
+     */
+    private List<Match> matches = new ArrayList<>();
+
+    /**
+     * Транспорт клиента и его текущий заказ
+     */
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class Match {
+
+        /**
+         * Транспорт клиента
+         */
+        private ClientsTransport clientTransport;
+
+        /**
+         * Текущий заказ (null, если заказа нет)
+         */
+        private ActiveBookingDTO activeBooking;
+    }
+}
@@ -16,7 +16,12 @@ import java.util.List;
 @NoArgsConstructor
 @Getter
 @Setter
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_end_time_id", columnList = "bkEndTime, bkId"),
+        @Index(name = "idx_bookings_box_start_end", columnList = "box_id, bkStartTime, bkEndTime"),
+        @Index(name = "idx_bookings_transport_start_end", columnList = "cl_tr_id, bkStartTime, bkEndTime"),
+        @Index(name = "idx_bookings_status_end_time", columnList = "bkStatus, bkEndTime")
+})
 public class Booking {
 
     /**
@@ -0,0 +1,56 @@
+package ru.pin120.carwashAPI.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Модель итогов выполненных заказов мойщика за день
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Table(name = "cleaner_daily_earnings", uniqueConstraints = @UniqueConstraint(columnNames = {"clr_id", "ce_day"}))
+public class CleanerDailyEarnings {
+
+    /**
+     * id итогов
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long ceId;
+
+    /**
+     * День (день начала выполнения заказов)
+     */
+    @Column(name = "ce_day", nullable = false)
+    @NotNull(message = "Необходимо указать день")
+    private LocalDate ceDay;
+
+    /**
+     * Мойщик
+     */
+    @ManyToOne
+    @JoinColumn(name = "clr_id", nullable = false)
+    @NotNull(message = "Необходимо указать мойщика")
+    private Cleaner cleaner;
+
+    /**
+     * Количество выполненных заказов
+     */
+    @Column(name = "ce_count", nullable = false)
+    private int ceCount;
+
+    /**
+     * Стоимость выполненных заказов
+     */
+    @Column(name = "ce_revenue", nullable = false)
+    private long ceRevenue;
+}
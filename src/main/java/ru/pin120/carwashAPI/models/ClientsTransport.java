@@ -23,9 +23,16 @@ import java.util.List;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "clients_transport",uniqueConstraints = @UniqueConstraint(columnNames = {"cl_tr_state_number","tr_id","cl_id"}))
+@Table(name = "clients_transport",uniqueConstraints = @UniqueConstraint(columnNames = {"cl_tr_state_number","tr_id","cl_id"}),
+        indexes = @Index(name = "idx_clients_transport_state_number_key", columnList = "cl_tr_state_number_key"))
 public class ClientsTransport {
 
+    /**
+     * Латинские буквы госномера и соответствующие им схожие по написанию кириллические буквы
+     */
+    private static final String LATIN_LETTERS = "ABEKMHOPCTYX";
+    private static final String CYRILLIC_LETTERS = "АВЕКМНОРСТУХ";
+
     /**
      * id транспорта клиента
      */
@@ -41,6 +48,13 @@ public class ClientsTransport {
     @NotBlank(message = "Необходимо ввести гос номер транспорта")
     private String clTrStateNumber;
 
+    /**
+     * Нормализованный госномер, по которому выполняется поиск
+     */
+    @Column(name = "cl_tr_state_number_key", length = 9)
+    @JsonIgnore
+    private String clTrStateNumberKey;
+
     /**
      * Транспорт
      */
@@ -66,4 +80,33 @@ public class ClientsTransport {
     @JsonIgnore
     private List<Booking> bookings;
 
+    /**
+     * Заполнение нормализованного госномера перед сохранением
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateStateNumberKey() {
+        clTrStateNumberKey = normalizeStateNumber(clTrStateNumber);
+    }
+
+    /**
+     * Нормализация госномера: удаление пробелов и дефисов, приведение к верхнему регистру
+     * и замена латинских букв на схожие по написанию кириллические
+     * @param stateNumber госномер
+     * @return Нормализованный госномер (null, если госномер null)
+     */
+    public static String normalizeStateNumber(String stateNumber) {
+        if (stateNumber == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(stateNumber.length());
+        for (char c : stateNumber.toUpperCase().toCharArray()) {
+            if (Character.isWhitespace(c) || c == '-') {
+                continue;
+            }
+            int latinIndex = LATIN_LETTERS.indexOf(c);
+            key.append(latinIndex < 0 ? c : CYRILLIC_LETTERS.charAt(latinIndex));
+        }
+        return key.toString();
+    }
 }
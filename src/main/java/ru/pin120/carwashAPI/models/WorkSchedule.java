@@ -21,7 +21,8 @@ import java.time.LocalTime;
 @AllArgsConstructor
 @Getter
 @Setter
-@Table(name="work_schedule", uniqueConstraints = @UniqueConstraint(columnNames = {"ws_work_day","clr_id","box_id"}))
+@Table(name="work_schedule", uniqueConstraints = @UniqueConstraint(columnNames = {"ws_work_day","clr_id","box_id"}),
+        indexes = @Index(name = "idx_work_schedule_box_work_day", columnList = "box_id, ws_work_day"))
 
 public class WorkSchedule {
 
@@ -1,7 +1,11 @@
 package ru.pin120.carwashAPI.repositories;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.pin120.carwashAPI.models.BookingIdSequence;
 
 import java.util.Optional;
@@ -19,4 +23,18 @@ public interface BookingIdSequenceRepository extends CrudRepository<BookingIdSeq
      * @return последовательность, соответствующая указанному году, или null, если она не найдена
      */
     BookingIdSequence findByYear(int year);
+
+    /**
+     * Резервирование блока номеров заказа для указанного года одним запросом.
+     * Выполняется в отдельной транзакции, чтобы строка последовательности не блокировалась на время создания заказа
+     *
+     * @param year год
+     * @param blockSize количество резервируемых номеров
+     * @return последний номер зарезервированного блока
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "INSERT INTO booking_id_sequence (year, last_id) VALUES (:year, :blockSize) " +
+            "ON CONFLICT (year) DO UPDATE SET last_id = booking_id_sequence.last_id + :blockSize " +
+            "RETURNING last_id", nativeQuery = true)
+    int leaseBlock(@Param("year") int year, @Param("blockSize") int blockSize);
 }
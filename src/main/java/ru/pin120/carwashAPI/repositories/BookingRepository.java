@@ -1,14 +1,26 @@
 package ru.pin120.carwashAPI.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.pin120.carwashAPI.dtos.ActiveBookingDTO;
+import ru.pin120.carwashAPI.dtos.BookingIntervalDTO;
+import ru.pin120.carwashAPI.dtos.BookingViewDTO;
+import ru.pin120.carwashAPI.dtos.DayBoardRowDTO;
 import ru.pin120.carwashAPI.models.Booking;
 import ru.pin120.carwashAPI.models.BookingStatus;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий заказа
@@ -17,65 +29,55 @@ import java.util.List;
 public interface BookingRepository extends JpaRepository<Booking, String> {
 
     /**
-     * Получение списка заказов для указанного бокса в заданном интервале времени
-     *
-     * @param startInterval начальная дата и время интервала
-     * @param endInterval конечная дата и время интервала
-     * @param boxId id бокса
-     * @return список заказов для указанного бокса в заданном интервале времени
+     * Начало запроса на получение заказов в виде BookingViewDTO (без услуг) с псевдонимом заказа b
      */
-    @Query("SELECT b FROM Booking b WHERE b.bkEndTime >= :startInterval AND b.bkEndTime <= :endInterval AND b.box.boxId = :boxId ORDER BY b.bkStartTime ASC")
-    List<Booking> getBoxBookings(@Param("startInterval")LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("boxId") Long boxId);
+    String VIEW_SELECT = "SELECT new ru.pin120.carwashAPI.dtos.BookingViewDTO(b.bkId, b.bkStartTime, b.bkEndTime, b.bkPrice, b.bkStatus, x.boxId, x.boxStatus, " +
+            "c.clrId, c.clrSurname, c.clrName, c.clrPatronymic, c.clrPhone, c.clrStatus, c.clrPhotoName, ct.clTrId, ct.clTrStateNumber, " +
+            "t.trId, t.trMark, t.trModel, cat.catTrId, cat.catTrName, cl.clId, cl.clSurname, cl.clName, cl.clPhone, cl.clDiscount) " +
+            "FROM Booking b JOIN b.box x LEFT JOIN b.cleaner c JOIN b.clientTransport ct JOIN ct.transport t JOIN t.categoryOfTransport cat JOIN ct.client cl ";
 
     /**
-     * Получение списка пересекающихся заказов для указанного бокса и интервала времени с заданными статусами
+     * Получение списка заказов для указанного бокса в заданном интервале времени
      *
      * @param startInterval начальная дата и время интервала
      * @param endInterval конечная дата и время интервала
      * @param boxId id бокса
-     * @param bookingStatuses список статусов заказа
-     * @return список пересекающихся заказов для указанного бокса и интервала времени
+     * @return список заказов для указанного бокса в заданном интервале времени
      */
-    @Query("SELECT b FROM Booking b WHERE :startInterval <= b.bkEndTime AND :endInterval >= b.bkStartTime AND b.box.boxId = :boxId AND b.bkStatus IN :statuses ORDER BY b.bkStartTime ASC")
-    List<Booking> getCrossedBookings(@Param("startInterval")LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("boxId") Long boxId, @Param("statuses") List<BookingStatus> bookingStatuses);
+    @Query(VIEW_SELECT + "WHERE b.bkEndTime >= :startInterval AND b.bkEndTime <= :endInterval AND b.box.boxId = :boxId ORDER BY b.bkStartTime ASC")
+    List<BookingViewDTO> getBoxBookings(@Param("startInterval")LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("boxId") Long boxId);
 
     /**
-     * Получение списка пересекающихся заказов для указанного бокса и интервала времени с заданными статусами, исключая текущий заказ
+     * Получение интервалов выполнения заказов бокса с заданными статусами, пересекающихся с указанным интервалом времени, исключая указанный заказ.
+     * Для проверки пересечения достаточно ограничить результат одной строкой
      *
      * @param startInterval начальная дата и время интервала
      * @param endInterval конечная дата и время интервала
      * @param boxId id бокса
-     * @param bkId id текущего заказа
-     * @param bookingStatuses список статусов заказов
-     * @return список пересекающихся заказов для указанного бокса и интервала времени, исключая текущее заказ
-     */
-    @Query("SELECT b FROM Booking b WHERE :startInterval <= b.bkEndTime AND :endInterval >= b.bkStartTime AND b.box.boxId = :boxId AND b.bkId <> :bkId AND b.bkStatus IN :statuses ORDER BY b.bkStartTime ASC")
-    List<Booking> getCrossedBookingsWithoutCurrent(@Param("startInterval")LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("boxId") Long boxId, @Param("bkId") String bkId, @Param("statuses") List<BookingStatus> bookingStatuses);
-
-    /**
-     * Получение списка заказов для транспорта с указанным государственным номером в заданном интервале времени и исключением указанных статусов
-     *
-     * @param startInterval начальная дата и время интервала
-     * @param endInterval конечная дата и время интервала
-     * @param stateNumber государственный номер транспортного средства
-     * @param bookingStatuses список статусов заказов для исключения
-     * @return список заказов для транспорта с указанным государственным номером
+     * @param excludedBkId номер заказа, который не учитывается
+     * @param statuses список статусов заказов
+     * @param pageable ограничение количества интервалов
+     * @return список интервалов выполнения заказов, отсортированный по времени начала
      */
-    @Query("SELECT b FROM Booking b WHERE :startInterval <= b.bkEndTime AND :endInterval >= b.bkStartTime AND b.clientTransport.clTrStateNumber = :stateNumber AND b.bkStatus NOT IN :statuses ORDER BY b.bkStartTime ASC")
-    List<Booking> notNegativeBookingsOfTransportInIntervalTime(@Param("startInterval")LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("stateNumber") String stateNumber, @Param("statuses") List<BookingStatus> bookingStatuses);
+    @Query("SELECT new ru.pin120.carwashAPI.dtos.BookingIntervalDTO(b.bkId, b.box.boxId, b.clientTransport.clTrId, b.clientTransport.clTrStateNumber, b.bkStartTime, b.bkEndTime) FROM Booking b " +
+            "WHERE :startInterval <= b.bkEndTime AND :endInterval >= b.bkStartTime AND b.box.boxId = :boxId AND b.bkId <> :excludedBkId AND b.bkStatus IN :statuses ORDER BY b.bkStartTime ASC")
+    List<BookingIntervalDTO> findCrossedIntervalsInBox(@Param("startInterval") LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("boxId") Long boxId, @Param("excludedBkId") String excludedBkId, @Param("statuses") List<BookingStatus> statuses, Pageable pageable);
 
     /**
-     * Получение списка заказов для транспорта с указанным государственным номером в заданном интервале времени, исключая текущий заказ и указанные статусы
+     * Получение интервалов выполнения заказов транспорта с указанным госномером и заданными статусами, пересекающихся с указанным интервалом времени,
+     * исключая указанный заказ. Для проверки пересечения достаточно ограничить результат одной строкой
      *
      * @param startInterval начальная дата и время интервала
      * @param endInterval конечная дата и время интервала
      * @param stateNumber государственный номер транспортного средства
-     * @param bkId id текущего заказа для исключения
-     * @param bookingStatuses список статусов заказа для исключения
-     * @return список заказов для транспорта с указанным государственным номером, исключая текущий заказ
+     * @param excludedBkId номер заказа, который не учитывается
+     * @param statuses список статусов заказов
+     * @param pageable ограничение количества интервалов
+     * @return список интервалов выполнения заказов, отсортированный по времени начала
      */
-    @Query("SELECT b FROM Booking b WHERE :startInterval <= b.bkEndTime AND :endInterval >= b.bkStartTime AND b.clientTransport.clTrStateNumber = :stateNumber AND b.bkId <> :bkId AND b.bkStatus NOT IN :statuses ORDER BY b.bkStartTime ASC")
-    List<Booking> notNegativeBookingsOfTransportInIntervalTime(@Param("startInterval")LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("stateNumber") String stateNumber, @Param("bkId") String bkId, @Param("statuses") List<BookingStatus> bookingStatuses);
+    @Query("SELECT new ru.pin120.carwashAPI.dtos.BookingIntervalDTO(b.bkId, b.box.boxId, b.clientTransport.clTrId, b.clientTransport.clTrStateNumber, b.bkStartTime, b.bkEndTime) FROM Booking b " +
+            "WHERE :startInterval <= b.bkEndTime AND :endInterval >= b.bkStartTime AND b.clientTransport.clTrStateNumber = :stateNumber AND b.bkId <> :excludedBkId AND b.bkStatus IN :statuses ORDER BY b.bkStartTime ASC")
+    List<BookingIntervalDTO> findCrossedIntervalsOfTransport(@Param("startInterval") LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("stateNumber") String stateNumber, @Param("excludedBkId") String excludedBkId, @Param("statuses") List<BookingStatus> statuses, Pageable pageable);
 
     /**
      * Получение списка незавершенных заказов для указанного бокса с заданными статусами и до указанного времени начала заказа
@@ -91,4 +93,133 @@ public interface BookingRepository extends JpaRepository<Booking, String> {
             @Param("statuses") List<BookingStatus> statuses,
             @Param("boxId") Long boxId
     );
+
+    /**
+     * Получение заказов указанного транспорта клиентов с заданными статусами, которые выполняются (в том числе дольше запланированного)
+     * или ещё не закончились и начинаются до указанного времени
+     *
+     * @param clTrIds список id транспорта клиентов
+     * @param now текущее время
+     * @param startBefore время, до которого должен начаться заказ
+     * @param statuses список статусов заказов
+     * @return список заказов, отсортированный по времени начала
+     */
+    @Query("SELECT new ru.pin120.carwashAPI.dtos.ActiveBookingDTO(b.clientTransport.clTrId, b.bkId, b.box.boxId, b.bkStatus, b.bkStartTime, b.bkEndTime) FROM Booking b " +
+            "WHERE b.clientTransport.clTrId IN :clTrIds AND (b.bkStatus = ru.pin120.carwashAPI.models.BookingStatus.IN_PROGRESS OR b.bkEndTime >= :now) " +
+            "AND b.bkStartTime < :startBefore AND b.bkStatus IN :statuses ORDER BY b.bkStartTime ASC")
+    List<ActiveBookingDTO> findActiveOfTransports(@Param("clTrIds") Collection<Long> clTrIds, @Param("now") LocalDateTime now, @Param("startBefore") LocalDateTime startBefore, @Param("statuses") List<BookingStatus> statuses);
+
+    /**
+     * Получение интервалов выполнения заказов с заданными статусами
+     *
+     * @param statuses список статусов заказов
+     * @return список интервалов выполнения заказов
+     */
+    @Query("SELECT new ru.pin120.carwashAPI.dtos.BookingIntervalDTO(b.bkId, b.box.boxId, b.clientTransport.clTrId, b.clientTransport.clTrStateNumber, b.bkStartTime, b.bkEndTime) FROM Booking b WHERE b.bkStatus IN :statuses")
+    List<BookingIntervalDTO> findIntervalsByStatuses(@Param("statuses") List<BookingStatus> statuses);
+
+    /**
+     * Получение интервалов выполнения заказов указанных боксов, пересекающихся с заданным интервалом времени
+     *
+     * @param startInterval начальная дата и время интервала
+     * @param endInterval конечная дата и время интервала
+     * @param boxIds список id боксов
+     * @param statuses список статусов заказов
+     * @return список интервалов выполнения заказов, отсортированный по времени начала
+     */
+    @Query("SELECT new ru.pin120.carwashAPI.dtos.BookingIntervalDTO(b.bkId, b.box.boxId, b.clientTransport.clTrId, b.clientTransport.clTrStateNumber, b.bkStartTime, b.bkEndTime) FROM Booking b " +
+            "WHERE :startInterval <= b.bkEndTime AND :endInterval >= b.bkStartTime AND b.box.boxId IN :boxIds AND b.bkStatus IN :statuses ORDER BY b.bkStartTime ASC")
+    List<BookingIntervalDTO> findIntervalsInBoxes(@Param("startInterval") LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("boxIds") Collection<Long> boxIds, @Param("statuses") List<BookingStatus> statuses);
+
+    /**
+     * Получение интервалов выполнения заказов транспорта с указанными госномерами, пересекающихся с заданным интервалом времени
+     *
+     * @param startInterval начальная дата и время интервала
+     * @param endInterval конечная дата и время интервала
+     * @param stateNumbers список госномеров
+     * @param statuses список статусов заказов
+     * @return список интервалов выполнения заказов, отсортированный по времени начала
+     */
+    @Query("SELECT new ru.pin120.carwashAPI.dtos.BookingIntervalDTO(b.bkId, b.box.boxId, b.clientTransport.clTrId, b.clientTransport.clTrStateNumber, b.bkStartTime, b.bkEndTime) FROM Booking b " +
+            "WHERE :startInterval <= b.bkEndTime AND :endInterval >= b.bkStartTime AND b.clientTransport.clTrStateNumber IN :stateNumbers AND b.bkStatus IN :statuses ORDER BY b.bkStartTime ASC")
+    List<BookingIntervalDTO> findIntervalsOfTransports(@Param("startInterval") LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("stateNumbers") Collection<String> stateNumbers, @Param("statuses") List<BookingStatus> statuses);
+
+    /**
+     * Получение данных для табло заказов за день: все боксы, мойщики, работающие в боксах в этот день, и заказы боксов, выполняемые в этот день
+     * @param workDay день
+     * @param dayStart начало дня
+     * @param nextDayStart начало следующего дня
+     * @return Список строк, упорядоченный по id бокса и времени начала выполнения заказа
+     */
+    @Query("SELECT new ru.pin120.carwashAPI.dtos.DayBoardRowDTO(x.boxId, x.boxStatus, c.clrId, c.clrSurname, c.clrName, c.clrPatronymic, " +
+            "b.bkId, b.bkStatus, b.bkStartTime, b.bkEndTime, b.bkPrice, ct.clTrStateNumber, t.trMark, t.trModel, cl.clSurname, cl.clName, cl.clPhone) " +
+            "FROM Box x LEFT JOIN x.workSchedules w ON w.wsWorkDay = :workDay LEFT JOIN w.cleaner c " +
+            "LEFT JOIN x.bookings b ON b.bkStartTime < :nextDayStart AND b.bkEndTime >= :dayStart " +
+            "LEFT JOIN b.clientTransport ct LEFT JOIN ct.transport t LEFT JOIN ct.client cl " +
+            "ORDER BY x.boxId ASC, b.bkStartTime ASC")
+    List<DayBoardRowDTO> findDayBoard(@Param("workDay") LocalDate workDay, @Param("dayStart") LocalDateTime dayStart, @Param("nextDayStart") LocalDateTime nextDayStart);
+
+    /**
+     * Получение услуг заказов и необходимых для них категорий расходных материалов
+     * @param bkIds номера заказов
+     * @return Список строк [номер заказа, название услуги, название категории расходных материалов, единица измерения]
+     * (категория и единица измерения равны null, если у услуги нет необходимых категорий)
+     */
+    @Query("SELECT b.bkId, s.servName, c.cSupName, c.unit FROM Booking b JOIN b.services s LEFT JOIN s.categoriesOfSupplies c WHERE b.bkId IN :bkIds")
+    List<Object[]> findServicesOfBookings(@Param("bkIds") Collection<String> bkIds);
+
+    /**
+     * Получение просроченных заказов: заказов с указанными статусами, время окончания выполнения которых меньше указанного
+     * @param statuses статусы заказов
+     * @param threshold время, до которого должно было закончиться выполнение заказа
+     * @param pageable ограничение количества заказов
+     * @return Список просроченных заказов, упорядоченный по времени окончания выполнения
+     */
+    @Query(VIEW_SELECT + "WHERE b.bkStatus IN :statuses AND b.bkEndTime < :threshold ORDER BY b.bkEndTime ASC, b.bkId ASC")
+    List<BookingViewDTO> findStaleBookings(@Param("statuses") List<BookingStatus> statuses, @Param("threshold") LocalDateTime threshold, Pageable pageable);
+
+    /**
+     * Перевод заказов в указанный статус с ограничением времени окончания выполнения текущим временем.
+     * Заказы, статус которых уже не входит в список, не изменяются
+     * @param bkIds номера заказов
+     * @param statuses статусы, из которых выполняется перевод
+     * @param newStatus новый статус
+     * @param now текущее время
+     * @return Количество измененных заказов
+     */
+    @Modifying
+    @Query("UPDATE Booking b SET b.bkStatus = :newStatus, b.bkEndTime = CASE WHEN b.bkEndTime > :now THEN :now ELSE b.bkEndTime END " +
+            "WHERE b.bkId IN :bkIds AND b.bkStatus IN :statuses")
+    int closeBookings(@Param("bkIds") Collection<String> bkIds, @Param("statuses") List<BookingStatus> statuses, @Param("newStatus") BookingStatus newStatus, @Param("now") LocalDateTime now);
+
+    /**
+     * Попытка получения транзакционной рекомендательной блокировки PostgreSQL.
+     * Блокировка освобождается автоматически при завершении транзакции
+     * @param key ключ блокировки
+     * @return true, если блокировка получена, иначе false (блокировку удерживает другая транзакция)
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryXactLock(@Param("key") long key);
+
+    /**
+     * Получение транзакционных рекомендательных блокировок PostgreSQL за один запрос с ожиданием, если их удерживают другие транзакции.
+     * Блокировки берутся по возрастанию ключа и освобождаются автоматически при завершении транзакции
+     * @param keys ключи блокировок
+     * @return Количество полученных блокировок
+     */
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(k) FROM unnest(ARRAY[:keys]) AS t(k) ORDER BY k) l", nativeQuery = true)
+    long advisoryXactLocks(@Param("keys") Collection<Long> keys);
+
+    /**
+     * Потоковое получение интервалов выполнения заказов, пересекающихся с указанным интервалом
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param boxId id бокса (если null, то заказы всех боксов)
+     * @param statuses статусы заказов
+     * @return Поток строк [id бокса, время начала, время окончания]
+     */
+    @Query("SELECT b.box.boxId, b.bkStartTime, b.bkEndTime FROM Booking b WHERE b.bkStartTime < :endInterval AND b.bkEndTime > :startInterval " +
+            "AND (:boxId IS NULL OR b.box.boxId = :boxId) AND b.bkStatus IN :statuses")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<Object[]> streamIntervals(@Param("startInterval") LocalDateTime startInterval, @Param("endInterval") LocalDateTime endInterval, @Param("boxId") Long boxId, @Param("statuses") List<BookingStatus> statuses);
 }
@@ -67,7 +67,8 @@ public interface CategoryOfTransportRepository extends PagingAndSortingRepositor
      * @param servName название услуги для поиска категорий транспорта
      * @return список категорий транспорта, не связанных с определенной услугой, отсортированный по названию в алфавитном порядке
      */
-    @Query("SELECT ct FROM CategoryOfTransport ct WHERE ct.catTrId NOT IN (SELECT p.categoryOfTransport.catTrId FROM PriceList p WHERE p.service.servName = :servName) ORDER BY ct.catTrName ASC")
+    @Query("SELECT ct FROM CategoryOfTransport ct LEFT JOIN PriceList p ON p.categoryOfTransport = ct AND p.service.servName = :servName " +
+            "WHERE p.plId IS NULL ORDER BY ct.catTrName ASC")
     List<CategoryOfTransport> findCategoriesOfTransportWithoutPriceAndTimeByServName(@Param("servName") String servName);
 
     /**
@@ -77,9 +78,8 @@ public interface CategoryOfTransportRepository extends PagingAndSortingRepositor
      * @param model модель транспорта
      * @return список категорий транспорта, не связанных с указанной маркой и моделью транспорта, отсортированный по названию в алфавитном порядке
      */
-    @Query("SELECT c FROM CategoryOfTransport c WHERE c.catTrId NOT IN " +
-            "(SELECT t.categoryOfTransport.catTrId FROM Transport t " +
-            "WHERE t.trMark = :mark AND t.trModel = :model) ORDER BY c.catTrName ASC")
+    @Query("SELECT c FROM CategoryOfTransport c LEFT JOIN Transport t ON t.categoryOfTransport = c AND t.trMark = :mark AND t.trModel = :model " +
+            "WHERE t.trId IS NULL ORDER BY c.catTrName ASC")
     List<CategoryOfTransport> findCategoriesByMarkAndModel(@Param("mark") String mark, @Param("model") String model);
 
 
@@ -91,8 +91,7 @@ public interface CategoryOfTransportRepository extends PagingAndSortingRepositor
      * @param excludedId id транспорта, который нужно исключить из результата
      * @return список категорий транспорта, не связанных с указанной маркой и моделью транспорта, исключая указанный транспорт, отсортированный по названию в алфавитном порядке
      */
-    @Query("SELECT c FROM CategoryOfTransport c WHERE NOT EXISTS " +
-            "(SELECT t FROM Transport t " +
-            "WHERE t.categoryOfTransport.catTrId = c.catTrId AND t.trMark = :mark AND t.trModel = :model AND t.trId <> :excludedId) ORDER BY c.catTrName ASC")
+    @Query("SELECT c FROM CategoryOfTransport c LEFT JOIN Transport t ON t.categoryOfTransport = c AND t.trMark = :mark AND t.trModel = :model AND t.trId <> :excludedId " +
+            "WHERE t.trId IS NULL ORDER BY c.catTrName ASC")
     List<CategoryOfTransport> findCategoriesByMarkAndModel(@Param("mark") String mark, @Param("model") String model, @Param("excludedId") Long excludedId);
 }
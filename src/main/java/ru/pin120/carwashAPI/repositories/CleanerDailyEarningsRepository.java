@@ -0,0 +1,85 @@
+package ru.pin120.carwashAPI.repositories;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.pin120.carwashAPI.models.CleanerDailyEarnings;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий итогов выполненных заказов мойщика за день
+ */
+@Repository
+public interface CleanerDailyEarningsRepository extends CrudRepository<CleanerDailyEarnings, Long> {
+
+    /**
+     * Получение итогов мойщика за дни указанного интервала
+     *
+     * @param clrId id мойщика
+     * @param startDay начальный день интервала (включительно)
+     * @param endDay конечный день интервала (включительно)
+     * @return список итогов, отсортированный по дням в обратном порядке
+     */
+    @Query("SELECT e FROM CleanerDailyEarnings e WHERE e.cleaner.clrId = :clrId AND e.ceDay >= :startDay AND e.ceDay <= :endDay AND e.ceCount > 0 ORDER BY e.ceDay DESC")
+    List<CleanerDailyEarnings> findByCleanerAndDays(@Param("clrId") Long clrId, @Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    /**
+     * Изменение итогов мойщика за день. Если итогов за день нет, они создаются
+     *
+     * @param clrId id мойщика
+     * @param day день
+     * @param count изменение количества выполненных заказов
+     * @param revenue изменение стоимости выполненных заказов
+     */
+    @Modifying
+    @Query(value = "INSERT INTO cleaner_daily_earnings (clr_id, ce_day, ce_count, ce_revenue) VALUES (:clrId, :day, :count, :revenue) " +
+            "ON CONFLICT (clr_id, ce_day) DO UPDATE SET ce_count = cleaner_daily_earnings.ce_count + :count, ce_revenue = cleaner_daily_earnings.ce_revenue + :revenue", nativeQuery = true)
+    void addToDay(@Param("clrId") Long clrId, @Param("day") LocalDate day, @Param("count") int count, @Param("revenue") long revenue);
+
+    /**
+     * Удаление итогов мойщика за день, если в них не осталось выполненных заказов
+     *
+     * @param clrId id мойщика
+     * @param day день
+     */
+    @Modifying
+    @Query("DELETE FROM CleanerDailyEarnings e WHERE e.cleaner.clrId = :clrId AND e.ceDay = :day AND e.ceCount <= 0")
+    void deleteEmpty(@Param("clrId") Long clrId, @Param("day") LocalDate day);
+
+    /**
+     * Удаление всех итогов
+     */
+    @Modifying
+    @Query("DELETE FROM CleanerDailyEarnings e")
+    void deleteAllEarnings();
+
+    /**
+     * Заполнение итогов по всем выполненным заказам. Уже существующие итоги за день не изменяются
+     */
+    @Modifying
+    @Query(value = "INSERT INTO cleaner_daily_earnings (clr_id, ce_day, ce_count, ce_revenue) " +
+            "SELECT b.clr_id, CAST(b.bk_start_time AS date), COUNT(*), SUM(b.bk_price) FROM bookings b " +
+            "WHERE b.bk_status = 'DONE' AND b.clr_id IS NOT NULL GROUP BY b.clr_id, CAST(b.bk_start_time AS date) " +
+            "ON CONFLICT (clr_id, ce_day) DO NOTHING", nativeQuery = true)
+    void fillFromBookings();
+
+    /**
+     * Блокировка таблицы итогов от изменений других транзакций до завершения текущей транзакции. Чтение итогов не блокируется
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE cleaner_daily_earnings IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    /**
+     * Попытка получения транзакционной рекомендательной блокировки PostgreSQL.
+     * Блокировка освобождается автоматически при завершении транзакции
+     * @param key ключ блокировки
+     * @return true, если блокировка получена, иначе false (блокировку удерживает другая транзакция)
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryXactLock(@Param("key") long key);
+}
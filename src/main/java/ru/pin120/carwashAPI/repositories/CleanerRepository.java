@@ -2,9 +2,15 @@ package ru.pin120.carwashAPI.repositories;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.pin120.carwashAPI.models.Cleaner;
+import ru.pin120.carwashAPI.models.CleanerStatus;
+
+import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Репозиторий мойщика
@@ -12,4 +18,18 @@ import ru.pin120.carwashAPI.models.Cleaner;
 @Repository
 public interface CleanerRepository extends CrudRepository<Cleaner, Long> {
 
+    /**
+     * Получение мойщиков с их рабочими днями в боксе за период.
+     * Мойщики без рабочих дней в периоде возвращаются одной строкой без рабочего дня, если у них указанный статус
+     *
+     * @param boxId id бокса
+     * @param startInterval начальный день периода
+     * @param endInterval конечный день периода
+     * @param includedStatus статус мойщиков, которые возвращаются даже без рабочих дней (если null, то такие мойщики не возвращаются)
+     * @return список строк [clrId, clrSurname, clrName, clrPatronymic, clrPhone, clrStatus, wsId, wsWorkDay]
+     */
+    @Query("SELECT c.clrId, c.clrSurname, c.clrName, c.clrPatronymic, c.clrPhone, c.clrStatus, ws.wsId, ws.wsWorkDay FROM Cleaner c " +
+            "LEFT JOIN WorkSchedule ws ON ws.cleaner = c AND ws.box.boxId = :boxId AND ws.wsWorkDay >= :startInterval AND ws.wsWorkDay <= :endInterval " +
+            "WHERE ws.wsId IS NOT NULL OR c.clrStatus = :includedStatus")
+    List<Object[]> findRosterRows(@Param("boxId") Long boxId, @Param("startInterval") LocalDate startInterval, @Param("endInterval") LocalDate endInterval, @Param("includedStatus") CleanerStatus includedStatus);
 }
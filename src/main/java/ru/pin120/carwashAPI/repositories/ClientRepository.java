@@ -39,137 +39,27 @@ public interface ClientRepository extends PagingAndSortingRepository<Client, Lon
      */
     void deleteByClId(Long clId);
 
+    /**
+     * Поиск клиентов, фамилия которых начинается с указанной строки, или номер телефона начинается с указанной строки
+     *
+     * @param surnamePattern шаблон LIKE для фамилии в нижнем регистре
+     * @param phonePattern шаблон LIKE для номера телефона
+     * @param pageable объект, ограничивающий количество найденных клиентов
+     * @return список клиентов, упорядоченный по фамилии и имени
+     */
+    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE :surnamePattern OR c.clPhone LIKE :phonePattern ORDER BY c.clSurname, c.clName, c.clId")
+    List<Client> findByPrefix(@Param("surnamePattern") String surnamePattern, @Param("phonePattern") String phonePattern, Pageable pageable);
 
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount < :discount ")
-    List<Client> query1(@Param("surname") String surname, @Param("name") String name, @Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount > :discount ")
-    List<Client> query2(@Param("surname") String surname, @Param("name") String name, @Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount = :discount ")
-    List<Client> query3(@Param("surname") String surname, @Param("name") String name, @Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%'))")
-    List<Client> query4(@Param("surname") String surname, @Param("name") String name, @Param("phone") String phone,Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND c.clDiscount < :discount")
-    List<Client> query5(@Param("surname") String surname, @Param("name") String name, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND c.clDiscount > :discount")
-    List<Client> query6(@Param("surname") String surname, @Param("name") String name, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND c.clDiscount = :discount")
-    List<Client> query7(@Param("surname") String surname, @Param("name") String name, @Param("discount") Integer discount, Pageable pageable);
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount < :discount")
-    List<Client> query8(@Param("surname") String surname, @Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount > :discount")
-    List<Client> query9(@Param("surname") String surname, @Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount = :discount")
-    List<Client> query10(@Param("surname") String surname, @Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount < :discount")
-    List<Client> query11(@Param("name") String name, @Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount > :discount")
-    List<Client> query12(@Param("name") String name, @Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount = :discount")
-    List<Client> query13(@Param("name") String name, @Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%'))")
-    List<Client> query14(@Param("surname") String surname, @Param("name") String name,Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%'))")
-    List<Client> query15(@Param("surname") String surname, @Param("phone") String phone,Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND c.clDiscount < :discount")
-    List<Client> query16(@Param("surname") String surname, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND c.clDiscount > :discount")
-    List<Client> query17(@Param("surname") String surname, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%')) " +
-            "AND c.clDiscount = :discount")
-    List<Client> query18(@Param("surname") String surname, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%'))")
-    List<Client> query19(@Param("name") String name, @Param("phone") String phone,Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND c.clDiscount < :discount")
-    List<Client> query20(@Param("name") String name, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND c.clDiscount > :discount")
-    List<Client> query21(@Param("name") String name, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%')) " +
-            "AND c.clDiscount = :discount")
-    List<Client> query22(@Param("name") String name, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount < :discount")
-    List<Client> query23(@Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount > :discount")
-    List<Client> query24(@Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%')) " +
-            "AND c.clDiscount = :discount")
-    List<Client> query25(@Param("phone") String phone, @Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clSurname) LIKE LOWER(CONCAT('%', :surname, '%'))")
-    List<Client> query26(@Param("surname") String surname, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clName) LIKE LOWER(CONCAT('%', :name, '%'))")
-    List<Client> query27(@Param("name") String name, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE LOWER(c.clPhone) LIKE LOWER(CONCAT('%', :phone, '%'))")
-    List<Client> query28(@Param("phone") String phone, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE c.clDiscount < :discount")
-    List<Client> query29(@Param("discount") Integer discount, Pageable pageable);
-
-    @Query("SELECT c FROM Client c WHERE c.clDiscount > :discount")
-    List<Client> query30(@Param("discount") Integer discount, Pageable pageable);
+    /**
+     * Нечеткий поиск клиентов по фамилии или имени с помощью триграмм (расширение pg_trgm)
+     *
+     * @param query строка поиска
+     * @param limit максимальное количество найденных клиентов
+     * @return список клиентов, упорядоченный по убыванию сходства фамилии или имени со строкой поиска
+     */
+    @Query(value = "SELECT * FROM clients c WHERE LOWER(c.cl_surname) % LOWER(:query) OR LOWER(c.cl_name) % LOWER(:query) " +
+            "ORDER BY GREATEST(similarity(LOWER(c.cl_surname), LOWER(:query)), similarity(LOWER(c.cl_name), LOWER(:query))) DESC, c.cl_surname, c.cl_name, c.cl_id " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Client> findSimilar(@Param("query") String query, @Param("limit") int limit);
 
-    @Query("SELECT c FROM Client c WHERE c.clDiscount = :discount")
-    List<Client> query31(@Param("discount") Integer discount, Pageable pageable);
 }
@@ -6,6 +6,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.pin120.carwashAPI.models.ClientsTransport;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,8 +32,6 @@ public interface ClientsTransportRepository extends PagingAndSortingRepository<C
     @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
     List<ClientsTransport> findByClientId(Long clientId);
 
-
-
     /**
      * Подсчет количества транспорта клиента по госномеру, id клиента и id транспорта
      *
@@ -44,7 +43,6 @@ public interface ClientsTransportRepository extends PagingAndSortingRepository<C
     @Query("SELECT COUNT(ct) FROM ClientsTransport ct WHERE ct.clTrStateNumber = :stateNumber AND ct.client.clId = :clId AND ct.transport.trId = :trId")
     int countByStateNumberAndClientIdAndTransportId(@Param("stateNumber") String stateNumber, @Param("clId") Long clId, @Param("trId") Long trId);
 
-
     /**
      * Подсчет количества транспорта клиента по госномеру, id клиента и id транспорта, исключая текущий транспорт клиента
      *
@@ -72,102 +70,42 @@ public interface ClientsTransportRepository extends PagingAndSortingRepository<C
      */
     void deleteByClTrId(Long clTrId);
 
-    // Поиск
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trModel) LIKE LOWER(CONCAT('%', :model, '%')) " +
-            "AND LOWER(ct.transport.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "AND LOWER(ct.transport.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%')) " +
-            "AND LOWER(ct.clTrStateNumber) LIKE LOWER(CONCAT('%', :stateNumber, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndMarkAndModelAndCategoryAndStateNumber(@Param("clientId") Long clientId, @Param("mark") String mark, @Param("model") String model, @Param("category") String category, @Param("stateNumber") String stateNumber);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trModel) LIKE LOWER(CONCAT('%', :model, '%')) " +
-            "AND LOWER(ct.transport.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "AND LOWER(ct.transport.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndMarkAndModelAndCategory(@Param("clientId") Long clientId, @Param("mark") String mark, @Param("model") String model, @Param("category") String category);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trModel) LIKE LOWER(CONCAT('%', :model, '%')) " +
-            "AND LOWER(ct.transport.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "AND LOWER(ct.clTrStateNumber) LIKE LOWER(CONCAT('%', :stateNumber, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndMarkAndModelAndStateNumber(@Param("clientId") Long clientId, @Param("mark") String mark, @Param("model") String model, @Param("stateNumber") String stateNumber);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "AND LOWER(ct.transport.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%')) " +
-            "AND LOWER(ct.clTrStateNumber) LIKE LOWER(CONCAT('%', :stateNumber, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndMarkAndCategoryAndStateNumber(@Param("clientId") Long clientId, @Param("mark") String mark, @Param("category") String category, @Param("stateNumber") String stateNumber);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trModel) LIKE LOWER(CONCAT('%', :model, '%')) " +
-            "AND LOWER(ct.transport.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%')) " +
-            "AND LOWER(ct.clTrStateNumber) LIKE LOWER(CONCAT('%', :stateNumber, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndModelAndCategoryAndStateNumber(@Param("clientId") Long clientId, @Param("model") String model, @Param("category") String category, @Param("stateNumber") String stateNumber);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trModel) LIKE LOWER(CONCAT('%', :model, '%')) " +
-            "AND LOWER(ct.transport.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndMarkAndModel(@Param("clientId") Long clientId, @Param("mark") String mark, @Param("model") String model);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "AND LOWER(ct.transport.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndMarkAndCategory(@Param("clientId") Long clientId, @Param("mark") String mark,  @Param("category") String category);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "AND LOWER(ct.clTrStateNumber) LIKE LOWER(CONCAT('%', :stateNumber, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndMarkAndStateNumber(@Param("clientId") Long clientId, @Param("mark") String mark, @Param("stateNumber") String stateNumber);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trModel) LIKE LOWER(CONCAT('%', :model, '%')) " +
-            "AND LOWER(ct.transport.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndModelAndCategory(@Param("clientId") Long clientId, @Param("model") String model, @Param("category") String category);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trModel) LIKE LOWER(CONCAT('%', :model, '%')) " +
-            "AND LOWER(ct.clTrStateNumber) LIKE LOWER(CONCAT('%', :stateNumber, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndModelAndStateNumber(@Param("clientId") Long clientId,@Param("model") String model,@Param("stateNumber") String stateNumber);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%')) " +
-            "AND LOWER(ct.clTrStateNumber) LIKE LOWER(CONCAT('%', :stateNumber, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndCategoryAndStateNumber(@Param("clientId") Long clientId,@Param("category") String category, @Param("stateNumber") String stateNumber);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndMark(@Param("clientId") Long clientId, @Param("mark") String mark);
-
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.trModel) LIKE LOWER(CONCAT('%', :model, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndModel(@Param("clientId") Long clientId,@Param("model") String model);
+    /**
+     * Получение транспорта клиентов по списку id вместе с клиентом и транспортом
+     *
+     * @param clTrIds список id транспорта клиентов
+     * @return Список транспорта клиентов
+     */
+    @Query("SELECT ct FROM ClientsTransport ct JOIN FETCH ct.client JOIN FETCH ct.transport t JOIN FETCH t.categoryOfTransport " +
+            "WHERE ct.clTrId IN :clTrIds")
+    List<ClientsTransport> findByClTrIds(@Param("clTrIds") Collection<Long> clTrIds);
 
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.transport.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndCategory(@Param("clientId") Long clientId, @Param("category") String category);
+    /**
+     * Получение транспорта клиентов по списку нормализованных госномеров вместе с клиентом и транспортом
+     *
+     * @param stateNumberKeys список нормализованных госномеров
+     * @return Список транспорта клиентов
+     */
+    @Query("SELECT ct FROM ClientsTransport ct JOIN FETCH ct.client JOIN FETCH ct.transport t JOIN FETCH t.categoryOfTransport " +
+            "WHERE ct.clTrStateNumberKey IN :stateNumberKeys " +
+            "ORDER BY t.trMark, t.trModel, t.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
+    List<ClientsTransport> findByStateNumberKeys(@Param("stateNumberKeys") Collection<String> stateNumberKeys);
 
-    @Query("SELECT ct FROM ClientsTransport ct WHERE ct.client.clId = :clientId " +
-            "AND LOWER(ct.clTrStateNumber) LIKE LOWER(CONCAT('%', :stateNumber, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-     List<ClientsTransport> findByClientIdAndStateNumber(@Param("clientId") Long clientId,@Param("stateNumber") String stateNumber);
+    /**
+     * Поиск транспорта клиентов по части нормализованного госномера вместе с клиентом и транспортом
+     *
+     * @param stateNumberKey часть нормализованного госномера
+     * @return Список транспорта клиентов
+     */
+    @Query("SELECT ct FROM ClientsTransport ct JOIN FETCH ct.client JOIN FETCH ct.transport t JOIN FETCH t.categoryOfTransport " +
+            "WHERE ct.clTrStateNumberKey LIKE CONCAT('%', :stateNumberKey, '%') " +
+            "ORDER BY t.trMark, t.trModel, t.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
+    List<ClientsTransport> findByStateNumberKeyContaining(@Param("stateNumberKey") String stateNumberKey);
 
-    @Query("SELECT ct FROM ClientsTransport ct WHERE " +
-            "LOWER(ct.clTrStateNumber) LIKE LOWER(CONCAT('%', :stateNumber, '%')) " +
-            "ORDER BY  ct.transport.trMark, ct.transport.trModel,ct.transport.categoryOfTransport.catTrName, ct.clTrStateNumber ASC")
-    List<ClientsTransport> findByStateNumber(@Param("stateNumber") String stateNumber);
+    /**
+     * Получение транспорта клиентов, у которого не заполнен нормализованный госномер
+     *
+     * @return Список транспорта клиентов
+     */
+    List<ClientsTransport> findByClTrStateNumberKeyIsNull();
 }
@@ -24,7 +24,13 @@ public interface PriceListRepository extends PagingAndSortingRepository<PriceLis
     @Query("SELECT p FROM PriceList p WHERE p.service.servName = :servName ORDER BY p.categoryOfTransport.catTrName ASC")
     List<PriceList> findByServiceName(@Param("servName") String servName);
 
-
+    /**
+     * Получение всех позиций прайс-листа без загрузки связанных сущностей
+     *
+     * @return список строк [id категории транспорта, название категории услуг, название услуги, стоимость, время выполнения]
+     */
+    @Query("SELECT p.categoryOfTransport.catTrId, s.category.catName, s.servName, p.plPrice, p.plTime FROM PriceList p JOIN p.service s")
+    List<Object[]> findAllPositions();
 
     /**
      * Поиск позиций прайс-листа по id категории транспорта
@@ -44,6 +50,15 @@ public interface PriceListRepository extends PagingAndSortingRepository<PriceLis
      */
     Optional<PriceList> findByCategoryOfTransportCatTrIdAndServiceServName(Long catTrId, String servName);
 
+    /**
+     * Поиск позиций прайс-листа по id категории транспорта и списку названий услуг
+     *
+     * @param catTrId id категории транспорта для поиска
+     * @param servNames названия услуг для поиска
+     * @return список позиций прайс-листа, удовлетворяющих критериям поиска
+     */
+    List<PriceList> findByCategoryOfTransportCatTrIdAndServiceServNameIn(Long catTrId, List<String> servNames);
+
     /**
      * Поиск позиции в прайс-листе по id
      *
@@ -65,208 +80,4 @@ public interface PriceListRepository extends PagingAndSortingRepository<PriceLis
      * @param priceList позиция прайс-листа для удаления
      */
     void delete(PriceList priceList);
-
-
-    // поиск
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime > :time " +
-            "AND p.plPrice < :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query1(@Param("servName") String servName, @Param("catTrName") String catTrName, @Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime > :time " +
-            "AND p.plPrice < :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query2(@Param("servName")String servName,@Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime = :time " +
-            "AND p.plPrice < :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query3(@Param("servName") String servName,@Param("catTrName") String catTrName, @Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime = :time " +
-            "AND p.plPrice < :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query4(@Param("servName")String servName,@Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime < :time " +
-            "AND p.plPrice < :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query5(@Param("servName") String servName,@Param("catTrName") String catTrName, @Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime < :time " +
-            "AND p.plPrice < :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query6(@Param("servName") String servName,@Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime > :time " +
-            "AND p.plPrice = :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query7(@Param("servName") String servName,@Param("catTrName") String catTrName, @Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime > :time " +
-            "AND p.plPrice = :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query8(@Param("servName")String servName,@Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime = :time " +
-            "AND p.plPrice = :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query9(@Param("servName") String servName,@Param("catTrName") String catTrName, @Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime = :time " +
-            "AND p.plPrice = :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query10(@Param("servName") String servName,@Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime < :time " +
-            "AND p.plPrice = :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query11(@Param("servName")String servName,@Param("catTrName") String catTrName, @Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime < :time " +
-            "AND p.plPrice = :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query12(@Param("servName") String servName,@Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime < :time " +
-            "AND p.plPrice > :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query13(@Param("servName") String servName,@Param("catTrName") String catTrName, @Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime < :time " +
-            "AND p.plPrice > :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query14(@Param("servName")String servName,@Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime = :time " +
-            "AND p.plPrice > :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query15(@Param("servName")String servName,@Param("catTrName") String catTrName, @Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime = :time " +
-            "AND p.plPrice > :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query16(@Param("servName") String servName,@Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime > :time " +
-            "AND p.plPrice > :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query17(@Param("servName") String servName,@Param("catTrName") String catTrName, @Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime > :time " +
-            "AND p.plPrice > :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query18(@Param("servName") String servName,@Param("time") Integer time, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plPrice < :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query19(@Param("servName")String servName,@Param("catTrName") String catTrName, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plPrice < :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query20(@Param("servName") String servName,@Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plPrice = :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query21(@Param("servName") String servName,@Param("catTrName") String catTrName, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plPrice = :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query22(@Param("servName")String servName,@Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plPrice > :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query23(@Param("servName")String servName,@Param("catTrName") String catTrName, @Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plPrice > :price " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query24(@Param("servName") String servName,@Param("price") Integer price);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime < :time " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query25(@Param("servName") String servName,@Param("catTrName") String catTrName, @Param("time") Integer time);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime < :time " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query26(@Param("servName") String servName, @Param("time") Integer time);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime = :time " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query27(@Param("servName") String servName,@Param("catTrName") String catTrName, @Param("time") Integer time);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime = :time " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query28(@Param("servName") String servName, @Param("time") Integer time);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            "AND p.plTime > :time " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query29(@Param("servName") String servName,@Param("catTrName") String catTrName, @Param("time") Integer time);
-
-    @Query("SELECT p FROM PriceList p WHERE " +
-            "p.plTime > :time " +
-            "AND p.service.servName = :servName " +
-            "ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query30(@Param("servName") String servName, @Param("time") Integer time);
-
-    @Query("SELECT p FROM PriceList p WHERE LOWER(p.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :catTrName, '%')) " +
-            " AND p.service.servName = :servName ORDER BY p.categoryOfTransport.catTrName ASC")
-    List<PriceList> query31(@Param("servName") String servName, @Param("catTrName") String catTrName);
 }
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Repository;
 import ru.pin120.carwashAPI.models.CategoryOfServices;
 import ru.pin120.carwashAPI.models.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,6 +51,23 @@ public interface ServiceRepository extends PagingAndSortingRepository<Service, S
      */
     Optional<Service> findByServName(String servName);
 
+    /**
+     * Поиск услуг по списку названий
+     *
+     * @param servNames названия услуг
+     * @return список найденных услуг
+     */
+    List<Service> findByServNameIn(Collection<String> servNames);
+
+    /**
+     * Получение категорий расходных материалов, необходимых для выполнения услуг
+     *
+     * @param servNames названия услуг
+     * @return список пар [название услуги, название категории расходных материалов]
+     */
+    @Query("SELECT s.servName, c.cSupName FROM Service s JOIN s.categoriesOfSupplies c WHERE s.servName IN :servNames")
+    List<Object[]> findCategoriesOfSuppliesByServNames(@Param("servNames") Collection<String> servNames);
+
     /**
      * Проверка существования услуги по названию (игнорируя регистр).
      *
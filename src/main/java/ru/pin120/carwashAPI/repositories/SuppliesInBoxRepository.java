@@ -6,6 +6,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.pin120.carwashAPI.models.SuppliesInBox;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -44,4 +45,15 @@ public interface SuppliesInBoxRepository extends JpaRepository<SuppliesInBox, Lo
      * @return Список расходных материалов в боксе
      */
     List<SuppliesInBox> findByBox_BoxIdAndSupply_Category_cSupNameAndCountSuppliesGreaterThan(Long boxId, String catName, int count);
+
+    /**
+     * Получение названий категорий расходных материалов, которые есть в боксе в ненулевом количестве
+     *
+     * @param boxId id бокса
+     * @param catNames названия проверяемых категорий расходных материалов
+     * @return Список названий категорий, расходные материалы которых есть в боксе
+     */
+    @Query("SELECT DISTINCT s.supply.category.cSupName FROM SuppliesInBox s WHERE s.box.boxId = :boxId AND s.countSupplies > 0 " +
+            "AND s.supply.category.cSupName IN :catNames")
+    List<String> findAvailableCategoryNames(@Param("boxId") Long boxId, @Param("catNames") Collection<String> catNames);
 }
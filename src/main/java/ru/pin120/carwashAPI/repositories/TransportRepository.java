@@ -1,6 +1,5 @@
 package ru.pin120.carwashAPI.repositories;
 
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
@@ -58,90 +57,11 @@ public interface TransportRepository extends PagingAndSortingRepository<Transpor
      */
     void deleteByTrId(Long trId);
 
-
-    /**
-     * Поиск транспортных средств по марке, модели и категории
-     *
-     * @param mark марка транспортного средства для поиска
-     * @param model модель транспортного средства для поиска
-     * @param category категория транспортного средства для поиска
-     * @param pageable объект, предоставляющий информацию о странице результатов и сортировке
-     * @return список транспортных средств, удовлетворяющих критериям поиска
-     */
-    @Query("SELECT t FROM Transport t WHERE LOWER(t.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "AND LOWER(t.trModel) LIKE LOWER(CONCAT('%', :model, '%')) " +
-            "AND LOWER(t.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%'))")
-    List<Transport> findByMarkAndModelAndCategory(@Param("mark") String mark,
-                                                  @Param("model") String model,
-                                                  @Param("category") String category,
-                                                  Pageable pageable);
-
-    /**
-     * Поиск транспортных средств по марке и модели
-     *
-     * @param mark марка транспортного средства для поиска
-     * @param model модель транспортного средства для поиска
-     * @param pageable объект, предоставляющий информацию о странице результатов и сортировке
-     * @return список транспортных средств, удовлетворяющих критериям поиска
-     */
-    @Query("SELECT t FROM Transport t WHERE LOWER(t.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "AND LOWER(t.trModel) LIKE LOWER(CONCAT('%', :model, '%'))")
-    List<Transport> findByMarkAndModel(@Param("mark") String mark, @Param("model") String model, Pageable pageable);
-
-    /**
-     * Поиск транспортных средств по марке и категории.
-     *
-     * @param mark марка транспортного средства для поиска
-     * @param category категория транспортного средства для поиска
-     * @param pageable объект, предоставляющий информацию о странице результатов и сортировке
-     * @return список транспортных средств, удовлетворяющих критериям поиска
-     */
-    @Query("SELECT t FROM Transport t WHERE LOWER(t.trMark) LIKE LOWER(CONCAT('%', :mark, '%')) " +
-            "AND LOWER(t.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%'))")
-    List<Transport> findByMarkAndCategory(@Param("mark") String mark, @Param("category") String category, Pageable pageable);
-
-    /**
-     * Поиск транспортных средств по модели и категории.
-     *
-     * @param model модель транспортного средства для поиска
-     * @param category категория транспортного средства для поиска
-     * @param pageable объект, предоставляющий информацию о странице результатов и сортировке
-     * @return список транспортных средств, удовлетворяющих критериям поиска
-     */
-    @Query("SELECT t FROM Transport t WHERE LOWER(t.trModel) LIKE LOWER(CONCAT('%', :model, '%')) " +
-            "AND LOWER(t.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%'))")
-    List<Transport> findByModelAndCategory(@Param("model") String model, @Param("category") String category, Pageable pageable);
-
-
-    /**
-     * Поиск транспортных средств по модели
-     *
-     * @param model модель транспортного средства для поиска
-     * @param pageable объект, предоставляющий информацию о странице результатов и сортировке
-     * @return список транспортных средств, удовлетворяющих критериям поиска
-     */
-    @Query("SELECT t FROM Transport t WHERE LOWER(t.trModel) LIKE LOWER(CONCAT('%', :model, '%'))")
-    List<Transport> findByModel(@Param("model") String model, Pageable pageable);
-
-
-    /**
-     * Поиск транспортных средств по марке
-     *
-     * @param mark марка транспортного средства для поиска
-     * @param pageable объект, предоставляющий информацию о странице результатов и сортировке
-     * @return список транспортных средств, удовлетворяющих критериям поиска
-     */
-    @Query("SELECT t FROM Transport t WHERE LOWER(t.trMark) LIKE LOWER(CONCAT('%', :mark, '%'))")
-    List<Transport> findByMark(@Param("mark") String mark, Pageable pageable);
-
-
     /**
-     * Поиск транспортных средств по категории
+     * Получение всего транспорта вместе с категориями
      *
-     * @param category категория транспортного средства для поиска
-     * @param pageable объект, предоставляющий информацию о странице результатов и сортировке
-     * @return список транспортных средств, удовлетворяющих критериям поиска
+     * @return список транспорта, упорядоченный по марке, модели и категории
      */
-    @Query("SELECT t FROM Transport t WHERE LOWER(t.categoryOfTransport.catTrName) LIKE LOWER(CONCAT('%', :category, '%'))")
-    List<Transport> findByCategory(@Param("category") String category, Pageable pageable);
+    @Query("SELECT t FROM Transport t JOIN FETCH t.categoryOfTransport c ORDER BY t.trMark, t.trModel, c.catTrName")
+    List<Transport> findAllWithCategory();
 }
@@ -12,6 +12,7 @@ import ru.pin120.carwashAPI.models.WorkSchedule;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Репозиторий рабочих дней
@@ -58,4 +59,12 @@ public interface WorkScheduleRepository extends JpaRepository<WorkSchedule, Long
     @Query("DELETE FROM WorkSchedule ws WHERE ws.cleaner.clrId = :clrId AND ws.wsWorkDay >= :date")
     void deleteByCleanerIdAndWsWorkDayAfterOrEqual(@Param("clrId") Long clrId, @Param("date") LocalDate date);
 
+    /**
+     * Поиск рабочего дня в боксе на указанную дату
+     * @param boxId id бокса
+     * @param workDay дата
+     * @return объект Optional, содержащий рабочий день или пустой, если в этот день в боксе нет мойщика
+     */
+    Optional<WorkSchedule> findFirstByBox_BoxIdAndWsWorkDay(Long boxId, LocalDate workDay);
+
 }
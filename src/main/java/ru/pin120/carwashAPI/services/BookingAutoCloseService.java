@@ -0,0 +1,65 @@
+package ru.pin120.carwashAPI.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сервис для автоматического закрытия просроченных заказов.
+ * По расписанию AUTO_CLOSE_CRON переводит заказы со статусами "Бронь" и "Выполняется", время окончания которых
+ * прошло более AUTO_CLOSE_GRACE_MINUTES минут назад, в статус "Не выполнен" порциями по AUTO_CLOSE_BATCH_SIZE заказов
+ */
+@Service
+@Slf4j
+public class BookingAutoCloseService {
+
+    /**
+     * Ключ рекомендательной блокировки, исключающей одновременное закрытие заказов несколькими экземплярами приложения
+     */
+    private static final long LOCK_KEY = 0x4361725761736801L;
+
+    /**
+     * Сервис для работы с заказами
+     */
+    private final BookingService bookingService;
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Внедрение зависимости
+     * @param bookingService сервис для работы с заказами
+     */
+    public BookingAutoCloseService(BookingService bookingService) {
+        this.bookingService = bookingService;
+    }
+
+    /**
+     * Закрытие просроченных заказов
+     */
+    @Scheduled(cron = "${AUTO_CLOSE_CRON}")
+    public void closeStaleBookings() {
+        if (!Boolean.parseBoolean(environment.getProperty("AUTO_CLOSE_ENABLED"))) {
+            return;
+        }
+        int batchSize = Integer.parseInt(environment.getProperty("AUTO_CLOSE_BATCH_SIZE"));
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(Long.parseLong(environment.getProperty("AUTO_CLOSE_GRACE_MINUTES")));
+
+        int total = 0;
+        int closed;
+        do {
+            closed = bookingService.closeStaleBookings(threshold, batchSize, LOCK_KEY);
+            if (closed > 0) {
+                total += closed;
+            }
+        } while (closed == batchSize);
+
+        if (total > 0) {
+            log.info("Auto-closed {} stale bookings", total);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package ru.pin120.carwashAPI.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.pin120.carwashAPI.dtos.BookingEventDTO;
+import ru.pin120.carwashAPI.dtos.BookingViewDTO;
+import ru.pin120.carwashAPI.models.Booking;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Сервис для рассылки изменений заказов подписчикам потоков событий (Server-Sent Events).
+ * Подписка не занимает поток обработки запросов: соединение удерживается асинхронно,
+ * а события после фиксации транзакции, изменившей заказ, помещаются в ограниченную очередь каждого подписчика
+ * и отправляются пулом потоков, поэтому медленный подписчик не задерживает отправку остальным.
+ * Подписчик, отправка одного события которому длится дольше допустимого времени, отключается,
+ * чтобы зависшие соединения не занимали потоки пула
+ */
+@Service
+@Slf4j
+public class BookingEventService {
+
+    /**
+     * Подписчики на события отдельных боксов по id бокса
+     */
+    private final Map<Long, Set<Subscriber>> boxSubscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Подписчики на события всех боксов
+     */
+    private final Set<Subscriber> allBoxesSubscribers = new CopyOnWriteArraySet<>();
+
+    /**
+     * Пул потоков, выполняющих отправку событий подписчикам
+     */
+    private ExecutorService sender;
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Создание пула потоков отправки событий
+     */
+    @PostConstruct
+    public void init() {
+        sender = Executors.newFixedThreadPool(Integer.parseInt(environment.getProperty("BOOKING_EVENTS_SENDER_THREADS")), r -> {
+            Thread thread = new Thread(r, "booking-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Подписка на изменения заказов
+     * @param boxId id бокса (если null, то подписка на изменения заказов во всех боксах)
+     * @return Объект SseEmitter, через который отправляются события
+     */
+    public SseEmitter subscribe(Long boxId) {
+        SseEmitter emitter = new SseEmitter(Long.parseLong(environment.getProperty("BOOKING_EVENTS_TIMEOUT")));
+        Subscriber subscriber = new Subscriber(emitter, boxId, Integer.parseInt(environment.getProperty("BOOKING_EVENTS_QUEUE_SIZE")));
+        if (boxId == null) {
+            allBoxesSubscribers.add(subscriber);
+        } else {
+            boxSubscribers.compute(boxId, (k, subscribers) -> {
+                Set<Subscriber> result = subscribers == null ? new CopyOnWriteArraySet<>() : subscribers;
+                result.add(subscriber);
+                return result;
+            });
+        }
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        return emitter;
+    }
+
+    /**
+     * Отправка комментария всем подписчикам, чтобы соединения не закрывались прокси-серверами из-за отсутствия данных
+     * и чтобы своевременно обнаруживались отключившиеся подписчики
+     */
+    @Scheduled(fixedDelayString = "${BOOKING_EVENTS_HEARTBEAT}", initialDelayString = "${BOOKING_EVENTS_HEARTBEAT}")
+    public void heartbeat() {
+        forEachSubscriber(subscriber -> subscriber.offer(SseEmitter.event().comment("heartbeat")));
+    }
+
+    /**
+     * Отключение подписчиков, отправка события которым длится дольше BOOKING_EVENTS_SEND_TIMEOUT миллисекунд
+     */
+    @Scheduled(fixedDelayString = "${BOOKING_EVENTS_SEND_TIMEOUT}", initialDelayString = "${BOOKING_EVENTS_SEND_TIMEOUT}")
+    public void dropStuckSubscribers() {
+        long timeout = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(environment.getProperty("BOOKING_EVENTS_SEND_TIMEOUT")));
+        forEachSubscriber(subscriber -> subscriber.dropIfStuck(timeout));
+    }
+
+    /**
+     * Отправка события о создании заказа после фиксации текущей транзакции
+     * @param booking созданный заказ
+     */
+    public void created(Booking booking) {
+        publish(toEvent(BookingEventDTO.Type.CREATED, booking, null));
+    }
+
+    /**
+     * Отправка события об изменении данных о заказе после фиксации текущей транзакции
+     * @param booking измененный заказ
+     * @param previousBoxId id бокса, в котором находился заказ до изменения
+     */
+    public void edited(Booking booking, Long previousBoxId) {
+        publish(toEvent(BookingEventDTO.Type.EDITED, booking, previousBoxId));
+    }
+
+    /**
+     * Отправка события об изменении статуса заказа после фиксации текущей транзакции
+     * @param booking заказ
+     */
+    public void statusChanged(Booking booking) {
+        publish(toEvent(BookingEventDTO.Type.STATUS_CHANGED, booking, null));
+    }
+
+    /**
+     * Отправка события об изменении статуса заказа после фиксации текущей транзакции
+     * @param booking заказ после изменения статуса
+     */
+    public void statusChanged(BookingViewDTO booking) {
+        publish(new BookingEventDTO(BookingEventDTO.Type.STATUS_CHANGED, booking.getBkId(), booking.getBox().getBoxId(), null,
+                booking.getBkStatus(), booking.getBkStartTime(), booking.getBkEndTime(),
+                booking.getClientTransport().getClTrStateNumber(), booking.getBkPrice()));
+    }
+
+    /**
+     * Отправка события об удалении заказа после фиксации текущей транзакции
+     * @param booking удаленный заказ
+     */
+    public void deleted(Booking booking) {
+        BookingEventDTO event = new BookingEventDTO();
+        event.setType(BookingEventDTO.Type.DELETED);
+        event.setBkId(booking.getBkId());
+        event.setBoxId(booking.getBox().getBoxId());
+        publish(event);
+    }
+
+    /**
+     * Остановка потока отправки событий при завершении работы приложения
+     */
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    /**
+     * Формирование события по данным заказа
+     * @param type тип изменения
+     * @param booking заказ
+     * @param previousBoxId id бокса до изменения (null, если бокс не менялся)
+     * @return Событие
+     */
+    private BookingEventDTO toEvent(BookingEventDTO.Type type, Booking booking, Long previousBoxId) {
+        Long boxId = booking.getBox().getBoxId();
+        return new BookingEventDTO(type, booking.getBkId(), boxId,
+                previousBoxId == null || previousBoxId.equals(boxId) ? null : previousBoxId,
+                booking.getBkStatus(), booking.getBkStartTime(), booking.getBkEndTime(),
+                booking.getClientTransport().getClTrStateNumber(), booking.getBkPrice());
+    }
+
+    /**
+     * Постановка события в очередь отправки после фиксации текущей транзакции или сразу, если транзакция отсутствует
+     * @param event событие
+     */
+    private void publish(BookingEventDTO event) {
+        Runnable action = () -> send(event);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Постановка события в очереди подписчиков бокса заказа, подписчиков бокса до изменения и подписчиков всех боксов
+     * @param event событие
+     */
+    private void send(BookingEventDTO event) {
+        send(allBoxesSubscribers, event);
+        send(boxSubscribers.get(event.getBoxId()), event);
+        if (event.getPreviousBoxId() != null) {
+            send(boxSubscribers.get(event.getPreviousBoxId()), event);
+        }
+    }
+
+    private void send(Set<Subscriber> subscribers, BookingEventDTO event) {
+        if (subscribers == null) {
+            return;
+        }
+        subscribers.forEach(subscriber -> subscriber.offer(SseEmitter.event().name(event.getType().name()).data(event)));
+    }
+
+    private void forEachSubscriber(Consumer<Subscriber> action) {
+        allBoxesSubscribers.forEach(action);
+        boxSubscribers.values().forEach(subscribers -> subscribers.forEach(action));
+    }
+
+    /**
+     * Удаление подписчика. Пустое множество подписчиков бокса удаляется
+     * @param subscriber подписчик
+     */
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscriber.boxId == null) {
+            allBoxesSubscribers.remove(subscriber);
+        } else {
+            boxSubscribers.computeIfPresent(subscriber.boxId, (k, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+    }
+
+    /**
+     * Подписчик с ограниченной очередью неотправленных событий.
+     * Очередь разбирается не более чем одним потоком пула одновременно, при её переполнении подписчик отключается,
+     * чтобы клиент переподключился и заново получил актуальное состояние
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final Long boxId;
+
+        private final Queue<SseEmitter.SseEventBuilder> events;
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        /**
+         * Поток, выполняющий отправку события (null, если отправка не выполняется). Изменяется под блокировкой подписчика
+         */
+        private Thread sendingThread;
+
+        /**
+         * Время начала текущей отправки события в наносекундах
+         */
+        private long sendStartedAt;
+
+        private Subscriber(SseEmitter emitter, Long boxId, int queueSize) {
+            this.emitter = emitter;
+            this.boxId = boxId;
+            this.events = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        /**
+         * Постановка события в очередь подписчика
+         * @param event событие
+         */
+        private void offer(SseEmitter.SseEventBuilder event) {
+            if (!events.offer(event)) {
+                log.debug("Booking event subscriber is too slow, disconnecting");
+                disconnect();
+                emitter.complete();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        /**
+         * Отправка накопленных событий. После снятия признака разбора очередь проверяется повторно,
+         * чтобы не потерять событие, добавленное во время завершения разбора
+         */
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while ((event = events.poll()) != null) {
+                    send(event);
+                }
+            } catch (Exception e) {
+                log.debug("Booking event subscriber disconnected: {}", e.getMessage());
+                disconnect();
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (!events.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        /**
+         * Отправка события с запоминанием потока и времени начала отправки для проверки её длительности
+         * @param event событие
+         */
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            synchronized (this) {
+                sendingThread = Thread.currentThread();
+                sendStartedAt = System.nanoTime();
+            }
+            try {
+                emitter.send(event);
+            } finally {
+                synchronized (this) {
+                    sendingThread = null;
+                    // Сброс прерывания, выполненного при отключении подписчика, чтобы оно не повлияло на следующие задачи потока
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        /**
+         * Отключение подписчика, если текущая отправка события длится дольше указанного времени.
+         * Поток отправки прерывается, чтобы освободить его для других подписчиков
+         * @param timeout допустимая длительность отправки в наносекундах
+         */
+        private synchronized void dropIfStuck(long timeout) {
+            if (sendingThread == null || System.nanoTime() - sendStartedAt <= timeout) {
+                return;
+            }
+            log.debug("Booking event subscriber send timed out, disconnecting");
+            disconnect();
+            emitter.completeWithError(new TimeoutException("Booking event send timed out"));
+            sendingThread.interrupt();
+        }
+
+        private void disconnect() {
+            unsubscribe(this);
+            events.clear();
+        }
+    }
+}
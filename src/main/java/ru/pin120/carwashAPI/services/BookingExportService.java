@@ -0,0 +1,163 @@
+package ru.pin120.carwashAPI.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import ru.pin120.carwashAPI.dtos.BookingExportRowDTO;
+import ru.pin120.carwashAPI.models.BookingStatus;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис для выгрузки журнала заказов в формате CSV или NDJSON
+ */
+@Service
+public class BookingExportService {
+
+    /**
+     * Разделитель полей CSV
+     */
+    private static final String CSV_DELIMITER = ";";
+
+    /**
+     * Заголовок CSV
+     */
+    private static final String[] CSV_HEADER = {"bkId", "bkStatus", "bkStartTime", "bkEndTime", "bkPrice", "boxId", "clrId", "clrSurname", "clrName",
+            "clTrStateNumber", "trMark", "trModel", "clId", "clSurname", "clName", "clPhone"};
+
+    /**
+     * Сервис для работы с заказами
+     */
+    private final BookingService bookingService;
+
+    /**
+     * Преобразователь объектов в JSON
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Внедрение зависимостей
+     * @param bookingService сервис для работы с заказами
+     * @param objectMapper преобразователь объектов в JSON
+     */
+    public BookingExportService(BookingService bookingService, ObjectMapper objectMapper) {
+        this.bookingService = bookingService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Получение формата выгрузки по названию
+     * @param format название формата (csv или ndjson)
+     * @return Формат выгрузки
+     */
+    public Format getFormat(String format) {
+        return Arrays.stream(Format.values())
+                .filter(f -> f.name().equalsIgnoreCase(format))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестный формат выгрузки " + format));
+    }
+
+    /**
+     * Выгрузка заказов, удовлетворяющих фильтрам, в поток вывода
+     * @param outputStream поток вывода
+     * @param format формат выгрузки
+     * @param cleanerId id мойщика
+     * @param clientId id клиента
+     * @param boxId id бокса
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param bookingStatus статус
+     * @param compareOperator оператор сравнения стоимости
+     * @param price стоимость
+     * @throws IOException если не удалось записать данные в поток вывода
+     */
+    public void export(OutputStream outputStream, Format format, Long cleanerId, Long clientId, Long boxId, LocalDateTime startInterval, LocalDateTime endInterval, BookingStatus bookingStatus, String compareOperator, Integer price) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(String.join(CSV_DELIMITER, CSV_HEADER));
+            writer.write("\n");
+        }
+        try {
+            bookingService.exportBookings(cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price, row -> {
+                try {
+                    writer.write(format == Format.CSV ? toCsv(row) : objectMapper.writeValueAsString(row));
+                    writer.write("\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Преобразование строки выгрузки в строку CSV
+     * @param row строка выгрузки
+     * @return Строка CSV
+     */
+    private String toCsv(BookingExportRowDTO row) {
+        return Arrays.stream(new Object[]{row.getBkId(), row.getBkStatus(), row.getBkStartTime(), row.getBkEndTime(), row.getBkPrice(), row.getBoxId(),
+                        row.getClrId(), row.getClrSurname(), row.getClrName(), row.getClTrStateNumber(), row.getTrMark(), row.getTrModel(),
+                        row.getClId(), row.getClSurname(), row.getClName(), row.getClPhone()})
+                .map(this::toCsvValue)
+                .collect(Collectors.joining(CSV_DELIMITER));
+    }
+
+    /**
+     * Экранирование значения поля CSV
+     * @param value значение
+     * @return Значение поля CSV
+     */
+    private String toCsvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(CSV_DELIMITER) || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    /**
+     * Формат выгрузки
+     */
+    public enum Format {
+        /**
+         * Значения, разделенные точкой с запятой, с заголовком
+         */
+        CSV("text/csv", "csv"),
+        /**
+         * JSON-объект на каждой строке
+         */
+        NDJSON("application/x-ndjson", "ndjson");
+
+        /**
+         * Тип содержимого ответа
+         */
+        private final String contentType;
+
+        /**
+         * Расширение файла выгрузки
+         */
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package ru.pin120.carwashAPI.services;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import ru.pin120.carwashAPI.models.BookingIdSequence;
 import ru.pin120.carwashAPI.repositories.BookingIdSequenceRepository;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Сервис последовательности генерации номера заказа
+ * Сервис последовательности генерации номера заказа.
+ * Номера резервируются в базе данных блоками и выдаются из памяти, поэтому создание заказов на нескольких
+ * экземплярах приложения не блокируется на строке последовательности. Номера, не выданные до остановки приложения, пропускаются
  */
 @Service
 public class BookingIdSequenceService {
@@ -18,6 +23,14 @@ public class BookingIdSequenceService {
      */
     private final BookingIdSequenceRepository bookingIdSequenceRepository;
 
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Текущий зарезервированный блок номеров
+     */
+    private volatile IdBlock currentBlock;
+
     /**
      * Внедрение зависимостей
      * @param bookingIdSequenceRepository репозиторий последовательности генерации номера заказа
@@ -30,18 +43,91 @@ public class BookingIdSequenceService {
      * Генерация номера заказа
      * @return Номер заказа
      */
-    @Transactional
     public String generateId(){
-        int currentYear = LocalDate.now().getYear();
-        BookingIdSequence idSequence = bookingIdSequenceRepository.findByYear(currentYear);
-        if (idSequence == null) {
-            idSequence = new BookingIdSequence(currentYear, 1);
-        } else {
-            idSequence.setLastId(idSequence.getLastId() + 1);
+        return generateId(LocalDate.now().getYear());
+    }
+
+    /**
+     * Генерация номера заказа указанного года. Блок номеров предыдущего года при смене года не используется
+     * @param currentYear год
+     * @return Номер заказа
+     */
+    String generateId(int currentYear){
+        while (true) {
+            IdBlock block = currentBlock;
+            if (block != null && block.year == currentYear) {
+                int id = block.next.getAndIncrement();
+                if (id <= block.lastId) {
+                    return currentYear + "-" + id;
+                }
+            }
+            synchronized (this) {
+                if (currentBlock == block) {
+                    currentBlock = leaseBlock(currentYear);
+                }
+            }
+        }
+    }
+
+    /**
+     * Генерация нескольких номеров заказа.
+     * Если номеров требуется больше размера блока, под них резервируется отдельный блок
+     * @param count количество номеров
+     * @return Список номеров заказа
+     */
+    public List<String> generateIds(int count){
+        return generateIds(count, LocalDate.now().getYear());
+    }
+
+    /**
+     * Генерация нескольких номеров заказа указанного года
+     * @param count количество номеров
+     * @param currentYear год
+     * @return Список номеров заказа
+     */
+    List<String> generateIds(int count, int currentYear){
+        List<String> ids = new ArrayList<>(count);
+        int blockSize = Integer.parseInt(environment.getProperty("BOOKING_ID_BLOCK_SIZE"));
+        if(count <= blockSize){
+            for(int i = 0; i < count; i++){
+                ids.add(generateId(currentYear));
+            }
+        }else{
+            int lastId = bookingIdSequenceRepository.leaseBlock(currentYear, count);
+            for(int id = lastId - count + 1; id <= lastId; id++){
+                ids.add(currentYear + "-" + id);
+            }
         }
 
-        bookingIdSequenceRepository.save(idSequence);
+        return ids;
+    }
+
+    /**
+     * Резервирование нового блока номеров
+     * @param year год
+     * @return Зарезервированный блок номеров
+     */
+    private IdBlock leaseBlock(int year){
+        int blockSize = Integer.parseInt(environment.getProperty("BOOKING_ID_BLOCK_SIZE"));
+        int lastId = bookingIdSequenceRepository.leaseBlock(year, blockSize);
+        return new IdBlock(year, lastId - blockSize + 1, lastId);
+    }
 
-        return currentYear + "-" + idSequence.getLastId();
+    /**
+     * Блок номеров заказа одного года
+     */
+    private static class IdBlock {
+
+        private final int year;
+
+        private final AtomicInteger next;
+
+        private final int lastId;
+
+        IdBlock(int year, int firstId, int lastId) {
+            this.year = year;
+            this.next = new AtomicInteger(firstId);
+            this.lastId = lastId;
+        }
     }
 }
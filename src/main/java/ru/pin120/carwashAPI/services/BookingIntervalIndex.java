@@ -0,0 +1,367 @@
+package ru.pin120.carwashAPI.services;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.pin120.carwashAPI.dtos.BookingIntervalDTO;
+import ru.pin120.carwashAPI.models.Booking;
+import ru.pin120.carwashAPI.models.BookingStatus;
+import ru.pin120.carwashAPI.repositories.BookingRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс интервалов выполнения заказов в памяти.
+ * Хранит заказы со статусами "Бронь", "Выполняется", "Выполнен" и "Не выполнен" по боксам и госномерам транспорта,
+ * чтобы поиск свободного времени не требовал запросов к базе данных.
+ * Индекс заполняется при запуске приложения и обновляется после фиксации транзакций, изменяющих заказы
+ */
+@Service
+public class BookingIntervalIndex {
+
+    /**
+     * Статусы заказов, учитываемые при проверке пересечений
+     */
+    public static final List<BookingStatus> ACTIVE_STATUSES = List.of(BookingStatus.BOOKED, BookingStatus.IN_PROGRESS, BookingStatus.DONE, BookingStatus.NOT_DONE);
+
+    /**
+     * Репозиторий заказа
+     */
+    private final BookingRepository bookingRepository;
+
+    /**
+     * Интервалы заказов по номеру заказа
+     */
+    private final Map<String, BookingIntervalDTO> intervalsById = new HashMap<>();
+
+    /**
+     * Интервалы заказов по id бокса
+     */
+    private final Map<Long, Timeline> boxTimelines = new HashMap<>();
+
+    /**
+     * Интервалы заказов по госномеру транспорта
+     */
+    private final Map<String, Timeline> transportTimelines = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Признак заполненности индекса
+     */
+    private volatile boolean ready = false;
+
+    /**
+     * Изменения, примененные во время заполнения индекса (null, если индекс не заполняется).
+     * После заполнения они применяются повторно, чтобы не потерять изменения, зафиксированные после чтения заказов из базы данных
+     */
+    private List<Runnable> pendingChanges;
+
+    /**
+     * Внедрение зависимости
+     * @param bookingRepository репозиторий заказа
+     */
+    public BookingIntervalIndex(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    /**
+     * Проверяет, заполнен ли индекс
+     * @return true, если индекс можно использовать вместо запросов к базе данных, иначе false
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Заполнение индекса данными из базы данных при запуске приложения.
+     * Изменения, зафиксированные во время чтения заказов, запоминаются и применяются повторно после заполнения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<BookingIntervalDTO> intervals = null;
+        try {
+            intervals = bookingRepository.findIntervalsByStatuses(ACTIVE_STATUSES);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (intervals != null) {
+                    intervalsById.clear();
+                    boxTimelines.clear();
+                    transportTimelines.clear();
+                    for (BookingIntervalDTO interval : intervals) {
+                        add(interval);
+                    }
+                    pendingChanges.forEach(Runnable::run);
+                    ready = true;
+                }
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Поиск заказа в боксе, пересекающегося с указанным интервалом
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param boxId id бокса
+     * @param excludedBkId номер заказа, который не учитывается при поиске (может быть null)
+     * @return Объект Optional с самым ранним пересекающимся заказом, если он существует
+     */
+    public Optional<BookingIntervalDTO> findCrossedInBox(LocalDateTime startInterval, LocalDateTime endInterval, Long boxId, String excludedBkId) {
+        lock.readLock().lock();
+        try {
+            Timeline timeline = boxTimelines.get(boxId);
+            return timeline == null ? Optional.empty() : timeline.findFirstCrossed(startInterval, endInterval, excludedBkId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Поиск заказа транспорта с указанным госномером, пересекающегося с указанным интервалом
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param stateNumber госномер транспорта
+     * @param excludedBkId номер заказа, который не учитывается при поиске (может быть null)
+     * @return Объект Optional с самым ранним пересекающимся заказом, если он существует
+     */
+    public Optional<BookingIntervalDTO> findCrossedOfTransport(LocalDateTime startInterval, LocalDateTime endInterval, String stateNumber, String excludedBkId) {
+        lock.readLock().lock();
+        try {
+            Timeline timeline = transportTimelines.get(stateNumber);
+            return timeline == null ? Optional.empty() : timeline.findFirstCrossed(startInterval, endInterval, excludedBkId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Получение интервалов заказов бокса, пересекающихся с указанным интервалом
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param boxId id бокса
+     * @return Список интервалов заказов, упорядоченный по времени начала выполнения
+     */
+    public List<BookingIntervalDTO> getCrossedInBox(LocalDateTime startInterval, LocalDateTime endInterval, Long boxId) {
+        lock.readLock().lock();
+        try {
+            Timeline timeline = boxTimelines.get(boxId);
+            return timeline == null ? new ArrayList<>() : timeline.findCrossed(startInterval, endInterval);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Получение интервалов заказов транспорта с указанным госномером, пересекающихся с указанным интервалом
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param stateNumber госномер транспорта
+     * @return Список интервалов заказов, упорядоченный по времени начала выполнения
+     */
+    public List<BookingIntervalDTO> getCrossedOfTransport(LocalDateTime startInterval, LocalDateTime endInterval, String stateNumber) {
+        lock.readLock().lock();
+        try {
+            Timeline timeline = transportTimelines.get(stateNumber);
+            return timeline == null ? new ArrayList<>() : timeline.findCrossed(startInterval, endInterval);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Обновление заказа в индексе после фиксации текущей транзакции
+     * @param booking заказ
+     */
+    public void update(Booking booking) {
+        BookingIntervalDTO interval = ACTIVE_STATUSES.contains(booking.getBkStatus()) ? toInterval(booking) : null;
+        update(booking.getBkId(), interval);
+    }
+
+    /**
+     * Обновление интервала заказа в индексе после фиксации текущей транзакции
+     * @param bkId номер заказа
+     * @param interval новый интервал заказа (null, если заказ больше не учитывается при проверке пересечений)
+     */
+    public void update(String bkId, BookingIntervalDTO interval) {
+        afterCommit(() -> apply(() -> {
+            remove(bkId);
+            if (interval != null) {
+                add(interval);
+            }
+        }));
+    }
+
+    /**
+     * Удаление заказа из индекса после фиксации текущей транзакции
+     * @param bkId номер заказа
+     */
+    public void delete(String bkId) {
+        afterCommit(() -> apply(() -> remove(bkId)));
+    }
+
+    /**
+     * Обновление госномера транспорта клиента в индексе после фиксации текущей транзакции
+     * @param clTrId id транспорта клиента
+     * @param stateNumber новый госномер
+     */
+    public void changeStateNumber(Long clTrId, String stateNumber) {
+        afterCommit(() -> apply(() -> {
+            List<BookingIntervalDTO> changed = intervalsById.values().stream()
+                    .filter(i -> i.getClTrId().equals(clTrId) && !i.getClTrStateNumber().equals(stateNumber))
+                    .toList();
+            for (BookingIntervalDTO interval : changed) {
+                remove(interval.getBkId());
+                interval.setClTrStateNumber(stateNumber);
+                add(interval);
+            }
+        }));
+    }
+
+    /**
+     * Получение интервала выполнения заказа
+     * @param booking заказ
+     * @return Интервал выполнения заказа
+     */
+    public static BookingIntervalDTO toInterval(Booking booking) {
+        return new BookingIntervalDTO(booking.getBkId(), booking.getBox().getBoxId(), booking.getClientTransport().getClTrId(), booking.getClientTransport().getClTrStateNumber(), booking.getBkStartTime(), booking.getBkEndTime());
+    }
+
+    /**
+     * Выполнение действия после фиксации текущей транзакции или сразу, если транзакция отсутствует
+     * @param action действие
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Применение изменения к индексу под блокировкой на запись.
+     * Если индекс заполняется, изменение запоминается для повторного применения после заполнения
+     * @param change изменение
+     */
+    private void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавление интервала в индекс. Вызывается под блокировкой на запись
+     * @param interval интервал заказа
+     */
+    private void add(BookingIntervalDTO interval) {
+        intervalsById.put(interval.getBkId(), interval);
+        boxTimelines.computeIfAbsent(interval.getBoxId(), k -> new Timeline()).add(interval);
+        transportTimelines.computeIfAbsent(interval.getClTrStateNumber(), k -> new Timeline()).add(interval);
+    }
+
+    /**
+     * Удаление интервала из индекса. Вызывается под блокировкой на запись
+     * @param bkId номер заказа
+     */
+    private void remove(String bkId) {
+        BookingIntervalDTO interval = intervalsById.remove(bkId);
+        if (interval == null) {
+            return;
+        }
+        Timeline boxTimeline = boxTimelines.get(interval.getBoxId());
+        if (boxTimeline != null && boxTimeline.remove(interval)) {
+            boxTimelines.remove(interval.getBoxId());
+        }
+        Timeline transportTimeline = transportTimelines.get(interval.getClTrStateNumber());
+        if (transportTimeline != null && transportTimeline.remove(interval)) {
+            transportTimelines.remove(interval.getClTrStateNumber());
+        }
+    }
+
+    /**
+     * Упорядоченные по времени начала интервалы заказов одного бокса или одного транспорта.
+     * Наибольшая длительность интервала ограничивает диапазон начал, которые нужно просмотреть при поиске пересечений
+     */
+    private static class Timeline {
+
+        private final TreeMap<LocalDateTime, Map<String, BookingIntervalDTO>> byStart = new TreeMap<>();
+
+        private Duration maxDuration = Duration.ZERO;
+
+        void add(BookingIntervalDTO interval) {
+            byStart.computeIfAbsent(interval.getBkStartTime(), k -> new LinkedHashMap<>()).put(interval.getBkId(), interval);
+            Duration duration = Duration.between(interval.getBkStartTime(), interval.getBkEndTime());
+            if (duration.compareTo(maxDuration) > 0) {
+                maxDuration = duration;
+            }
+        }
+
+        /**
+         * @return true, если после удаления интервалов не осталось
+         */
+        boolean remove(BookingIntervalDTO interval) {
+            Map<String, BookingIntervalDTO> sameStart = byStart.get(interval.getBkStartTime());
+            if (sameStart != null) {
+                sameStart.remove(interval.getBkId());
+                if (sameStart.isEmpty()) {
+                    byStart.remove(interval.getBkStartTime());
+                }
+            }
+            return byStart.isEmpty();
+        }
+
+        Optional<BookingIntervalDTO> findFirstCrossed(LocalDateTime startInterval, LocalDateTime endInterval, String excludedBkId) {
+            for (Map<String, BookingIntervalDTO> sameStart : candidates(startInterval, endInterval).values()) {
+                for (BookingIntervalDTO interval : sameStart.values()) {
+                    if (!interval.getBkEndTime().isBefore(startInterval) && !interval.getBkId().equals(excludedBkId)) {
+                        return Optional.of(interval);
+                    }
+                }
+            }
+            return Optional.empty();
+        }
+
+        List<BookingIntervalDTO> findCrossed(LocalDateTime startInterval, LocalDateTime endInterval) {
+            List<BookingIntervalDTO> crossed = new ArrayList<>();
+            for (Map<String, BookingIntervalDTO> sameStart : candidates(startInterval, endInterval).values()) {
+                for (BookingIntervalDTO interval : sameStart.values()) {
+                    if (!interval.getBkEndTime().isBefore(startInterval)) {
+                        crossed.add(interval);
+                    }
+                }
+            }
+            return crossed;
+        }
+
+        private NavigableMap<LocalDateTime, Map<String, BookingIntervalDTO>> candidates(LocalDateTime startInterval, LocalDateTime endInterval) {
+            return byStart.subMap(startInterval.minus(maxDuration), true, endInterval, true);
+        }
+    }
+}
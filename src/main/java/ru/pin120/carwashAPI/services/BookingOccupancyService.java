@@ -0,0 +1,175 @@
+package ru.pin120.carwashAPI.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.pin120.carwashAPI.dtos.BoxOccupancyDTO;
+import ru.pin120.carwashAPI.repositories.BookingRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Сервис для расчета загруженности боксов по дням недели и часам.
+ * Интервалы заказов читаются потоком без создания сущностей и суммируются в массивы минут.
+ * Результаты для завершившихся периодов кэшируются
+ */
+@Service
+public class BookingOccupancyService {
+
+    /**
+     * Количество часов в неделе
+     */
+    private static final int HOURS_IN_WEEK = 7 * 24;
+
+    /**
+     * Репозиторий заказа
+     */
+    private final BookingRepository bookingRepository;
+
+    /**
+     * Кэш загруженности боксов за завершившиеся периоды
+     */
+    private final Map<CacheKey, List<BoxOccupancyDTO>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, List<BoxOccupancyDTO>> eldest) {
+            return size() > Integer.parseInt(environment.getProperty("OCCUPANCY_CACHE_SIZE"));
+        }
+    };
+
+    /**
+     * Поколение кэша, увеличивается при каждом удалении результатов из кэша. Изменяется под блокировкой кэша
+     */
+    private long cacheGeneration;
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Внедрение зависимости
+     * @param bookingRepository репозиторий заказа
+     */
+    public BookingOccupancyService(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    /**
+     * Получение загруженности боксов за период
+     * @param startDate начальный день периода
+     * @param endDate конечный день периода
+     * @param boxId id бокса (если null, то загруженность всех боксов)
+     * @return Список загруженности боксов, в которых были заказы, упорядоченный по id бокса
+     */
+    @Transactional(readOnly = true)
+    public List<BoxOccupancyDTO> getOccupancy(LocalDate startDate, LocalDate endDate, Long boxId) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("Конечный день периода должен быть не раньше начального");
+        }
+        boolean closedPeriod = endDate.isBefore(LocalDate.now());
+        CacheKey key = new CacheKey(startDate, endDate, boxId);
+        long generation;
+        synchronized (cache) {
+            generation = cacheGeneration;
+            if (closedPeriod) {
+                List<BoxOccupancyDTO> cached = cache.get(key);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+
+        LocalDateTime rangeStart = startDate.atStartOfDay();
+        LocalDateTime rangeEnd = endDate.plusDays(1).atStartOfDay();
+        Map<Long, long[]> minutesByBox = new TreeMap<>();
+        try (Stream<Object[]> intervals = bookingRepository.streamIntervals(rangeStart, rangeEnd, boxId, BookingIntervalIndex.ACTIVE_STATUSES)) {
+            intervals.forEach(row -> {
+                long[] minutes = minutesByBox.computeIfAbsent((Long) row[0], k -> new long[HOURS_IN_WEEK]);
+                LocalDateTime start = (LocalDateTime) row[1];
+                LocalDateTime end = (LocalDateTime) row[2];
+                addInterval(minutes, start.isBefore(rangeStart) ? rangeStart : start, end.isAfter(rangeEnd) ? rangeEnd : end);
+            });
+        }
+
+        long workMinutesInDay = Duration.between(LocalTime.parse(environment.getProperty("START_WORK_TIME")), LocalTime.parse(environment.getProperty("END_WORK_TIME"))).toMinutes();
+        long workMinutesInPeriod = workMinutesInDay * (ChronoUnit.DAYS.between(startDate, endDate) + 1);
+        List<BoxOccupancyDTO> result = new ArrayList<>();
+        for (Map.Entry<Long, long[]> entry : minutesByBox.entrySet()) {
+            int[][] minutes = new int[7][24];
+            long total = 0;
+            for (int i = 0; i < HOURS_IN_WEEK; i++) {
+                minutes[i / 24][i % 24] = (int) entry.getValue()[i];
+                total += entry.getValue()[i];
+            }
+            result.add(new BoxOccupancyDTO(entry.getKey(), minutes, total, workMinutesInPeriod == 0 ? 0 : (double) total / workMinutesInPeriod));
+        }
+
+        // Результат не кэшируется, если во время расчета были изменены заказы: он мог быть рассчитан по старым данным
+        if (closedPeriod) {
+            synchronized (cache) {
+                if (generation == cacheGeneration) {
+                    cache.put(key, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Удаление из кэша результатов за периоды, пересекающиеся с интервалом измененного заказа, после фиксации текущей транзакции
+     * @param start время начала выполнения заказа
+     * @param end время окончания выполнения заказа
+     */
+    public void evict(LocalDateTime start, LocalDateTime end) {
+        LocalDate startDay = start.toLocalDate();
+        LocalDate endDay = end.toLocalDate();
+        Runnable action = () -> {
+            synchronized (cache) {
+                cacheGeneration++;
+                cache.keySet().removeIf(k -> !k.startDate().isAfter(endDay) && !k.endDate().isBefore(startDay));
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Добавление минут интервала в ячейки по дням недели и часам
+     * @param minutes массив минут по часам недели
+     * @param start начало интервала
+     * @param end конец интервала
+     */
+    static void addInterval(long[] minutes, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime current = start;
+        while (current.isBefore(end)) {
+            LocalDateTime nextHour = current.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            LocalDateTime segmentEnd = nextHour.isBefore(end) ? nextHour : end;
+            minutes[(current.getDayOfWeek().getValue() - 1) * 24 + current.getHour()] += Duration.between(current, segmentEnd).toMinutes();
+            current = segmentEnd;
+        }
+    }
+
+    /**
+     * Ключ кэша загруженности
+     * @param startDate начальный день периода
+     * @param endDate конечный день периода
+     * @param boxId id бокса
+     */
+    private record CacheKey(LocalDate startDate, LocalDate endDate, Long boxId) {
+    }
+}
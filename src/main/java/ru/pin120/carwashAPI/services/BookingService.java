@@ -3,25 +3,44 @@ package ru.pin120.carwashAPI.services;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.pin120.carwashAPI.dtos.BookingBatchResultDTO;
 import ru.pin120.carwashAPI.dtos.BookingDTO;
+import ru.pin120.carwashAPI.dtos.BookingExportRowDTO;
+import ru.pin120.carwashAPI.dtos.BookingIntervalDTO;
+import ru.pin120.carwashAPI.dtos.BookingPageDTO;
+import ru.pin120.carwashAPI.dtos.BookingStartCheckDTO;
+import ru.pin120.carwashAPI.dtos.BookingViewDTO;
 import ru.pin120.carwashAPI.dtos.BookingsInfoDTO;
+import ru.pin120.carwashAPI.dtos.BookingsInfoGroupDTO;
+import ru.pin120.carwashAPI.dtos.DayBoardBookingDTO;
+import ru.pin120.carwashAPI.dtos.DayBoardBoxDTO;
+import ru.pin120.carwashAPI.dtos.DayBoardRowDTO;
+import ru.pin120.carwashAPI.dtos.FreeSlotDTO;
+import ru.pin120.carwashAPI.dtos.PriceQuoteDTO;
 import ru.pin120.carwashAPI.dtos.ServiceWithPriceListDTO;
 import ru.pin120.carwashAPI.models.*;
 import ru.pin120.carwashAPI.repositories.BookingRepository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Сервис заказа
@@ -29,6 +48,15 @@ import java.util.stream.Collectors;
 @Service
 public class BookingService {
 
+    /**
+     * Класс рекомендательных блокировок боксов
+     */
+    private static final int BOX_LOCK_CLASS = 1;
+    /**
+     * Класс рекомендательных блокировок госномеров
+     */
+    private static final int STATE_NUMBER_LOCK_CLASS = 2;
+
     /**
      * Репозиторий заказа
      */
@@ -42,13 +70,42 @@ public class BookingService {
      */
     private final ServService servService;
     /**
-     * Сервис расходных материалов в боксе
+     * Предварительная проверка возможности начать выполнение заказа
+     */
+    private final BookingStartValidator bookingStartValidator;
+    /**
+     * Матрица цен прайс-листа
+     */
+    private final PriceMatrixService priceMatrixService;
+    /**
+     * Индекс интервалов выполнения заказов
+     */
+    private final BookingIntervalIndex bookingIntervalIndex;
+    /**
+     * Сервис бокса
+     */
+    private final BoxService boxService;
+    /**
+     * Валидатор входных данных
+     */
+    private final Validator validator;
+    /**
+     * Сервис итогов выполненных заказов мойщиков по дням
+     */
+    private final CleanerEarningsService cleanerEarningsService;
+    /**
+     * Сервис рассылки изменений заказов
      */
-    private final SuppliesInBoxService suppliesInBoxService;
+    private final BookingEventService bookingEventService;
     /**
-     * Сервис позиций в прайс-листе
+     * Сервис расчета загруженности боксов
      */
-    private final PriceListService priceListService;
+    private final BookingOccupancyService bookingOccupancyService;
+
+    /**
+     * Сервис транспорта клиентов
+     */
+    private final ClientsTransportService clientsTransportService;
 
     @Autowired
     private Environment environment;
@@ -61,15 +118,29 @@ public class BookingService {
      * @param bookingRepository репозиторий заказа
      * @param bookingIdSequenceService сервис последовательности генерации номера заказа
      * @param servService сервис услуг
-     * @param suppliesInBoxService сервис расходных материалов в боксе
-     * @param priceListService сервис позиций в прайс-листе
+     * @param bookingStartValidator предварительная проверка возможности начать выполнение заказа
+     * @param priceMatrixService матрица цен прайс-листа
+     * @param bookingIntervalIndex индекс интервалов выполнения заказов
+     * @param boxService сервис бокса
+     * @param validator валидатор входных данных
+     * @param cleanerEarningsService сервис итогов выполненных заказов мойщиков по дням
+     * @param bookingEventService сервис рассылки изменений заказов
+     * @param bookingOccupancyService сервис расчета загруженности боксов
+     * @param clientsTransportService сервис транспорта клиентов
      */
-    public BookingService(BookingRepository bookingRepository, BookingIdSequenceService bookingIdSequenceService, ServService servService, SuppliesInBoxService suppliesInBoxService, PriceListService priceListService) {
+    public BookingService(BookingRepository bookingRepository, BookingIdSequenceService bookingIdSequenceService, ServService servService, BookingStartValidator bookingStartValidator, PriceMatrixService priceMatrixService, BookingIntervalIndex bookingIntervalIndex, BoxService boxService, Validator validator, CleanerEarningsService cleanerEarningsService, BookingEventService bookingEventService, BookingOccupancyService bookingOccupancyService, ClientsTransportService clientsTransportService) {
         this.bookingRepository = bookingRepository;
         this.bookingIdSequenceService = bookingIdSequenceService;
         this.servService = servService;
-        this.suppliesInBoxService = suppliesInBoxService;
-        this.priceListService = priceListService;
+        this.bookingStartValidator = bookingStartValidator;
+        this.priceMatrixService = priceMatrixService;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.boxService = boxService;
+        this.validator = validator;
+        this.cleanerEarningsService = cleanerEarningsService;
+        this.bookingEventService = bookingEventService;
+        this.bookingOccupancyService = bookingOccupancyService;
+        this.clientsTransportService = clientsTransportService;
     }
 
 
@@ -80,8 +151,53 @@ public class BookingService {
      * @param boxId id бокса
      * @return Список заказов
      */
-    public List<Booking> getBoxBookings(LocalDateTime startInterval, LocalDateTime endInterval, Long boxId){
-        return bookingRepository.getBoxBookings(startInterval, endInterval, boxId);
+    public List<BookingViewDTO> getBoxBookings(LocalDateTime startInterval, LocalDateTime endInterval, Long boxId){
+        return fillServices(bookingRepository.getBoxBookings(startInterval, endInterval, boxId));
+    }
+
+    /**
+     * Заполнение списков услуг заказов одним запросом на все заказы
+     * @param bookings заказы
+     * @return Те же заказы с заполненными списками услуг
+     */
+    private List<BookingViewDTO> fillServices(List<BookingViewDTO> bookings){
+        if(bookings.isEmpty()){
+            return bookings;
+        }
+        Map<String, BookingViewDTO> bookingsById = new HashMap<>();
+        bookings.forEach(b -> bookingsById.put(b.getBkId(), b));
+        Map<String, Map<String, BookingViewDTO.ServiceView>> services = new HashMap<>();
+        for(Object[] row : bookingRepository.findServicesOfBookings(bookingsById.keySet())){
+            String bkId = (String) row[0];
+            String servName = (String) row[1];
+            BookingViewDTO.ServiceView service = services.computeIfAbsent(bkId, k -> new LinkedHashMap<>()).computeIfAbsent(servName, k -> {
+                BookingViewDTO.ServiceView view = new BookingViewDTO.ServiceView(servName, new ArrayList<>());
+                bookingsById.get(bkId).getServices().add(view);
+                return view;
+            });
+            if(row[2] != null){
+                service.getCategoriesOfSupplies().add(new BookingViewDTO.CategoryOfSuppliesView((String) row[2], (UnitOfMeasure) row[3]));
+            }
+        }
+        return bookings;
+    }
+
+    /**
+     * Получение табло заказов за день: заказы всех боксов и мойщики, работающие в боксах в этот день
+     * @param date день
+     * @return Список боксов, упорядоченный по id бокса
+     */
+    public List<DayBoardBoxDTO> getDayBoard(LocalDate date){
+        Map<Long, DayBoardBoxDTO> boxes = new LinkedHashMap<>();
+        Set<String> addedBkIds = new HashSet<>();
+        for(DayBoardRowDTO row : bookingRepository.findDayBoard(date, date.atStartOfDay(), date.plusDays(1).atStartOfDay())){
+            DayBoardBoxDTO box = boxes.computeIfAbsent(row.getBoxId(), k -> new DayBoardBoxDTO(row.getBoxId(), row.getBoxStatus(), row.getClrId(), row.getClrSurname(), row.getClrName(), row.getClrPatronymic(), new ArrayList<>()));
+            if(row.getBkId() != null && addedBkIds.add(row.getBkId())){
+                box.getBookings().add(new DayBoardBookingDTO(row.getBkId(), row.getBkStatus(), row.getBkStartTime(), row.getBkEndTime(), row.getBkPrice(),
+                        row.getClTrStateNumber(), row.getTrMark(), row.getTrModel(), row.getClSurname(), row.getClName(), row.getClPhone()));
+            }
+        }
+        return new ArrayList<>(boxes.values());
     }
 
     /**
@@ -91,6 +207,191 @@ public class BookingService {
      */
     @Transactional
     public Booking create(@Valid BookingDTO booking) {
+        loadClientTransport(booking);
+        checkNewBooking(booking);
+        lockBoxesAndStateNumbers(List.of(booking.getBox().getBoxId()), List.of(booking.getClientTransport().getClTrStateNumber()));
+        Optional<BookingIntervalDTO> crossedBooking = findCrossedBooking(booking.getBkStartTime().withSecond(0).withNano(0), booking.getBkEndTime().withSecond(0).withNano(0), booking.getBox().getBoxId(), null);
+        if(crossedBooking.isPresent()){
+            throw new IllegalArgumentException("Формируемый заказ пересекается по времени с заказом " + crossedBooking.get().getBkId());
+        }
+
+        Booking createdBooking = new Booking();
+        createdBooking.setBkStartTime(booking.getBkStartTime());
+        createdBooking.setBkEndTime(booking.getBkEndTime());
+        createdBooking.setClientTransport(booking.getClientTransport());
+        createdBooking.setBox(booking.getBox());
+        createdBooking.setBkStatus(BookingStatus.BOOKED);
+        Optional<BookingIntervalDTO> otherBookingOptional = findBookingOfTransportInSameTime(createdBooking.getBkStartTime(), createdBooking.getBkEndTime(), createdBooking.getClientTransport().getClTrStateNumber(), null);
+        if(otherBookingOptional.isPresent()){
+            BookingIntervalDTO otherBookingInSameTime = otherBookingOptional.get();
+            throw new IllegalArgumentException(String.format("Нельзя сформировать заказ, так как он пересекается по времени с заказом %s (бокс №%d, время начала %s, время окончания %s ), " +
+                    "у которого указан транспорт с гос.номером %s и статус входит в следующий список: бронь, выполняется, выполнен, не выполнен",otherBookingInSameTime.getBkId(), otherBookingInSameTime.getBoxId(), otherBookingInSameTime.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getClTrStateNumber()));
+        }
+
+//        if(booking.getServices().isEmpty()){
+//            throw new IllegalArgumentException("Необходимо указать услуги для выполнения");
+//        } есть проверка в сущности
+        createdBooking.setServices(getServicesOfBooking(booking.getServices()));
+        createdBooking.setBkPrice(getBookingQuote(createdBooking.getClientTransport(), booking.getServices()).getDiscountedPrice());
+        createdBooking.setBkId(bookingIdSequenceService.generateId());
+        bookingRepository.save(createdBooking);
+        bookingIntervalIndex.update(createdBooking);
+        bookingEventService.created(createdBooking);
+        bookingOccupancyService.evict(createdBooking.getBkStartTime(), createdBooking.getBkEndTime());
+
+        return createdBooking;
+    }
+
+    /**
+     * Пакетное создание заказов.
+     * Заказы проверяются на пересечение с существующими заказами и друг с другом по данным, полученным
+     * несколькими запросами на весь пакет, и сохраняются в одной транзакции.
+     * Заказы, не прошедшие проверку, не создаются и не мешают созданию остальных
+     * @param bookings список данных о заказах
+     * @return Список результатов создания заказов в порядке их следования в пакете
+     */
+    @Transactional
+    public List<BookingBatchResultDTO> createBatch(List<BookingDTO> bookings) {
+        int maxSize = Integer.parseInt(environment.getProperty("BOOKING_BATCH_MAX_SIZE"));
+        if(bookings.isEmpty()){
+            throw new IllegalArgumentException("Необходимо указать заказы");
+        }
+        if(bookings.size() > maxSize){
+            throw new IllegalArgumentException("Максимальное количество заказов в пакете = " + maxSize);
+        }
+
+        Map<Long, ClientsTransport> clientsTransports = clientsTransportService.getByIds(bookings.stream()
+                .filter(b -> b != null && b.getClientTransport() != null && b.getClientTransport().getClTrId() != null)
+                .map(b -> b.getClientTransport().getClTrId())
+                .collect(Collectors.toSet()));
+        List<BookingBatchResultDTO> results = new ArrayList<>();
+        List<BookingDTO> checkedBookings = new ArrayList<>();
+        for(int i = 0; i < bookings.size(); i++){
+            BookingDTO booking = bookings.get(i);
+            BookingBatchResultDTO result = new BookingBatchResultDTO(i + 1, null, null);
+            results.add(result);
+            Set<ConstraintViolation<BookingDTO>> violations = booking == null ? Set.of() : validator.validate(booking);
+            if(booking == null){
+                result.setError("Отсутствуют данные о заказе");
+            }else if(!violations.isEmpty()){
+                result.setError(violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; ")));
+            }else if(!clientsTransports.containsKey(booking.getClientTransport().getClTrId())){
+                result.setError("Транспорт клиента не существует в базе данных");
+            }else{
+                try{
+                    booking.setClientTransport(clientsTransports.get(booking.getClientTransport().getClTrId()));
+                    checkNewBooking(booking);
+                    checkedBookings.add(booking);
+                }catch (IllegalArgumentException e){
+                    result.setError(e.getMessage());
+                }
+            }
+        }
+
+        Map<Long, List<BookingIntervalDTO>> boxBookings = new HashMap<>();
+        Map<String, List<BookingIntervalDTO>> transportBookings = new HashMap<>();
+        Map<String, ru.pin120.carwashAPI.models.Service> services = new HashMap<>();
+        if(!checkedBookings.isEmpty()){
+            LocalDateTime startInterval = checkedBookings.stream().map(BookingDTO::getBkStartTime).min(Comparator.naturalOrder()).get();
+            LocalDateTime endInterval = checkedBookings.stream().map(BookingDTO::getBkEndTime).max(Comparator.naturalOrder()).get();
+            Set<Long> boxIds = checkedBookings.stream().map(b -> b.getBox().getBoxId()).collect(Collectors.toSet());
+            Set<String> stateNumbers = checkedBookings.stream().map(b -> b.getClientTransport().getClTrStateNumber()).collect(Collectors.toSet());
+            Set<String> servNames = checkedBookings.stream().flatMap(b -> b.getServices().stream()).map(ServiceWithPriceListDTO::getServName).collect(Collectors.toSet());
+
+            // заказы пакета проверяются по базе данных под блокировками, так как индекс интервалов не видит незафиксированных изменений
+            lockBoxesAndStateNumbers(boxIds, stateNumbers);
+            bookingRepository.findIntervalsInBoxes(startInterval, endInterval, boxIds, BookingIntervalIndex.ACTIVE_STATUSES)
+                    .forEach(i -> boxBookings.computeIfAbsent(i.getBoxId(), k -> new ArrayList<>()).add(i));
+            bookingRepository.findIntervalsOfTransports(startInterval, endInterval, stateNumbers, BookingIntervalIndex.ACTIVE_STATUSES)
+                    .forEach(i -> transportBookings.computeIfAbsent(i.getClTrStateNumber(), k -> new ArrayList<>()).add(i));
+            servService.getByServNames(servNames).forEach(service -> services.put(service.getServName(), service));
+        }
+
+        List<Booking> createdBookings = new ArrayList<>();
+        List<BookingBatchResultDTO> createdResults = new ArrayList<>();
+        int checkedIndex = 0;
+        for(BookingBatchResultDTO result: results){
+            if(result.getError() != null){
+                continue;
+            }
+            BookingDTO booking = checkedBookings.get(checkedIndex++);
+            LocalDateTime bkStartTime = booking.getBkStartTime();
+            LocalDateTime bkEndTime = booking.getBkEndTime();
+            String stateNumber = booking.getClientTransport().getClTrStateNumber();
+
+            Optional<BookingIntervalDTO> crossedBooking = boxBookings.getOrDefault(booking.getBox().getBoxId(), List.of()).stream()
+                    .filter(i -> !bkStartTime.isAfter(i.getBkEndTime()) && !bkEndTime.isBefore(i.getBkStartTime()))
+                    .findFirst();
+            if(crossedBooking.isPresent()){
+                result.setError("Формируемый заказ пересекается по времени с заказом " + crossedBooking.get().getBkId());
+                continue;
+            }
+            Optional<BookingIntervalDTO> otherBookingOptional = transportBookings.getOrDefault(stateNumber, List.of()).stream()
+                    .filter(i -> !bkStartTime.isAfter(i.getBkEndTime()) && !bkEndTime.isBefore(i.getBkStartTime()))
+                    .findFirst();
+            if(otherBookingOptional.isPresent()){
+                BookingIntervalDTO otherBookingInSameTime = otherBookingOptional.get();
+                result.setError(String.format("Нельзя сформировать заказ, так как он пересекается по времени с заказом %s (бокс №%d, время начала %s, время окончания %s ), " +
+                        "у которого указан транспорт с гос.номером %s и статус входит в следующий список: бронь, выполняется, выполнен, не выполнен",otherBookingInSameTime.getBkId(), otherBookingInSameTime.getBoxId(), otherBookingInSameTime.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getClTrStateNumber()));
+                continue;
+            }
+            Optional<String> missingServName = booking.getServices().stream()
+                    .map(ServiceWithPriceListDTO::getServName)
+                    .filter(servName -> !services.containsKey(servName))
+                    .findFirst();
+            if(missingServName.isPresent()){
+                result.setError("В базе данных отсутствует услуга " + missingServName.get());
+                continue;
+            }
+            PriceQuoteDTO quote = getQuote(booking.getClientTransport().getTransport().getCategoryOfTransport().getCatTrId(),
+                    booking.getServices().stream().map(ServiceWithPriceListDTO::getServName).toList(),
+                    booking.getClientTransport().getClient().getClDiscount());
+            if(!quote.isAvailable()){
+                result.setError(String.format("Для категории транспорта %s отсутствует возможность выполнения услуги %s", booking.getClientTransport().getTransport().getCategoryOfTransport().getCatTrName(), quote.getUnavailableServices().get(0)));
+                continue;
+            }
+
+            Booking createdBooking = new Booking();
+            createdBooking.setBkStartTime(bkStartTime);
+            createdBooking.setBkEndTime(bkEndTime);
+            createdBooking.setClientTransport(booking.getClientTransport());
+            createdBooking.setBox(booking.getBox());
+            createdBooking.setBkStatus(BookingStatus.BOOKED);
+            createdBooking.setServices(new ArrayList<>());
+            for (ServiceWithPriceListDTO serviceDTO: booking.getServices()){
+                createdBooking.getServices().add(services.get(serviceDTO.getServName()));
+            }
+            createdBooking.setBkPrice(quote.getDiscountedPrice());
+            createdBookings.add(createdBooking);
+            createdResults.add(result);
+
+            // заказ учитывается при проверке следующих заказов пакета
+            BookingIntervalDTO interval = new BookingIntervalDTO("в позиции " + result.getPosition() + " пакета", booking.getBox().getBoxId(), booking.getClientTransport().getClTrId(), stateNumber, bkStartTime, bkEndTime);
+            boxBookings.computeIfAbsent(interval.getBoxId(), k -> new ArrayList<>()).add(interval);
+            transportBookings.computeIfAbsent(stateNumber, k -> new ArrayList<>()).add(interval);
+        }
+
+        if(!createdBookings.isEmpty()){
+            List<String> ids = bookingIdSequenceService.generateIds(createdBookings.size());
+            for(int i = 0; i < createdBookings.size(); i++){
+                createdBookings.get(i).setBkId(ids.get(i));
+                createdResults.get(i).setBooking(createdBookings.get(i));
+            }
+            bookingRepository.saveAll(createdBookings);
+            createdBookings.forEach(bookingIntervalIndex::update);
+            createdBookings.forEach(bookingEventService::created);
+            createdBookings.forEach(b -> bookingOccupancyService.evict(b.getBkStartTime(), b.getBkEndTime()));
+        }
+
+        return results;
+    }
+
+    /**
+     * Проверка времени выполнения и бокса создаваемого заказа
+     * @param booking данные о заказе
+     * @throws IllegalArgumentException если заказ нельзя сформировать
+     */
+    private void checkNewBooking(BookingDTO booking) {
         LocalTime startWorkTime = LocalTime.parse(environment.getProperty("START_WORK_TIME"));
         LocalTime endWorkTime = LocalTime.parse(environment.getProperty("END_WORK_TIME"));
 
@@ -121,50 +422,245 @@ public class BookingService {
         if(booking.getBox().getBoxStatus() == BoxStatus.CLOSED){
             throw new IllegalArgumentException(String.format("Нельзя сформировать заказ, так как бокс %d закрыт", booking.getBox().getBoxId()));
         }
+    }
 
-        Booking createdBooking = new Booking();
-        createdBooking.setBkStartTime(booking.getBkStartTime());
-        createdBooking.setBkEndTime(booking.getBkEndTime());
-        createdBooking.setClientTransport(booking.getClientTransport());
-        createdBooking.setBox(booking.getBox());
-        createdBooking.setBkStatus(BookingStatus.BOOKED);
-        List<Booking> otherBookingsInSameTime = bookingRepository.notNegativeBookingsOfTransportInIntervalTime(createdBooking.getBkStartTime(), createdBooking.getBkEndTime(), createdBooking.getClientTransport().getClTrStateNumber(), List.of(BookingStatus.CANCELLED));
-        if(!otherBookingsInSameTime.isEmpty()){
-            Booking otherBookingInSameTime = otherBookingsInSameTime.get(0);
-            throw new IllegalArgumentException(String.format("Нельзя сформировать заказ, так как он пересекается по времени с заказом %s (бокс №%d, время начала %s, время окончания %s ), " +
-                    "у которого указан транспорт с гос.номером %s и статус входит в следующий список: бронь, выполняется, выполнен, не выполнен",otherBookingInSameTime.getBkId(), otherBookingInSameTime.getBox().getBoxId(), otherBookingInSameTime.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getClientTransport().getClTrStateNumber()));
+    /**
+     * Получение транзакционных блокировок боксов и госномеров, чтобы проверка пересечений и сохранение заказов
+     * не выполнялись одновременно в нескольких транзакциях, в том числе на разных экземплярах приложения.
+     * Все блокировки берутся одним запросом по возрастанию ключа, что исключает взаимные блокировки.
+     * Старшие 32 бита ключа содержат класс блокируемого объекта, младшие - хэш id бокса или госномера
+     * @param boxIds id боксов
+     * @param stateNumbers госномера
+     */
+    private void lockBoxesAndStateNumbers(Collection<Long> boxIds, Collection<String> stateNumbers){
+        List<Long> keys = Stream.concat(
+                boxIds.stream().map(boxId -> lockKey(BOX_LOCK_CLASS, Long.hashCode(boxId))),
+                stateNumbers.stream().map(stateNumber -> lockKey(STATE_NUMBER_LOCK_CLASS, ClientsTransport.normalizeStateNumber(stateNumber).hashCode()))
+        ).distinct().sorted().toList();
+        if(!keys.isEmpty()){
+            bookingRepository.advisoryXactLocks(keys);
         }
+    }
 
-        int price = 0;
-//        if(booking.getServices().isEmpty()){
-//            throw new IllegalArgumentException("Необходимо указать услуги для выполнения");
-//        } есть проверка в сущности
-        createdBooking.setServices(new ArrayList<>());
-        for (ServiceWithPriceListDTO serviceDTO: booking.getServices()){
-            Optional<ru.pin120.carwashAPI.models.Service> serviceOptional = servService.getByServName(serviceDTO.getServName());
-            if(serviceOptional.isEmpty()){
-                throw new IllegalArgumentException("В базе данных отсутствует услуга " + serviceDTO.getServName());
+    /**
+     * Получение ключа рекомендательной блокировки
+     * @param lockClass класс блокируемого объекта
+     * @param hash хэш блокируемого объекта
+     * @return Ключ блокировки
+     */
+    private static long lockKey(int lockClass, int hash){
+        return ((long) lockClass << 32) | (hash & 0xffffffffL);
+    }
+
+    /**
+     * Поиск заказа бокса со статусом "Бронь", "Выполняется", "Выполнен" или "Не выполнен", пересекающегося по времени с указанным интервалом.
+     * Проверка всегда выполняется запросом к базе данных, так как индекс интервалов обновляется после фиксации транзакций
+     * и не содержит изменений других экземпляров приложения. Запрос возвращает не более одного интервала
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param boxId id бокса
+     * @param excludedBkId номер заказа, который не учитывается при поиске (может быть null)
+     * @return Объект Optional с пересекающимся заказом, если он существует
+     */
+    private Optional<BookingIntervalDTO> findCrossedBooking(LocalDateTime startInterval, LocalDateTime endInterval, Long boxId, String excludedBkId){
+        return bookingRepository.findCrossedIntervalsInBox(startInterval, endInterval, boxId, excludedBkId == null ? "" : excludedBkId,
+                BookingIntervalIndex.ACTIVE_STATUSES, PageRequest.of(0, 1)).stream().findFirst();
+    }
+
+    /**
+     * Поиск заказа транспорта с указанным госномером, который не отменен и пересекается по времени с указанным интервалом.
+     * Проверка всегда выполняется запросом к базе данных, запрос возвращает не более одного интервала
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param stateNumber госномер транспорта
+     * @param excludedBkId номер заказа, который не учитывается при поиске (может быть null)
+     * @return Объект Optional с пересекающимся заказом, если он существует
+     */
+    private Optional<BookingIntervalDTO> findBookingOfTransportInSameTime(LocalDateTime startInterval, LocalDateTime endInterval, String stateNumber, String excludedBkId){
+        return bookingRepository.findCrossedIntervalsOfTransport(startInterval, endInterval, stateNumber, excludedBkId == null ? "" : excludedBkId,
+                BookingIntervalIndex.ACTIVE_STATUSES, PageRequest.of(0, 1)).stream().findFirst();
+    }
+
+    /**
+     * Получение количества свободного времени, возвращаемого по умолчанию при поиске
+     * @return Количество свободного времени
+     */
+    public int getDefaultCountFreeSlots(){
+        return Integer.parseInt(environment.getProperty("COUNT_FREE_SLOTS"));
+    }
+
+    /**
+     * Поиск ближайшего свободного времени во всех незакрытых боксах для выполнения указанных услуг.
+     * Длительность заказа определяется по времени выполнения услуг в прайс-листе для категории транспорта,
+     * для каждого промежутка между заказами бокса в рабочее время предлагается одно свободное время
+     * @param catTrId id категории транспорта
+     * @param stateNumber госномер транспорта клиента, заказы которого также учитываются (может быть null)
+     * @param servNames названия услуг
+     * @param startDate начальный день поиска
+     * @param endDate конечный день поиска
+     * @param count максимальное количество найденного свободного времени
+     * @return Список свободного времени, упорядоченный по времени начала и номеру бокса
+     * @throws IllegalArgumentException если не указаны услуги, количество не больше 0 или конечный день раньше начального
+     */
+    public List<FreeSlotDTO> getFreeSlots(Long catTrId, String stateNumber, List<String> servNames, LocalDate startDate, LocalDate endDate, int count){
+        LocalTime startWorkTime = LocalTime.parse(environment.getProperty("START_WORK_TIME"));
+        LocalTime endWorkTime = LocalTime.parse(environment.getProperty("END_WORK_TIME"));
+
+        if(servNames == null || servNames.isEmpty()){
+            throw new IllegalArgumentException("Необходимо указать услуги");
+        }
+        if(count <= 0){
+            throw new IllegalArgumentException("Количество свободного времени должно быть больше 0");
+        }
+        if(endDate.isBefore(startDate)){
+            throw new IllegalArgumentException("Конечный день поиска не может быть раньше начального");
+        }
+        PriceQuoteDTO quote = getQuote(catTrId, new ArrayList<>(new LinkedHashSet<>(servNames)), 0);
+        if(!quote.isAvailable()){
+            throw new IllegalArgumentException("Для указанной категории транспорта отсутствует возможность выполнения услуги " + quote.getUnavailableServices().get(0));
+        }
+        int duration = quote.getTime();
+
+        LocalDateTime now = LocalDateTime.now().withSecond(0).withNano(0).plusMinutes(1);
+        if(startDate.isBefore(now.toLocalDate())){
+            startDate = now.toLocalDate();
+        }
+        LocalDateTime searchStart = startDate.atTime(startWorkTime);
+        LocalDateTime searchEnd = endDate.atTime(endWorkTime);
+        if(searchEnd.isBefore(searchStart)){
+            return new ArrayList<>();
+        }
+
+        List<BookingIntervalDTO> transportBookings = new ArrayList<>();
+        if(stateNumber != null){
+            transportBookings = bookingIntervalIndex.isReady()
+                    ? bookingIntervalIndex.getCrossedOfTransport(searchStart, searchEnd, stateNumber)
+                    : bookingRepository.findIntervalsOfTransports(searchStart, searchEnd, List.of(stateNumber), BookingIntervalIndex.ACTIVE_STATUSES);
+        }
+
+        List<FreeSlotDTO> freeSlots = new ArrayList<>();
+        for(Box box: boxService.getAvailable()){
+            List<BookingIntervalDTO> busy = new ArrayList<>(transportBookings);
+            if(bookingIntervalIndex.isReady()){
+                busy.addAll(bookingIntervalIndex.getCrossedInBox(searchStart, searchEnd, box.getBoxId()));
             }else{
-//                ru.pin120.carwashAPI.models.Service service = serviceOptional.get();
-//                if(service.getCategoriesOfSupplies().isEmpty()){
-//                    throw new IllegalArgumentException(String.format("Услуге %s необходимо указать необходимую для выполнения категорию автомоечных средств", service.getServName()));
-//                }
-                createdBooking.getServices().add(serviceOptional.get());
-                price+=serviceDTO.getPlPrice();
+                busy.addAll(bookingRepository.findIntervalsInBoxes(searchStart, searchEnd, List.of(box.getBoxId()), BookingIntervalIndex.ACTIVE_STATUSES));
+            }
+            busy.sort(Comparator.comparing(BookingIntervalDTO::getBkStartTime));
+
+            int boxSlots = 0;
+            int busyIndex = 0;
+            for(LocalDate day = startDate; !day.isAfter(endDate) && boxSlots < count; day = day.plusDays(1)){
+                LocalDateTime dayEnd = day.atTime(endWorkTime);
+                LocalDateTime cursor = day.atTime(startWorkTime);
+                if(cursor.isBefore(now)){
+                    cursor = now;
+                }
+                while(busyIndex < busy.size() && busy.get(busyIndex).getBkEndTime().isBefore(cursor)){
+                    busyIndex++;
+                }
+                // заказы считаются пересекающимися и при совпадении границ, поэтому свободное время отделяется от них минутой
+                for(int i = busyIndex; i < busy.size() && boxSlots < count; i++){
+                    BookingIntervalDTO interval = busy.get(i);
+                    if(interval.getBkStartTime().isAfter(dayEnd)){
+                        break;
+                    }
+                    if(cursor.plusMinutes(duration).isBefore(interval.getBkStartTime())){
+                        freeSlots.add(new FreeSlotDTO(box.getBoxId(), cursor, cursor.plusMinutes(duration)));
+                        boxSlots++;
+                    }
+                    if(!interval.getBkEndTime().isBefore(cursor)){
+                        cursor = interval.getBkEndTime().plusMinutes(1);
+                    }
+                }
+                if(boxSlots < count && !cursor.plusMinutes(duration).isAfter(dayEnd)){
+                    freeSlots.add(new FreeSlotDTO(box.getBoxId(), cursor, cursor.plusMinutes(duration)));
+                    boxSlots++;
+                }
             }
         }
-        createdBooking.setBkPrice(calculatePrice(price, createdBooking.getClientTransport().getClient().getClDiscount()));
-        createdBooking.setBkId(bookingIdSequenceService.generateId());
-        bookingRepository.save(createdBooking);
 
-        return createdBooking;
+        return freeSlots.stream()
+                .sorted(Comparator.comparing(FreeSlotDTO::getStartTime).thenComparing(FreeSlotDTO::getBoxId))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Расчёт стоимости и времени выполнения услуг для категории транспорта по матрице цен прайс-листа
+     * @param catTrId id категории транспорта
+     * @param servNames названия услуг
+     * @param discount скидка
+     * @return Стоимость без учёта и с учётом скидки, время выполнения и список услуг, которые нельзя выполнить для категории транспорта
+     */
+    public PriceQuoteDTO getQuote(Long catTrId, List<String> servNames, int discount){
+        if(discount < 0 || discount > 100){
+            throw new IllegalArgumentException("Скидка должна быть в диапазоне от 0 до 100");
+        }
+        PriceQuoteDTO quote = new PriceQuoteDTO();
+        quote.setCatTrId(catTrId);
+        quote.setDiscount(discount);
+        for(String servName : servNames){
+            Optional<ServiceWithPriceListDTO> position = priceMatrixService.get(catTrId, servName);
+            if(position.isEmpty()){
+                quote.getUnavailableServices().add(servName);
+            }else{
+                quote.getServices().add(position.get());
+                quote.setPrice(quote.getPrice() + position.get().getPlPrice());
+                quote.setTime(quote.getTime() + position.get().getPlTime());
+            }
+        }
+        quote.setDiscountedPrice(calculatePrice(quote.getPrice(), discount));
+        return quote;
     }
 
-    public List<Booking> getCrossedBookings(LocalDateTime startInterval, LocalDateTime endInterval, Long boxId){
-        startInterval = startInterval.withSecond(0).withNano(0);
-        endInterval = endInterval.withSecond(0).withNano(0);
+    /**
+     * Замена переданных данных о транспорте клиента на данные из базы данных, чтобы категория транспорта, скидка клиента
+     * и госномер, по которым проверяется и рассчитывается заказ, не зависели от тела запроса
+     * @param booking данные о заказе
+     */
+    private void loadClientTransport(BookingDTO booking){
+        Long clTrId = booking.getClientTransport().getClTrId();
+        Optional<ClientsTransport> clientTransport = clTrId == null ? Optional.empty() : clientsTransportService.findById(clTrId);
+        if(clientTransport.isEmpty()){
+            throw new IllegalArgumentException("Транспорт клиента не существует в базе данных");
+        }
+        booking.setClientTransport(clientTransport.get());
+    }
+
+    /**
+     * Расчёт стоимости заказа для транспорта клиента. Стоимость услуг берётся из прайс-листа, а не из переданных данных
+     * @param clientTransport транспорт клиента
+     * @param services услуги заказа
+     * @return Расчёт стоимости заказа
+     */
+    private PriceQuoteDTO getBookingQuote(ClientsTransport clientTransport, List<ServiceWithPriceListDTO> services){
+        CategoryOfTransport categoryOfTransport = clientTransport.getTransport().getCategoryOfTransport();
+        PriceQuoteDTO quote = getQuote(categoryOfTransport.getCatTrId(), services.stream().map(ServiceWithPriceListDTO::getServName).toList(), clientTransport.getClient().getClDiscount());
+        if(!quote.isAvailable()){
+            throw new IllegalArgumentException(String.format("Для категории транспорта %s отсутствует возможность выполнения услуги %s", categoryOfTransport.getCatTrName(), quote.getUnavailableServices().get(0)));
+        }
+        return quote;
+    }
 
-        return bookingRepository.getCrossedBookings(startInterval, endInterval, boxId, Arrays.asList(BookingStatus.BOOKED, BookingStatus.IN_PROGRESS, BookingStatus.DONE, BookingStatus.NOT_DONE));
+    /**
+     * Получение услуг заказа одним запросом
+     * @param services услуги заказа
+     * @return Список услуг в порядке их указания в заказе
+     */
+    private List<ru.pin120.carwashAPI.models.Service> getServicesOfBooking(List<ServiceWithPriceListDTO> services){
+        Map<String, ru.pin120.carwashAPI.models.Service> existedServices = new HashMap<>();
+        servService.getByServNames(services.stream().map(ServiceWithPriceListDTO::getServName).collect(Collectors.toSet()))
+                .forEach(service -> existedServices.put(service.getServName(), service));
+        List<ru.pin120.carwashAPI.models.Service> result = new ArrayList<>();
+        for (ServiceWithPriceListDTO serviceDTO: services){
+            ru.pin120.carwashAPI.models.Service service = existedServices.get(serviceDTO.getServName());
+            if(service == null){
+                throw new IllegalArgumentException("В базе данных отсутствует услуга " + serviceDTO.getServName());
+            }
+            result.add(service);
+        }
+        return result;
     }
 
     /**
@@ -194,6 +690,7 @@ public class BookingService {
      */
     @Transactional
     public void newStatus(BookingDTO bookingDTO, Booking existedBooking) {
+        CleanerEarningsService.EarningState earningBefore = cleanerEarningsService.stateOf(existedBooking);
         switch (bookingDTO.getBkStatus()){
             case CANCELLED:
                 if(existedBooking.getBkStatus() != BookingStatus.BOOKED){
@@ -207,45 +704,11 @@ public class BookingService {
                     throw new IllegalArgumentException("Изменить статус на \"Выполняется\" можно только заказу со статусом \"Бронь\"");
                 }
                 else{
-                    if(existedBooking.getBox().getBoxStatus() == BoxStatus.CLOSED){
-                        throw new IllegalArgumentException("Невозможно начать выполнение заказа, так как закрыт бокс №" + existedBooking.getBox().getBoxId());
-                    }
-                    LocalDateTime nowTime = LocalDateTime.now().withSecond(0).withNano(0);
-                    if(nowTime.isBefore(existedBooking.getBkStartTime()) || nowTime.isAfter(existedBooking.getBkEndTime())) {
-                        throw new IllegalArgumentException(String.format("Изменить статус заказа можно только в следующее время: %s-%s", existedBooking.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), existedBooking.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"))));
-                    }
-
-                    List<Booking> notEndedBookings = bookingRepository.findNotEndedBookingsInBox(existedBooking.getBkStartTime(), List.of(BookingStatus.BOOKED, BookingStatus.IN_PROGRESS), existedBooking.getBox().getBoxId());
-                    if(!notEndedBookings.isEmpty()){
-                        Booking notEndedBooking = notEndedBookings.get(0);
-                        String notEndedBookingStatus = notEndedBooking.getBkStatus() == BookingStatus.BOOKED ? "\"Бронь\"" : "\"Выполняется\"";
-                        throw new IllegalArgumentException(String.format("Невозможно начать выполнение заказа, так как есть незавершенный заказ, со статусом %s (заказ №%s c интервалом выполнения %s-%s)",notEndedBookingStatus, notEndedBooking.getBkId(), notEndedBooking.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), notEndedBooking.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"))));
-                    }
-
-                    WorkSchedule workSchedule = existedBooking.getBox().getWorkSchedules().stream()
-                            .filter(w->w.getWsWorkDay().equals(existedBooking.getBkStartTime().toLocalDate()))
-                            .findFirst()
-                            .orElse(null);
-
-                    if(workSchedule == null){
-                        throw new IllegalArgumentException(String.format("Невозможно начать выполнение заказа, так как в боксе №%d отсутствует мойщик", existedBooking.getBox().getBoxId()));
-                    }else{
-                        existedBooking.setCleaner(workSchedule.getCleaner());
-                    }
-
-                    CategoryOfTransport categoryOfTransport = existedBooking.getClientTransport().getTransport().getCategoryOfTransport();
-                    for(ru.pin120.carwashAPI.models.Service service: existedBooking.getServices()){
-                        if(!priceListService.existPriceListPosition(categoryOfTransport.getCatTrId(), service.getServName())){
-                            throw new IllegalArgumentException(String.format("Нельзя начать выполнение заказа, так как в настоящее время для категории транспорта %s отсутствует возможность выполнения услуги %s", categoryOfTransport.getCatTrName(), service.getServName()));
-                        }
-                        List<CategoryOfSupplies> categoriesOfSupplies = service.getCategoriesOfSupplies();
-                        for (CategoryOfSupplies category : categoriesOfSupplies) {
-                            List<SuppliesInBox> suppliesInBox = suppliesInBoxService.getListExistingSuppliesCertainCategory(existedBooking.getBox().getBoxId(), category.getCSupName());
-                            if (suppliesInBox.isEmpty()) {
-                                throw new IllegalArgumentException("В боксе отсутствует расходный материал категории " + category.getCSupName());
-                            }
-                        }
+                    BookingStartCheckDTO startCheck = bookingStartValidator.check(existedBooking);
+                    if(!startCheck.isSuccess()){
+                        throw new IllegalArgumentException(String.join("\n", startCheck.getErrors()));
                     }
+                    existedBooking.setCleaner(startCheck.getCleaner());
                 }
                 existedBooking.setBkStatus(BookingStatus.IN_PROGRESS);
                 break;
@@ -257,15 +720,16 @@ public class BookingService {
 //                    if(now.isAfter(existedBooking.getBkEndTime())){
 //                        throw new IllegalArgumentException("Нельзя возобновлять прошедший заказ");
 //                    }
-                    List<Booking> getCrossedBookings = bookingRepository.getCrossedBookingsWithoutCurrent(existedBooking.getBkStartTime(), existedBooking.getBkEndTime(), existedBooking.getBox().getBoxId(), existedBooking.getBkId(),Arrays.asList(BookingStatus.BOOKED, BookingStatus.IN_PROGRESS, BookingStatus.DONE, BookingStatus.NOT_DONE));
-                    if(!getCrossedBookings.isEmpty()){
-                        throw new IllegalArgumentException("Заказ пересекается по времени с заказом " + getCrossedBookings.get(0).getBkId());
+                    lockBoxesAndStateNumbers(List.of(existedBooking.getBox().getBoxId()), List.of(existedBooking.getClientTransport().getClTrStateNumber()));
+                    Optional<BookingIntervalDTO> crossedBooking = findCrossedBooking(existedBooking.getBkStartTime(), existedBooking.getBkEndTime(), existedBooking.getBox().getBoxId(), existedBooking.getBkId());
+                    if(crossedBooking.isPresent()){
+                        throw new IllegalArgumentException("Заказ пересекается по времени с заказом " + crossedBooking.get().getBkId());
                     }
-                    List<Booking> otherBookingsInSameTime = bookingRepository.notNegativeBookingsOfTransportInIntervalTime(existedBooking.getBkStartTime(), existedBooking.getBkEndTime(), existedBooking.getClientTransport().getClTrStateNumber(), existedBooking.getBkId(), List.of(BookingStatus.CANCELLED));
-                    if(!otherBookingsInSameTime.isEmpty()){
-                        Booking otherBookingInSameTime = otherBookingsInSameTime.get(0);
+                    Optional<BookingIntervalDTO> otherBookingOptional = findBookingOfTransportInSameTime(existedBooking.getBkStartTime(), existedBooking.getBkEndTime(), existedBooking.getClientTransport().getClTrStateNumber(), existedBooking.getBkId());
+                    if(otherBookingOptional.isPresent()){
+                        BookingIntervalDTO otherBookingInSameTime = otherBookingOptional.get();
                         throw new IllegalArgumentException(String.format("Нельзя сформировать заказ, так как он пересекается по времени с заказом %s (бокс №%d, время начала %s, время окончания %s ), " +
-                                "у которого указан транспорт с гос.номером %s и статус входит в следующий список: бронь, выполняется, выполнен, не выполнен",otherBookingInSameTime.getBkId(), otherBookingInSameTime.getBox().getBoxId(), otherBookingInSameTime.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getClientTransport().getClTrStateNumber()));
+                                "у которого указан транспорт с гос.номером %s и статус входит в следующий список: бронь, выполняется, выполнен, не выполнен",otherBookingInSameTime.getBkId(), otherBookingInSameTime.getBoxId(), otherBookingInSameTime.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getClTrStateNumber()));
                     }
                     existedBooking.setBkStatus(BookingStatus.BOOKED);
 
@@ -296,7 +760,47 @@ public class BookingService {
         }
 
         bookingRepository.save(existedBooking);
+        bookingIntervalIndex.update(existedBooking);
+        cleanerEarningsService.apply(earningBefore, cleanerEarningsService.stateOf(existedBooking));
+        bookingEventService.statusChanged(existedBooking);
+        bookingOccupancyService.evict(existedBooking.getBkStartTime(), existedBooking.getBkEndTime());
+
+    }
+
+    /**
+     * Перевод порции просроченных заказов со статусами "Бронь" и "Выполняется" в статус "Не выполнен".
+     * Порция обрабатывается под транзакционной рекомендательной блокировкой, поэтому при одновременном запуске
+     * на нескольких экземплярах приложения заказы обрабатывает только один из них
+     * @param threshold время, до которого должно было закончиться выполнение заказа
+     * @param batchSize максимальное количество заказов в порции
+     * @param lockKey ключ рекомендательной блокировки
+     * @return Количество закрытых заказов или -1, если блокировку удерживает другой экземпляр приложения
+     */
+    @Transactional
+    public int closeStaleBookings(LocalDateTime threshold, int batchSize, long lockKey) {
+        if(!bookingRepository.tryAdvisoryXactLock(lockKey)){
+            return -1;
+        }
+        List<BookingStatus> statuses = List.of(BookingStatus.BOOKED, BookingStatus.IN_PROGRESS);
+        List<BookingViewDTO> staleBookings = bookingRepository.findStaleBookings(statuses, threshold, PageRequest.of(0, batchSize));
+        if(staleBookings.isEmpty()){
+            return 0;
+        }
 
+        LocalDateTime now = LocalDateTime.now().withSecond(0).withNano(0);
+        bookingRepository.closeBookings(staleBookings.stream().map(BookingViewDTO::getBkId).toList(), statuses, BookingStatus.NOT_DONE, now);
+        // статус "Не выполнен" не учитывается в итогах мойщиков, поэтому обновляются только индекс интервалов и подписчики
+        for(BookingViewDTO booking : staleBookings){
+            booking.setBkStatus(BookingStatus.NOT_DONE);
+            if(booking.getBkEndTime().isAfter(now)){
+                booking.setBkEndTime(now);
+            }
+            bookingIntervalIndex.update(booking.getBkId(), new BookingIntervalDTO(booking.getBkId(), booking.getBox().getBoxId(), booking.getClientTransport().getClTrId(),
+                    booking.getClientTransport().getClTrStateNumber(), booking.getBkStartTime(), booking.getBkEndTime()));
+            bookingEventService.statusChanged(booking);
+        }
+
+        return staleBookings.size();
     }
 
     /**
@@ -305,7 +809,11 @@ public class BookingService {
      */
     @Transactional
     public void delete(Booking existedBooking) {
+        cleanerEarningsService.apply(cleanerEarningsService.stateOf(existedBooking), null);
         bookingRepository.delete(existedBooking);
+        bookingIntervalIndex.delete(existedBooking.getBkId());
+        bookingEventService.deleted(existedBooking);
+        bookingOccupancyService.evict(existedBooking.getBkStartTime(), existedBooking.getBkEndTime());
     }
 
     /**
@@ -315,6 +823,9 @@ public class BookingService {
      */
     @Transactional
     public void edit(Booking existedBooking, BookingDTO booking) {
+        CleanerEarningsService.EarningState earningBefore = cleanerEarningsService.stateOf(existedBooking);
+        Long previousBoxId = existedBooking.getBox().getBoxId();
+        bookingOccupancyService.evict(existedBooking.getBkStartTime(), existedBooking.getBkEndTime());
         LocalTime startWorkTime = LocalTime.parse(environment.getProperty("START_WORK_TIME"));
         LocalTime endWorkTime = LocalTime.parse(environment.getProperty("END_WORK_TIME"));
 
@@ -338,44 +849,36 @@ public class BookingService {
         if(booking.getBox().getBoxStatus() == BoxStatus.CLOSED){
             throw new IllegalArgumentException(String.format("Нельзя изменить заказ, так как бокс %d закрыт", booking.getBox().getBoxId()));
         }
+        loadClientTransport(booking);
+        lockBoxesAndStateNumbers(List.of(booking.getBox().getBoxId()), List.of(booking.getClientTransport().getClTrStateNumber()));
         existedBooking.setBkStartTime(booking.getBkStartTime());
         existedBooking.setBkEndTime(booking.getBkEndTime());
         existedBooking.setClientTransport(booking.getClientTransport());
         existedBooking.setBox(booking.getBox());
         existedBooking.setBkStatus(BookingStatus.BOOKED);
 
-        List<Booking> getCrossedBookings = bookingRepository.getCrossedBookingsWithoutCurrent(existedBooking.getBkStartTime(), existedBooking.getBkEndTime(), existedBooking.getBox().getBoxId(), existedBooking.getBkId(),Arrays.asList(BookingStatus.BOOKED, BookingStatus.IN_PROGRESS, BookingStatus.DONE, BookingStatus.NOT_DONE));
-        if(!getCrossedBookings.isEmpty()){
-            throw new IllegalArgumentException("Заказ пересекается по времени с заказом " + getCrossedBookings.get(0).getBkId());
+        Optional<BookingIntervalDTO> crossedBooking = findCrossedBooking(existedBooking.getBkStartTime(), existedBooking.getBkEndTime(), existedBooking.getBox().getBoxId(), existedBooking.getBkId());
+        if(crossedBooking.isPresent()){
+            throw new IllegalArgumentException("Заказ пересекается по времени с заказом " + crossedBooking.get().getBkId());
         }
-        List<Booking> otherBookingsInSameTime = bookingRepository.notNegativeBookingsOfTransportInIntervalTime(existedBooking.getBkStartTime(), existedBooking.getBkEndTime(), existedBooking.getClientTransport().getClTrStateNumber(), existedBooking.getBkId(), List.of(BookingStatus.CANCELLED));
-        if(!otherBookingsInSameTime.isEmpty()){
-            Booking otherBookingInSameTime = otherBookingsInSameTime.get(0);
+        Optional<BookingIntervalDTO> otherBookingOptional = findBookingOfTransportInSameTime(existedBooking.getBkStartTime(), existedBooking.getBkEndTime(), existedBooking.getClientTransport().getClTrStateNumber(), existedBooking.getBkId());
+        if(otherBookingOptional.isPresent()){
+            BookingIntervalDTO otherBookingInSameTime = otherBookingOptional.get();
             throw new IllegalArgumentException(String.format("Нельзя изменить заказ, так как он пересекается по времени с заказом %s (бокс №%d, время начала %s, время окончания %s ), " +
-                    "у которого указан транспорт с гос.номером %s и статус входит в следующий список: бронь, выполняется, выполнен, не выполнен",otherBookingInSameTime.getBkId(), otherBookingInSameTime.getBox().getBoxId(), otherBookingInSameTime.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getClientTransport().getClTrStateNumber()));
+                    "у которого указан транспорт с гос.номером %s и статус входит в следующий список: бронь, выполняется, выполнен, не выполнен",otherBookingInSameTime.getBkId(), otherBookingInSameTime.getBoxId(), otherBookingInSameTime.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), otherBookingInSameTime.getClTrStateNumber()));
         }
-        int price = 0;
-        existedBooking.setServices(new ArrayList<>());
-        for (ServiceWithPriceListDTO serviceDTO: booking.getServices()){
-            Optional<ru.pin120.carwashAPI.models.Service> serviceOptional = servService.getByServName(serviceDTO.getServName());
-            if(serviceOptional.isEmpty()){
-                throw new IllegalArgumentException("В базе данных отсутствует услуга " + serviceDTO.getServName());
-            }else{
-//                ru.pin120.carwashAPI.models.Service service = serviceOptional.get();
-//                if(service.getCategoriesOfSupplies().isEmpty()){
-//                    throw new IllegalArgumentException(String.format("Услуге %s необходимо указать необходимую для выполнения категорию автомоечных средств", service.getServName()));
-//                }
-                existedBooking.getServices().add(serviceOptional.get());
-                price+=serviceDTO.getPlPrice();
-            }
-        }
-        existedBooking.setBkPrice(calculatePrice(price, existedBooking.getClientTransport().getClient().getClDiscount()));
+        existedBooking.setServices(getServicesOfBooking(booking.getServices()));
+        existedBooking.setBkPrice(getBookingQuote(existedBooking.getClientTransport(), booking.getServices()).getDiscountedPrice());
         bookingRepository.save(existedBooking);
+        bookingIntervalIndex.update(existedBooking);
+        cleanerEarningsService.apply(earningBefore, cleanerEarningsService.stateOf(existedBooking));
+        bookingEventService.edited(existedBooking, previousBoxId);
+        bookingOccupancyService.evict(existedBooking.getBkStartTime(), existedBooking.getBkEndTime());
 
     }
 
     /**
-     * Создание запроса на получение заказов
+     * Создание условия запроса на получение заказов
      * @param cleanerId id мойщика
      * @param clientId id клиента
      * @param boxId id бокса
@@ -384,11 +887,12 @@ public class BookingService {
      * @param bookingStatus статус
      * @param compareOperator оператор сравнения стоимости
      * @param price стоимость
-     * @return Запрос на получение заказов
+     * @param afterEndTime время окончания последнего заказа предыдущей страницы (может быть null)
+     * @param afterBkId номер последнего заказа предыдущей страницы (может быть null)
+     * @param parameters параметры запроса, в которые добавляются значения условия
+     * @return Условие запроса или пустая строка, если условие отсутствует
      */
-    private TypedQuery<Booking> createQuery(Long cleanerId, Long clientId, Long boxId, LocalDateTime startInterval, LocalDateTime endInterval, BookingStatus bookingStatus, String compareOperator, Integer price){
-        Map<String, Object> parameters = new HashMap<>();
-        String baseQuery = "SELECT b FROM Booking b ";
+    private String createFilter(Long cleanerId, Long clientId, Long boxId, LocalDateTime startInterval, LocalDateTime endInterval, BookingStatus bookingStatus, String compareOperator, Integer price, LocalDateTime afterEndTime, String afterBkId, Map<String, Object> parameters){
         String partQuery = "";
         if(cleanerId != null){
             partQuery = " b.cleaner.clrId = :cleanerId ";
@@ -434,6 +938,7 @@ public class BookingService {
             }
             parameters.put("status", bookingStatus);
         }
+        FilterQueryService.checkCompareOperator(compareOperator);
         if(compareOperator != null && price != null){
             if(partQuery.isBlank()) {
                 partQuery = " b.bkPrice " + compareOperator + " :price";
@@ -442,15 +947,38 @@ public class BookingService {
             }
             parameters.put("price", price);
         }
-        if(!partQuery.isBlank()) {
-            partQuery += " ORDER BY b.bkEndTime DESC";
-            baseQuery = baseQuery + " WHERE " + partQuery;
-        }else{
-            baseQuery += " ORDER BY b.bkEndTime DESC";
+        if(afterEndTime != null && afterBkId != null){
+            if(partQuery.isBlank()) {
+                partQuery = " (b.bkEndTime < :afterEndTime OR (b.bkEndTime = :afterEndTime AND b.bkId < :afterBkId)) ";
+            }else{
+                partQuery += " AND (b.bkEndTime < :afterEndTime OR (b.bkEndTime = :afterEndTime AND b.bkId < :afterBkId)) ";
+            }
+            parameters.put("afterEndTime", afterEndTime);
+            parameters.put("afterBkId", afterBkId);
         }
+        return partQuery.isBlank() ? "" : " WHERE " + partQuery;
+    }
 
+    /**
+     * Создание запроса на получение заказов
+     * @param cleanerId id мойщика
+     * @param clientId id клиента
+     * @param boxId id бокса
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param bookingStatus статус
+     * @param compareOperator оператор сравнения стоимости
+     * @param price стоимость
+     * @param afterEndTime время окончания последнего заказа предыдущей страницы (может быть null)
+     * @param afterBkId номер последнего заказа предыдущей страницы (может быть null)
+     * @return Запрос на получение заказов
+     */
+    private TypedQuery<BookingViewDTO> createQuery(Long cleanerId, Long clientId, Long boxId, LocalDateTime startInterval, LocalDateTime endInterval, BookingStatus bookingStatus, String compareOperator, Integer price, LocalDateTime afterEndTime, String afterBkId){
+        Map<String, Object> parameters = new HashMap<>();
+        String baseQuery = BookingRepository.VIEW_SELECT + createFilter(cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price, afterEndTime, afterBkId, parameters)
+                + " ORDER BY b.bkEndTime DESC, b.bkId DESC";
 
-        TypedQuery<Booking> query = entityManager.createQuery(baseQuery, Booking.class);
+        TypedQuery<BookingViewDTO> query = entityManager.createQuery(baseQuery, BookingViewDTO.class);
         for (Map.Entry<String, Object> entry : parameters.entrySet()) {
             query.setParameter(entry.getKey(), entry.getValue());
         }
@@ -471,19 +999,22 @@ public class BookingService {
      * @param price стоимость
      * @return Список заказов
      */
-    public List<Booking> getClientBookings(Integer pageIndex, Long cleanerId, Long clientId, Long boxId, LocalDateTime startInterval, LocalDateTime endInterval, BookingStatus bookingStatus, String compareOperator, Integer price) {
+    public List<BookingViewDTO> getClientBookings(Integer pageIndex, Long cleanerId, Long clientId, Long boxId, LocalDateTime startInterval, LocalDateTime endInterval, BookingStatus bookingStatus, String compareOperator, Integer price) {
         int countItemsInPage = Integer.parseInt(environment.getProperty("COUNT_ITEMS_IN_PAGE"));
         Pageable pageable = PageRequest.of(pageIndex, countItemsInPage);
-        TypedQuery<Booking> query = createQuery(cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price);
+        TypedQuery<BookingViewDTO> query = createQuery(cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price, null, null);
         query.setFirstResult((int) pageable.getOffset());
         query.setMaxResults(pageable.getPageSize());
 
-        return query.getResultList();
+        return fillServices(query.getResultList());
 
     }
 
     /**
-     * Получение информации о количестве и стоимости заказов
+     * Получение страницы заказов по курсору.
+     * Страница начинается сразу после заказа, закодированного в курсоре, поэтому стоимость получения
+     * любой страницы не зависит от её номера
+     * @param cursor курсор, полученный вместе с предыдущей страницей (null для первой страницы)
      * @param cleanerId id мойщика
      * @param clientId id клиента
      * @param boxId id бокса
@@ -492,74 +1023,163 @@ public class BookingService {
      * @param bookingStatus статус
      * @param compareOperator оператор сравнения стоимости
      * @param price стоимость
-     * @return Информация о количестве и стоимости заказов
+     * @return Страница заказов с курсором для получения следующей страницы
      */
-    public BookingsInfoDTO getBookingsInfo(Long cleanerId, Long clientId, Long boxId, LocalDateTime startInterval, LocalDateTime endInterval, BookingStatus bookingStatus, String compareOperator, Integer price){
-        TypedQuery<Booking> query = createQuery(cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price);
-        List<Booking> bookings = query.getResultList();
+    public BookingPageDTO getClientBookingsByCursor(String cursor, Long cleanerId, Long clientId, Long boxId, LocalDateTime startInterval, LocalDateTime endInterval, BookingStatus bookingStatus, String compareOperator, Integer price) {
+        int countItemsInPage = Integer.parseInt(environment.getProperty("COUNT_ITEMS_IN_PAGE"));
+        LocalDateTime afterEndTime = null;
+        String afterBkId = null;
+        if(cursor != null && !cursor.isBlank()){
+            String[] cursorParts = decodeCursor(cursor);
+            afterEndTime = LocalDateTime.parse(cursorParts[0]);
+            afterBkId = cursorParts[1];
+        }
 
-        int totalPrice = bookings.stream()
-                .mapToInt(Booking::getBkPrice)
-                .sum();
+        TypedQuery<BookingViewDTO> query = createQuery(cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price, afterEndTime, afterBkId);
+        query.setMaxResults(countItemsInPage);
+        List<BookingViewDTO> bookings = fillServices(query.getResultList());
 
-        return new BookingsInfoDTO(bookings.size(), totalPrice);
+        String nextCursor = null;
+        if(bookings.size() == countItemsInPage){
+            BookingViewDTO lastBooking = bookings.get(bookings.size() - 1);
+            nextCursor = encodeCursor(lastBooking.getBkEndTime(), lastBooking.getBkId());
+        }
+
+        return new BookingPageDTO(bookings, nextCursor);
     }
 
     /**
-     * Получение данных о выполненных заказах мойщика
+     * Формирование курсора страницы заказов
+     * @param bkEndTime время окончания последнего заказа страницы
+     * @param bkId номер последнего заказа страницы
+     * @return Курсор
+     */
+    static String encodeCursor(LocalDateTime bkEndTime, String bkId){
+        String value = bkEndTime + "|" + bkId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбор курсора страницы заказов
+     * @param cursor курсор
+     * @return Массив из времени окончания и номера последнего заказа страницы
+     * @throws IllegalArgumentException если курсор некорректен
+     */
+    static String[] decodeCursor(String cursor){
+        try{
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = value.split("\\|", 2);
+            if(parts.length != 2 || parts[1].isBlank()){
+                throw new IllegalArgumentException("Некорректный курсор страницы");
+            }
+            LocalDateTime.parse(parts[0]);
+            return parts;
+        }catch (DateTimeParseException e){
+            throw new IllegalArgumentException("Некорректный курсор страницы");
+        }
+    }
+
+    /**
+     * Построчная выгрузка заказов, удовлетворяющих фильтрам.
+     * Строки читаются курсором базы данных порциями по EXPORT_FETCH_SIZE строк без создания сущностей,
+     * поэтому расход памяти не зависит от количества выгружаемых заказов
      * @param cleanerId id мойщика
+     * @param clientId id клиента
+     * @param boxId id бокса
      * @param startInterval начало временного интервала
      * @param endInterval конец временного интервала
-     * @return Map c рабочими днями и данными о выполненных заказах
+     * @param bookingStatus статус
+     * @param compareOperator оператор сравнения стоимости
+     * @param price стоимость
+     * @param consumer обработчик строки выгрузки
      */
-    public Map<LocalDate, BookingsInfoDTO> infoAboutWorkOfCleaner(Long cleanerId, LocalDateTime startInterval, LocalDateTime endInterval){
+    @Transactional(readOnly = true)
+    public void exportBookings(Long cleanerId, Long clientId, Long boxId, LocalDateTime startInterval, LocalDateTime endInterval, BookingStatus bookingStatus, String compareOperator, Integer price, Consumer<BookingExportRowDTO> consumer){
         Map<String, Object> parameters = new HashMap<>();
-        String baseQuery = "SELECT b FROM Booking b WHERE b.cleaner.clrId = :cleanerId AND b.bkStatus = :bkStatus ";
-        parameters.put("cleanerId", cleanerId);
-        parameters.put("bkStatus", BookingStatus.DONE);
-        if(startInterval != null){
-            baseQuery += " AND b.bkStartTime >= :startInterval ";
-            parameters.put("startInterval", startInterval);
+        String baseQuery = "SELECT new ru.pin120.carwashAPI.dtos.BookingExportRowDTO(b.bkId, b.bkStatus, b.bkStartTime, b.bkEndTime, b.bkPrice, b.box.boxId, " +
+                "c.clrId, c.clrSurname, c.clrName, ct.clTrStateNumber, t.trMark, t.trModel, cl.clId, cl.clSurname, cl.clName, cl.clPhone) " +
+                "FROM Booking b LEFT JOIN b.cleaner c JOIN b.clientTransport ct JOIN ct.transport t JOIN ct.client cl " +
+                createFilter(cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price, null, null, parameters) +
+                " ORDER BY b.bkEndTime DESC, b.bkId DESC";
+
+        TypedQuery<BookingExportRowDTO> query = entityManager.createQuery(baseQuery, BookingExportRowDTO.class);
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            query.setParameter(entry.getKey(), entry.getValue());
         }
-        if(endInterval != null){
-            baseQuery += " AND b.bkStartTime <= :endInterval ";
-            parameters.put("endInterval", endInterval);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, Integer.parseInt(environment.getProperty("EXPORT_FETCH_SIZE")));
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+
+        try(Stream<BookingExportRowDTO> rows = query.getResultStream()){
+            rows.forEach(consumer);
         }
+    }
 
+    /**
+     * Получение информации о количестве и стоимости заказов
+     * @param cleanerId id мойщика
+     * @param clientId id клиента
+     * @param boxId id бокса
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @param bookingStatus статус
+     * @param compareOperator оператор сравнения стоимости
+     * @param price стоимость
+     * @param groupBy группировка: box - по боксам, status - по статусам, day - по дням начала выполнения (может быть null)
+     * @return Информация о количестве и стоимости заказов
+     */
+    public BookingsInfoDTO getBookingsInfo(Long cleanerId, Long clientId, Long boxId, LocalDateTime startInterval, LocalDateTime endInterval, BookingStatus bookingStatus, String compareOperator, Integer price, String groupBy){
+        Map<String, Object> parameters = new HashMap<>();
+        String filter = createFilter(cleanerId, clientId, boxId, startInterval, endInterval, bookingStatus, compareOperator, price, null, null, parameters);
+        String groupExpression = null;
+        if(groupBy != null){
+            groupExpression = switch (groupBy) {
+                case "box" -> "b.box.boxId";
+                case "status" -> "b.bkStatus";
+                case "day" -> "extract(date from b.bkStartTime)";
+                default -> throw new IllegalArgumentException("Неизвестная группировка " + groupBy);
+            };
+        }
 
-        TypedQuery<Booking> query = entityManager.createQuery(baseQuery, Booking.class);
+        String baseQuery = groupExpression == null
+                ? "SELECT COUNT(b), COALESCE(SUM(b.bkPrice), 0) FROM Booking b " + filter
+                : "SELECT " + groupExpression + ", COUNT(b), COALESCE(SUM(b.bkPrice), 0) FROM Booking b " + filter + " GROUP BY " + groupExpression + " ORDER BY " + groupExpression;
+        TypedQuery<Object[]> query = entityManager.createQuery(baseQuery, Object[].class);
         for (Map.Entry<String, Object> entry : parameters.entrySet()) {
             query.setParameter(entry.getKey(), entry.getValue());
         }
 
-        List<Booking> bookings = query.getResultList();
+        if(groupExpression == null){
+            Object[] row = query.getSingleResult();
+            return new BookingsInfoDTO(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+        }
+
+        // итоговые значения получаются из строк группировки, поэтому выполняется один запрос
+        List<BookingsInfoGroupDTO> groups = new ArrayList<>();
+        int totalCount = 0;
+        int totalPrice = 0;
+        for(Object[] row: query.getResultList()){
+            BookingsInfoGroupDTO group = new BookingsInfoGroupDTO(String.valueOf(row[0]), ((Number) row[1]).intValue(), ((Number) row[2]).intValue());
+            groups.add(group);
+            totalCount += group.getTotalCount();
+            totalPrice += group.getTotalPrice();
+        }
 
-        return bookings.stream()
-               .collect(Collectors.groupingBy(
-                       booking -> booking.getBkStartTime().toLocalDate(),
-                       Collectors.collectingAndThen(Collectors.toList(), this::getSummary)
-               ))
-               .entrySet().stream()
-               .sorted(Map.Entry.<LocalDate, BookingsInfoDTO>comparingByKey().reversed()) // Сортировка по ключу в обратном порядке
-               .collect(Collectors.toMap(
-                       Map.Entry::getKey,
-                       Map.Entry::getValue,
-                       (e1, e2) -> e1,
-                       LinkedHashMap::new
-               ));
+        BookingsInfoDTO bookingsInfoDTO = new BookingsInfoDTO(totalCount, totalPrice);
+        bookingsInfoDTO.setGroups(groups);
+        return bookingsInfoDTO;
     }
 
     /**
-     * Получение данных о работе мойщика
-     * @param bookings список заказов мойщика
-     * @return Информация о работе мойщика
+     * Получение данных о выполненных заказах мойщика.
+     * Данные читаются из итогов по дням, поэтому границы интервала учитываются с точностью до дня
+     * @param cleanerId id мойщика
+     * @param startInterval начало временного интервала
+     * @param endInterval конец временного интервала
+     * @return Map c рабочими днями и данными о выполненных заказах
      */
-    private BookingsInfoDTO getSummary(List<Booking> bookings) {
-        double cleanerStake = Double.valueOf(environment.getProperty("CLEANER_STAKE"));
-        int count = bookings.size();
-        int totalCost = (int) Math.ceil(bookings.stream()
-                .mapToInt(Booking::getBkPrice)
-                .sum() * cleanerStake);
-        return new BookingsInfoDTO(count, totalCost);
+    public Map<LocalDate, BookingsInfoDTO> infoAboutWorkOfCleaner(Long cleanerId, LocalDateTime startInterval, LocalDateTime endInterval){
+        return cleanerEarningsService.getByDays(cleanerId,
+                startInterval == null ? null : startInterval.toLocalDate(),
+                endInterval == null ? null : endInterval.toLocalDate());
     }
 }
@@ -0,0 +1,120 @@
+package ru.pin120.carwashAPI.services;
+
+import org.springframework.stereotype.Service;
+import ru.pin120.carwashAPI.dtos.BookingStartCheckDTO;
+import ru.pin120.carwashAPI.models.*;
+import ru.pin120.carwashAPI.repositories.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Предварительная проверка возможности начать выполнение заказа.
+ * Все проверки выполняются фиксированным числом запросов к базе данных независимо от количества услуг в заказе
+ */
+@Service
+public class BookingStartValidator {
+
+    /**
+     * Репозиторий заказа
+     */
+    private final BookingRepository bookingRepository;
+
+    /**
+     * Матрица цен прайс-листа
+     */
+    private final PriceMatrixService priceMatrixService;
+
+    /**
+     * Сервис для работы с услугами
+     */
+    private final ServService servService;
+
+    /**
+     * Сервис для работы с расходными материалами в боксе
+     */
+    private final SuppliesInBoxService suppliesInBoxService;
+
+    /**
+     * Сервис для работы с рабочими днями
+     */
+    private final WorkScheduleService workScheduleService;
+
+    /**
+     * Внедрение зависимостей
+     * @param bookingRepository репозиторий заказа
+     * @param priceMatrixService матрица цен прайс-листа
+     * @param servService сервис для работы с услугами
+     * @param suppliesInBoxService сервис для работы с расходными материалами в боксе
+     * @param workScheduleService сервис для работы с рабочими днями
+     */
+    public BookingStartValidator(BookingRepository bookingRepository, PriceMatrixService priceMatrixService, ServService servService, SuppliesInBoxService suppliesInBoxService, WorkScheduleService workScheduleService) {
+        this.bookingRepository = bookingRepository;
+        this.priceMatrixService = priceMatrixService;
+        this.servService = servService;
+        this.suppliesInBoxService = suppliesInBoxService;
+        this.workScheduleService = workScheduleService;
+    }
+
+    /**
+     * Проверка возможности начать выполнение заказа в текущий момент
+     * @param booking заказ со статусом "Бронь"
+     * @return Результат проверки со списком всех найденных ошибок и мойщиком, работающим в боксе
+     */
+    public BookingStartCheckDTO check(Booking booking) {
+        BookingStartCheckDTO result = new BookingStartCheckDTO();
+        List<String> errors = result.getErrors();
+        Box box = booking.getBox();
+
+        if(box.getBoxStatus() == BoxStatus.CLOSED){
+            errors.add("Невозможно начать выполнение заказа, так как закрыт бокс №" + box.getBoxId());
+        }
+        LocalDateTime nowTime = LocalDateTime.now().withSecond(0).withNano(0);
+        if(nowTime.isBefore(booking.getBkStartTime()) || nowTime.isAfter(booking.getBkEndTime())) {
+            errors.add(String.format("Изменить статус заказа можно только в следующее время: %s-%s", booking.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), booking.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"))));
+        }
+
+        List<Booking> notEndedBookings = bookingRepository.findNotEndedBookingsInBox(booking.getBkStartTime(), List.of(BookingStatus.BOOKED, BookingStatus.IN_PROGRESS), box.getBoxId());
+        if(!notEndedBookings.isEmpty()){
+            Booking notEndedBooking = notEndedBookings.get(0);
+            String notEndedBookingStatus = notEndedBooking.getBkStatus() == BookingStatus.BOOKED ? "\"Бронь\"" : "\"Выполняется\"";
+            errors.add(String.format("Невозможно начать выполнение заказа, так как есть незавершенный заказ, со статусом %s (заказ №%s c интервалом выполнения %s-%s)",notEndedBookingStatus, notEndedBooking.getBkId(), notEndedBooking.getBkStartTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")), notEndedBooking.getBkEndTime().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"))));
+        }
+
+        Optional<WorkSchedule> workSchedule = workScheduleService.getByBoxIdAndWorkDay(box.getBoxId(), booking.getBkStartTime().toLocalDate());
+        if(workSchedule.isEmpty()){
+            errors.add(String.format("Невозможно начать выполнение заказа, так как в боксе №%d отсутствует мойщик", box.getBoxId()));
+        }else{
+            result.setCleaner(workSchedule.get().getCleaner());
+        }
+
+        List<String> servNames = booking.getServices().stream()
+                .map(ru.pin120.carwashAPI.models.Service::getServName)
+                .toList();
+        if(servNames.isEmpty()){
+            return result;
+        }
+
+        CategoryOfTransport categoryOfTransport = booking.getClientTransport().getTransport().getCategoryOfTransport();
+        for(String servName : servNames){
+            if(priceMatrixService.get(categoryOfTransport.getCatTrId(), servName).isEmpty()){
+                errors.add(String.format("Нельзя начать выполнение заказа, так как в настоящее время для категории транспорта %s отсутствует возможность выполнения услуги %s", categoryOfTransport.getCatTrName(), servName));
+            }
+        }
+
+        Map<String, List<String>> categoriesByServName = servService.getCategoriesOfSuppliesByServNames(servNames);
+        Set<String> requiredCategories = new LinkedHashSet<>();
+        for(String servName : servNames){
+            requiredCategories.addAll(categoriesByServName.getOrDefault(servName, List.of()));
+        }
+        Set<String> availableCategories = suppliesInBoxService.getAvailableCategoryNames(box.getBoxId(), requiredCategories);
+        for(String category : requiredCategories){
+            if(!availableCategories.contains(category)){
+                errors.add("В боксе отсутствует расходный материал категории " + category);
+            }
+        }
+
+        return result;
+    }
+}
@@ -20,11 +20,18 @@ public class CategoriesOfSuppliesService {
     private final CategoriesOfSuppliesRepository categoriesOfSuppliesRepository;
 
     /**
-     * Внедрений зависимости
+     * Матрица цен прайс-листа
+     */
+    private final PriceMatrixService priceMatrixService;
+
+    /**
+     * Внедрений зависимостей
      * @param categoriesOfSuppliesRepository репозиторий категории расходных материалов
+     * @param priceMatrixService матрица цен прайс-листа
      */
-    public CategoriesOfSuppliesService(CategoriesOfSuppliesRepository categoriesOfSuppliesRepository) {
+    public CategoriesOfSuppliesService(CategoriesOfSuppliesRepository categoriesOfSuppliesRepository, PriceMatrixService priceMatrixService) {
         this.categoriesOfSuppliesRepository = categoriesOfSuppliesRepository;
+        this.priceMatrixService = priceMatrixService;
     }
 
     /**
@@ -68,6 +75,8 @@ public class CategoriesOfSuppliesService {
     @Transactional
     public void delete(CategoryOfSupplies categoryOfSupplies) {
         categoriesOfSuppliesRepository.deleteById(categoryOfSupplies.getCSupName());
+        // услуги в позициях прайс-листа содержат список категорий расходных материалов
+        priceMatrixService.invalidate();
     }
 
     /**
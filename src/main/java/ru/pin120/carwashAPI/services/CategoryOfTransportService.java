@@ -3,9 +3,12 @@ package ru.pin120.carwashAPI.services;
 import jakarta.transaction.Transactional;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.pin120.carwashAPI.models.CategoryOfTransport;
 import ru.pin120.carwashAPI.repositories.CategoryOfTransportRepository;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -22,11 +25,41 @@ public class CategoryOfTransportService {
     private final CategoryOfTransportRepository categoryOfTransportRepository;
 
     /**
-     * Внедрение зависимости
+     * Матрица цен прайс-листа
+     */
+    private final PriceMatrixService priceMatrixService;
+
+    /**
+     * Индекс каталога транспорта в памяти
+     */
+    private final TransportSuggestIndex transportSuggestIndex;
+
+    /**
+     * Все категории транспорта, упорядоченные по названию (null, если не загружены)
+     */
+    private volatile List<CategoryOfTransport> categories;
+
+    /**
+     * Блокировка для сохранения и сброса загруженных категорий транспорта
+     */
+    private final Object categoriesLock = new Object();
+
+    /**
+     * Поколение загруженных категорий транспорта, увеличивается при каждом сбросе (изменяется под блокировкой categoriesLock).
+     * Категории, загрузка которых началась до сброса, не сохраняются
+     */
+    private long categoriesGeneration;
+
+    /**
+     * Внедрение зависимостей
      * @param categoryOfTransportRepository репозиторий категории транспорта
+     * @param priceMatrixService матрица цен прайс-листа
+     * @param transportSuggestIndex индекс каталога транспорта в памяти
      */
-    public CategoryOfTransportService(CategoryOfTransportRepository categoryOfTransportRepository) {
+    public CategoryOfTransportService(CategoryOfTransportRepository categoryOfTransportRepository, PriceMatrixService priceMatrixService, TransportSuggestIndex transportSuggestIndex) {
         this.categoryOfTransportRepository = categoryOfTransportRepository;
+        this.priceMatrixService = priceMatrixService;
+        this.transportSuggestIndex = transportSuggestIndex;
     }
 
     /**
@@ -45,7 +78,7 @@ public class CategoryOfTransportService {
      * @return Список категорий транспорта
      */
     public List<CategoryOfTransport> getCategoriesOfTransportWithoutPriceAndTime(String servName){
-        return categoryOfTransportRepository.findCategoriesOfTransportWithoutPriceAndTimeByServName(servName);
+        return getCategoriesExcept(priceMatrixService.getPricedCategories(servName));
     }
 
     /**
@@ -55,7 +88,10 @@ public class CategoryOfTransportService {
      * @return Список категорий транспорта
      */
     public List<CategoryOfTransport> getAvailableCategoriesByMarkAndModel(String mark, String model){
-        return categoryOfTransportRepository.findCategoriesByMarkAndModel(mark,model);
+        if(!transportSuggestIndex.isReady()){
+            return categoryOfTransportRepository.findCategoriesByMarkAndModel(mark,model);
+        }
+        return getCategoriesExcept(transportSuggestIndex.getUsedCategories(mark, model, null));
     }
 
     /**
@@ -66,7 +102,10 @@ public class CategoryOfTransportService {
      * @return Список категорий транспорта
      */
     public List<CategoryOfTransport> getAvailableCategoriesByMarkAndModel(String mark, String model, Long trId){
-        return categoryOfTransportRepository.findCategoriesByMarkAndModel(mark, model, trId);
+        if(!transportSuggestIndex.isReady()){
+            return categoryOfTransportRepository.findCategoriesByMarkAndModel(mark, model, trId);
+        }
+        return getCategoriesExcept(transportSuggestIndex.getUsedCategories(mark, model, trId));
     }
 
     /**
@@ -93,6 +132,9 @@ public class CategoryOfTransportService {
      */
     public void save(CategoryOfTransport categoryOfTransport) {
         categoryOfTransportRepository.save(categoryOfTransport);
+        priceMatrixService.invalidate();
+        transportSuggestIndex.invalidate();
+        invalidateCategories();
     }
 
     /**
@@ -102,6 +144,9 @@ public class CategoryOfTransportService {
     @Transactional
     public void delete(String catTrName) {
         categoryOfTransportRepository.deleteByCatTrName(catTrName);
+        priceMatrixService.invalidate();
+        transportSuggestIndex.invalidate();
+        invalidateCategories();
     }
 
     /**
@@ -131,4 +176,50 @@ public class CategoryOfTransportService {
             }
         }
     }
+
+    /**
+     * Получение категорий транспорта, id которых не входят в множество
+     * @param excludedIds множество id категорий транспорта (номер бита равен id категории)
+     * @return Список категорий транспорта, упорядоченный по названию
+     */
+    private List<CategoryOfTransport> getCategoriesExcept(BitSet excludedIds) {
+        List<CategoryOfTransport> current = categories;
+        if (current == null) {
+            long generation;
+            synchronized (categoriesLock) {
+                generation = categoriesGeneration;
+            }
+            current = List.copyOf((List<CategoryOfTransport>) categoryOfTransportRepository.findAll(Sort.by(Sort.Direction.ASC, "catTrName")));
+            synchronized (categoriesLock) {
+                if (generation == categoriesGeneration) {
+                    categories = current;
+                }
+            }
+        }
+        return current.stream()
+                .filter(c -> !excludedIds.get(Math.toIntExact(c.getCatTrId())))
+                .toList();
+    }
+
+    /**
+     * Сброс загруженных категорий транспорта после фиксации текущей транзакции или сразу, если транзакция отсутствует
+     */
+    private void invalidateCategories() {
+        Runnable action = () -> {
+            synchronized (categoriesLock) {
+                categoriesGeneration++;
+                categories = null;
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
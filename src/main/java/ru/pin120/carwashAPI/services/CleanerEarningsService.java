@@ -0,0 +1,137 @@
+package ru.pin120.carwashAPI.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.pin120.carwashAPI.dtos.BookingsInfoDTO;
+import ru.pin120.carwashAPI.models.Booking;
+import ru.pin120.carwashAPI.models.BookingStatus;
+import ru.pin120.carwashAPI.models.CleanerDailyEarnings;
+import ru.pin120.carwashAPI.repositories.CleanerDailyEarningsRepository;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Сервис итогов выполненных заказов мойщиков по дням.
+ * Итоги изменяются в той же транзакции, что и заказ, поэтому данные о работе мойщика
+ * читаются из небольшой таблицы без просмотра заказов
+ */
+@Service
+public class CleanerEarningsService {
+
+    /**
+     * День, используемый как конец интервала, если он не указан
+     */
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 12, 31);
+
+    /**
+     * Ключ рекомендательной блокировки, исключающей одновременное заполнение итогов несколькими экземплярами приложения
+     */
+    private static final long BACKFILL_LOCK_KEY = 0x4361725761736802L;
+
+    /**
+     * Репозиторий итогов выполненных заказов мойщика за день
+     */
+    private final CleanerDailyEarningsRepository cleanerDailyEarningsRepository;
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Внедрение зависимости
+     * @param cleanerDailyEarningsRepository репозиторий итогов выполненных заказов мойщика за день
+     */
+    public CleanerEarningsService(CleanerDailyEarningsRepository cleanerDailyEarningsRepository) {
+        this.cleanerDailyEarningsRepository = cleanerDailyEarningsRepository;
+    }
+
+    /**
+     * Заполнение итогов по выполненным заказам при первом запуске приложения (если итоги отсутствуют).
+     * Если итоги одновременно заполняет другой экземпляр приложения, заполнение пропускается
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if(!cleanerDailyEarningsRepository.tryAdvisoryXactLock(BACKFILL_LOCK_KEY)){
+            return;
+        }
+        cleanerDailyEarningsRepository.lockForRebuild();
+        if(cleanerDailyEarningsRepository.count() == 0){
+            rebuild();
+        }
+    }
+
+    /**
+     * Полное перестроение итогов по выполненным заказам.
+     * На время перестроения таблица итогов блокируется от изменений, поэтому заказ, выполненный во время перестроения,
+     * учитывается один раз: изменение итогов в его транзакции дожидается окончания перестроения,
+     * а сам заказ не виден перестроению до фиксации своей транзакции
+     */
+    @Transactional
+    public void rebuild() {
+        cleanerDailyEarningsRepository.lockForRebuild();
+        cleanerDailyEarningsRepository.deleteAllEarnings();
+        cleanerDailyEarningsRepository.fillFromBookings();
+    }
+
+    /**
+     * Получение состояния заказа, влияющего на итоги
+     * @param booking заказ
+     * @return Состояние заказа или null, если заказ не учитывается в итогах
+     */
+    public EarningState stateOf(Booking booking) {
+        if(booking.getBkStatus() != BookingStatus.DONE || booking.getCleaner() == null){
+            return null;
+        }
+        return new EarningState(booking.getCleaner().getClrId(), booking.getBkStartTime().toLocalDate(), booking.getBkPrice());
+    }
+
+    /**
+     * Изменение итогов при изменении заказа. Вызывается в транзакции изменения заказа
+     * @param before состояние заказа до изменения (может быть null)
+     * @param after состояние заказа после изменения (может быть null)
+     */
+    public void apply(EarningState before, EarningState after) {
+        if(before != null && before.equals(after)){
+            return;
+        }
+        if(before != null){
+            cleanerDailyEarningsRepository.addToDay(before.clrId(), before.day(), -1, -before.price());
+            cleanerDailyEarningsRepository.deleteEmpty(before.clrId(), before.day());
+        }
+        if(after != null){
+            cleanerDailyEarningsRepository.addToDay(after.clrId(), after.day(), 1, after.price());
+        }
+    }
+
+    /**
+     * Получение данных о выполненных заказах мойщика по дням
+     * @param cleanerId id мойщика
+     * @param startDay начальный день (может быть null)
+     * @param endDay конечный день (может быть null)
+     * @return Map c рабочими днями (в обратном порядке) и данными о выполненных заказах с учётом ставки мойщика
+     */
+    public Map<LocalDate, BookingsInfoDTO> getByDays(Long cleanerId, LocalDate startDay, LocalDate endDay) {
+        double cleanerStake = Double.parseDouble(environment.getProperty("CLEANER_STAKE"));
+        Map<LocalDate, BookingsInfoDTO> info = new LinkedHashMap<>();
+        for(CleanerDailyEarnings earnings: cleanerDailyEarningsRepository.findByCleanerAndDays(cleanerId, startDay == null ? LocalDate.EPOCH : startDay, endDay == null ? LAST_DAY : endDay)){
+            info.put(earnings.getCeDay(), new BookingsInfoDTO(earnings.getCeCount(), (int) Math.ceil(earnings.getCeRevenue() * cleanerStake)));
+        }
+
+        return info;
+    }
+
+    /**
+     * Состояние выполненного заказа, учитываемое в итогах
+     * @param clrId id мойщика
+     * @param day день начала выполнения
+     * @param price стоимость
+     */
+    public record EarningState(Long clrId, LocalDate day, int price) {
+    }
+}
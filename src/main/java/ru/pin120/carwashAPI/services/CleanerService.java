@@ -11,7 +11,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import ru.pin120.carwashAPI.Exceptions.FileIsNotImageException;
 import ru.pin120.carwashAPI.dtos.CleanerDTO;
-import ru.pin120.carwashAPI.dtos.WorkScheduleDTO;
 import ru.pin120.carwashAPI.models.Box;
 import ru.pin120.carwashAPI.models.Cleaner;
 import ru.pin120.carwashAPI.models.CleanerStatus;
@@ -21,8 +20,6 @@ import ru.pin120.carwashAPI.repositories.CleanerRepository;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * Сервис для мойщика
@@ -46,6 +43,10 @@ public class CleanerService {
      * Сервис боксов
      */
     private final BoxService boxService;
+    /**
+     * Сервис графика работы мойщиков
+     */
+    private final WorkScheduleRosterService workScheduleRosterService;
     @PersistenceContext
     private EntityManager entityManager;
     @Autowired
@@ -57,12 +58,14 @@ public class CleanerService {
      * @param filesService сервис для работы с фотографиями
      * @param workScheduleService сервис рабочих дней
      * @param boxService сервис боксов
+     * @param workScheduleRosterService сервис графика работы мойщиков
      */
-    public CleanerService(CleanerRepository cleanerRepository, FilesService filesService, WorkScheduleService workScheduleService, BoxService boxService) {
+    public CleanerService(CleanerRepository cleanerRepository, FilesService filesService, WorkScheduleService workScheduleService, BoxService boxService, WorkScheduleRosterService workScheduleRosterService) {
         this.cleanerRepository = cleanerRepository;
         this.filesService = filesService;
         this.workScheduleService = workScheduleService;
         this.boxService = boxService;
+        this.workScheduleRosterService = workScheduleRosterService;
     }
 
     /**
@@ -138,62 +141,12 @@ public class CleanerService {
      * @return Список мойщиков с их рабочими днями
      */
     public List<CleanerDTO> getCleanersWithWorkSchedule(LocalDate startInterval, LocalDate endInterval, Long boxId, boolean currentMonth){
-        List<Cleaner> cleaners = (List<Cleaner>) cleanerRepository.findAll();
-        Predicate<Cleaner> predicate = getCleanerPredicate(startInterval, endInterval, boxId, currentMonth);
         Box box = boxService.getById(boxId).orElse(null);
         if(box == null){
             throw new EntityNotFoundException(String.format("Бокс с номером %d не найден",boxId));
         }
 
-        return cleaners.stream()
-                .filter(predicate)
-                .sorted(Comparator.comparing(Cleaner::getClrStatus)
-                        .thenComparing(Cleaner::getClrSurname)
-                        .thenComparing(Cleaner::getClrName)
-                        .thenComparing(Cleaner::getClrPatronymic)
-                        .thenComparing(Cleaner::getClrPhone))
-                .map(cleaner -> {
-                    List<WorkScheduleDTO> filteredSchedules = cleaner.getWorkSchedules().stream()
-                            .filter(ws -> ws.getBox().getBoxId().equals(boxId) && !ws.getWsWorkDay().isBefore(startInterval) && !ws.getWsWorkDay().isAfter(endInterval))
-                            .sorted(Comparator.comparing(WorkSchedule::getWsWorkDay))
-                            .map(WorkScheduleService::toDTO)
-                            .collect(Collectors.toList());
-
-                    return new CleanerDTO(
-                            cleaner.getClrId(),
-                            cleaner.getClrSurname(),
-                            cleaner.getClrName(),
-                            cleaner.getClrPatronymic(),
-                            cleaner.getClrPhone(),
-                            cleaner.getClrStatus(),
-                            box,
-                            filteredSchedules
-                    );
-                })
-                //.filter(dto -> !dto.getWorkSchedules().isEmpty())
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Получение предиката для фильтрации мойщиков
-     * @param startInterval начало временного интервала
-     * @param endInterval конец временного интервала
-     * @param boxId id бокса
-     * @param currentMonth текущий ли месяц
-     * @return Предикат для фильтрации мойщиков
-     */
-    private static Predicate<Cleaner> getCleanerPredicate(LocalDate startInterval, LocalDate endInterval, Long boxId, boolean currentMonth) {
-        Predicate<Cleaner> predicate;
-        if(currentMonth){
-            predicate = cleaner -> cleaner.getClrStatus() == CleanerStatus.ACT ||
-                    (cleaner.getClrStatus() == CleanerStatus.DISMISSED &&
-                            cleaner.getWorkSchedules().stream()
-                                    .anyMatch(ws -> ws.getBox().getBoxId().equals(boxId) && !ws.getWsWorkDay().isBefore(startInterval) && !ws.getWsWorkDay().isAfter(endInterval)));
-        }else{
-            predicate = cleaner ->cleaner.getWorkSchedules().stream()
-                    .anyMatch(ws -> ws.getBox().getBoxId().equals(boxId) && !ws.getWsWorkDay().isBefore(startInterval) && !ws.getWsWorkDay().isAfter(endInterval));
-        }
-        return predicate;
+        return workScheduleRosterService.getRoster(startInterval, endInterval, box, currentMonth);
     }
 
     /**
@@ -1,11 +1,15 @@
 package ru.pin120.carwashAPI.services;
 
 import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.env.Environment;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import ru.pin120.carwashAPI.models.Client;
 import ru.pin120.carwashAPI.repositories.ClientRepository;
@@ -17,23 +21,163 @@ import java.util.Optional;
  * Сервис клиента
  */
 @Service
+@Slf4j
 public class ClientService {
 
+    /**
+     * Команды подключения расширения pg_trgm и создания триграммных индексов для поиска подстроки и нечеткого поиска клиентов
+     */
+    private static final List<String> TRIGRAM_SEARCH_DDL = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clients_surname_trgm ON clients USING gin (LOWER(cl_surname) gin_trgm_ops)",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clients_name_trgm ON clients USING gin (LOWER(cl_name) gin_trgm_ops)",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clients_phone_trgm ON clients USING gin (LOWER(cl_phone) gin_trgm_ops)"
+    );
+
+    /**
+     * Команды создания индексов по шаблону для поиска по началу фамилии и номера телефона
+     */
+    private static final List<String> PREFIX_SEARCH_DDL = List.of(
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clients_surname_prefix ON clients (LOWER(cl_surname) text_pattern_ops)",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clients_phone_prefix ON clients (cl_phone text_pattern_ops)"
+    );
 
     /**
      * Репозиторий клиента
      */
     private final ClientRepository clientRepository;
 
+    /**
+     * Сервис для поиска по фильтрам
+     */
+    private final FilterQueryService filterQueryService;
+
+    /**
+     * Выполнение команд JDBC
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Сервис транспорта клиента
+     */
+    private final ClientsTransportService clientsTransportService;
+
+    /**
+     * Доступен ли нечеткий поиск с помощью триграмм
+     */
+    private volatile boolean trigramSearchAvailable;
+
     @Autowired
     private Environment environment;
 
     /**
-     * Внедрений зависимости
+     * Внедрений зависимостей
      * @param clientRepository репозиторий клиента
+     * @param filterQueryService сервис для поиска по фильтрам
+     * @param jdbcTemplate выполнение команд JDBC
+     * @param clientsTransportService сервис транспорта клиента
      */
-    public ClientService(ClientRepository clientRepository) {
+    public ClientService(ClientRepository clientRepository, FilterQueryService filterQueryService, JdbcTemplate jdbcTemplate, ClientsTransportService clientsTransportService) {
         this.clientRepository = clientRepository;
+        this.filterQueryService = filterQueryService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.clientsTransportService = clientsTransportService;
+    }
+
+    /**
+     * Создание индексов для поиска клиентов при запуске приложения.
+     * Индексы создаются без блокировки записи в таблицу клиентов, поэтому команды выполняются вне транзакции.
+     * Индексы, оставшиеся недействительными после прерванного создания, удаляются и создаются заново.
+     * Если расширение pg_trgm или триграммные индексы недоступны, то нечеткий поиск заменяется поиском по началу фамилии и номера телефона
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createSearchIndexes() {
+        try {
+            jdbcTemplate.queryForList("SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                            "WHERE NOT i.indisvalid AND c.relname LIKE 'idx\\_clients\\_%'", String.class)
+                    .forEach(index -> executeSearchDdl("DROP INDEX CONCURRENTLY IF EXISTS " + index));
+        } catch (Exception e) {
+            log.warn("Invalid client search indexes were not checked: {}", e.getMessage());
+        }
+
+        boolean available = true;
+        for (String ddl : TRIGRAM_SEARCH_DDL) {
+            if (!executeSearchDdl(ddl)) {
+                available = false;
+                break;
+            }
+        }
+        trigramSearchAvailable = available;
+        PREFIX_SEARCH_DDL.forEach(this::executeSearchDdl);
+    }
+
+    /**
+     * Выполнение команды создания объекта для поиска клиентов
+     * @param ddl команда
+     * @return true, если команда выполнена, иначе false
+     */
+    private boolean executeSearchDdl(String ddl) {
+        try {
+            jdbcTemplate.execute(ddl);
+            return true;
+        } catch (Exception e) {
+            log.warn("Client search index was not created ({}): {}", ddl, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Поиск клиентов по началу фамилии или номера телефона для автодополнения
+     * @param prefix начало фамилии или номера телефона
+     * @param limit максимальное количество найденных клиентов (если null, то значение по умолчанию)
+     * @return Список клиентов, упорядоченный по фамилии и имени
+     * @throws IllegalArgumentException если начало фамилии или номера телефона не указано
+     */
+    public List<Client> autocomplete(String prefix, Integer limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new IllegalArgumentException("Необходимо указать начало фамилии или номера телефона");
+        }
+        String pattern = escapeLike(prefix.trim()) + "%";
+        return clientRepository.findByPrefix(pattern.toLowerCase(), pattern, PageRequest.of(0, getSearchLimit(limit)));
+    }
+
+    /**
+     * Нечеткий поиск клиентов по фамилии или имени с учётом опечаток
+     * @param query строка поиска
+     * @param limit максимальное количество найденных клиентов (если null, то значение по умолчанию)
+     * @return Список клиентов, упорядоченный по убыванию сходства со строкой поиска
+     */
+    public List<Client> fuzzySearch(String query, Integer limit) {
+        // для строк короче трёх символов триграммы не дают сходства, поэтому используется поиск по началу
+        if (!trigramSearchAvailable || query.trim().length() < 3) {
+            return autocomplete(query, limit);
+        }
+        return clientRepository.findSimilar(query.trim(), getSearchLimit(limit));
+    }
+
+    /**
+     * Получение максимального количества клиентов в результатах поиска
+     * @param limit запрошенное количество (если null, то значение по умолчанию)
+     * @return Количество клиентов
+     */
+    private int getSearchLimit(Integer limit) {
+        int maxLimit = Integer.parseInt(environment.getProperty("CLIENT_SEARCH_MAX_LIMIT"));
+        if (limit == null) {
+            return Integer.parseInt(environment.getProperty("CLIENT_SEARCH_LIMIT"));
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("Количество клиентов в результатах поиска должно быть от 1 до " + maxLimit);
+        }
+        return limit;
+    }
+
+    /**
+     * Экранирование специальных символов шаблона LIKE
+     * @param value строка
+     * @return Строка, в которой символы \, % и _ экранированы
+     */
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     /**
@@ -52,6 +196,7 @@ public class ClientService {
      */
     public void save(Client client) {
         clientRepository.save(client);
+        clientsTransportService.invalidateStateNumberCache();
     }
 
     /**
@@ -84,95 +229,13 @@ public class ClientService {
      * @return Список найденных клиентов
      */
     public List<Client> search(Integer pageIndex, String surname, String name, String phone, Integer discount, String filterDiscountOperator) {
-        Pageable pageable = PageRequest.of(pageIndex, Integer.parseInt(environment.getProperty("COUNT_ITEMS_IN_PAGE")), Sort.by("clSurname", "clName", "clPhone", "clDiscount"));
-        if(surname != null && name != null && phone != null && filterDiscountOperator != null && discount != null){
-            switch (filterDiscountOperator){
-                case "<":
-                    return clientRepository.query1(surname,name,phone,discount,pageable);
-                case ">":
-                    return clientRepository.query2(surname,name,phone,discount,pageable);
-                case "=":
-                    return clientRepository.query3(surname,name,phone,discount,pageable);
-            }
-        }else if(surname != null && name != null && phone != null){
-            return clientRepository.query4(surname,name,phone,pageable);
-        }else if(surname != null && name != null && filterDiscountOperator != null && discount != null){
-            switch (filterDiscountOperator) {
-                case "<":
-                    return clientRepository.query5(surname, name, discount, pageable);
-                case ">":
-                    return clientRepository.query6(surname, name, discount, pageable);
-                case "=":
-                    return clientRepository.query7(surname, name, discount, pageable);
-            }
-        }else if(surname != null && phone != null && filterDiscountOperator != null && discount != null){
-            switch (filterDiscountOperator) {
-                case "<":
-                    return clientRepository.query8(surname,phone, discount, pageable);
-                case ">":
-                    return clientRepository.query9(surname, phone, discount, pageable);
-                case "=":
-                    return clientRepository.query10(surname, phone, discount, pageable);
-            }
-        }else if(name != null && phone != null && filterDiscountOperator != null && discount != null){
-            switch (filterDiscountOperator) {
-                case "<":
-                    return clientRepository.query11(name,phone, discount, pageable);
-                case ">":
-                    return clientRepository.query12(name, phone, discount, pageable);
-                case "=":
-                    return clientRepository.query13(name, phone, discount, pageable);
-            }
-        }else if(surname != null && name != null){
-            return clientRepository.query14(surname,name, pageable);
-        }else if(surname != null && phone != null){
-            return clientRepository.query15(surname,phone, pageable);
-        }else if(surname != null && filterDiscountOperator != null && discount != null){
-            switch (filterDiscountOperator) {
-                case "<":
-                    return clientRepository.query16(surname, discount, pageable);
-                case ">":
-                    return clientRepository.query17(surname, discount, pageable);
-                case "=":
-                    return clientRepository.query18(surname, discount, pageable);
-            }
-        }else if(name != null && phone != null){
-            return clientRepository.query19(name,phone, pageable);
-        }else if (name != null && filterDiscountOperator != null && discount != null){
-            switch (filterDiscountOperator) {
-                case "<":
-                    return clientRepository.query20(name, discount, pageable);
-                case ">":
-                    return clientRepository.query21(name, discount, pageable);
-                case "=":
-                    return clientRepository.query22(name, discount, pageable);
-            }
-        }else if (phone != null && filterDiscountOperator != null && discount != null){
-            switch (filterDiscountOperator) {
-                case "<":
-                    return clientRepository.query23(phone, discount, pageable);
-                case ">":
-                    return clientRepository.query24(phone, discount, pageable);
-                case "=":
-                    return clientRepository.query25(phone, discount, pageable);
-            }
-        }else if(surname != null){
-            return clientRepository.query26(surname, pageable);
-        }else if(name != null){
-            return clientRepository.query27(name, pageable);
-        }else if(phone != null){
-            return clientRepository.query28(phone, pageable);
-        }else if(filterDiscountOperator != null && discount != null){
-            switch (filterDiscountOperator) {
-                case "<":
-                    return clientRepository.query29(discount, pageable);
-                case ">":
-                    return clientRepository.query30(discount, pageable);
-                case "=":
-                    return clientRepository.query31(discount, pageable);
-            }
-        }
-
-        return null;
+        Pageable pageable = PageRequest.of(pageIndex, Integer.parseInt(environment.getProperty("COUNT_ITEMS_IN_PAGE")));
+        FilterQueryService.Filter<Client> filter = new FilterQueryService.Filter<>(Client.class)
+                .contains("clSurname", surname)
+                .contains("clName", name)
+                .contains("clPhone", phone)
+                .compare("clDiscount", filterDiscountOperator, discount)
+                .orderBy("clSurname", "clName", "clPhone", "clDiscount");
+        return filterQueryService.find(filter, pageable);
     }
 }
@@ -2,13 +2,18 @@ package ru.pin120.carwashAPI.services;
 
 import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.pin120.carwashAPI.models.ClientsTransport;
 import ru.pin120.carwashAPI.repositories.ClientsTransportRepository;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * Сервис транспорта клиента
@@ -22,11 +27,58 @@ public class ClientsTransportService {
     private final ClientsTransportRepository clientsTransportRepository;
 
     /**
-     * Внедрение зависимости
+     * Индекс интервалов выполнения заказов
+     */
+    private final BookingIntervalIndex bookingIntervalIndex;
+
+    /**
+     * Сервис для поиска по фильтрам
+     */
+    private final FilterQueryService filterQueryService;
+
+    /**
+     * Максимальное количество госномеров в одном запросе к базе данных
+     */
+    private static final int STATE_NUMBER_KEYS_CHUNK_SIZE = 1000;
+
+    /**
+     * Кэш транспорта клиентов по нормализованному госномеру (пустой список, если транспорт с госномером отсутствует)
+     */
+    private final Map<String, List<ClientsTransport>> stateNumberCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<ClientsTransport>> eldest) {
+            return size() > Integer.parseInt(environment.getProperty("STATE_NUMBER_CACHE_SIZE"));
+        }
+    };
+
+    /**
+     * Поколение кэша поиска по госномеру, увеличивается при каждой очистке кэша (изменяется под блокировкой кэша).
+     * Данные, загрузка которых началась до очистки, в кэш не помещаются
+     */
+    private long stateNumberCacheGeneration;
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Внедрение зависимостей
      * @param clientsTransportRepository репозиторий транспорта клиента
+     * @param bookingIntervalIndex индекс интервалов выполнения заказов
+     * @param filterQueryService сервис для поиска по фильтрам
      */
-    public ClientsTransportService(ClientsTransportRepository clientsTransportRepository) {
+    public ClientsTransportService(ClientsTransportRepository clientsTransportRepository, BookingIntervalIndex bookingIntervalIndex, FilterQueryService filterQueryService) {
         this.clientsTransportRepository = clientsTransportRepository;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.filterQueryService = filterQueryService;
+    }
+
+    /**
+     * Заполнение нормализованных госномеров, отсутствующих у транспорта, сохраненного до их появления, при запуске приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void fillStateNumberKeys() {
+        clientsTransportRepository.findByClTrStateNumberKeyIsNull().forEach(ClientsTransport::updateStateNumberKey);
     }
 
     /**
@@ -54,6 +106,10 @@ public class ClientsTransportService {
      */
     public void save(ClientsTransport clientsTransport) {
         clientsTransportRepository.save(clientsTransport);
+        if(clientsTransport.getClTrId() != null){
+            bookingIntervalIndex.changeStateNumber(clientsTransport.getClTrId(), clientsTransport.getClTrStateNumber());
+        }
+        invalidateStateNumberCache();
     }
 
     /**
@@ -65,6 +121,19 @@ public class ClientsTransportService {
         return clientsTransportRepository.findByClTrId(id);
     }
 
+    /**
+     * Получение транспорта клиентов по списку id одним запросом
+     * @param ids список id транспорта клиентов
+     * @return Транспорт клиентов по id (отсутствующие в базе данных id не включаются)
+     */
+    public Map<Long, ClientsTransport> getByIds(Collection<Long> ids) {
+        Map<Long, ClientsTransport> result = new HashMap<>();
+        if (!ids.isEmpty()) {
+            clientsTransportRepository.findByClTrIds(ids).forEach(clientsTransport -> result.put(clientsTransport.getClTrId(), clientsTransport));
+        }
+        return result;
+    }
+
     /**
      * Проверяет существование транспорта клиента, исключая текущий
      * @param clientsTransport транспрот клиента
@@ -82,6 +151,7 @@ public class ClientsTransportService {
     @Transactional
     public void deleteById(Long clTrId) {
         clientsTransportRepository.deleteByClTrId(clTrId);
+        invalidateStateNumberCache();
     }
 
     /**
@@ -94,39 +164,14 @@ public class ClientsTransportService {
      * @return Список найденного транспорта
      */
     public List<ClientsTransport> search(@NotNull Long clientId, String mark, String model, String category, String stateNumber) {
-        if(mark != null && model != null && category != null && stateNumber != null){
-            return clientsTransportRepository.findByClientIdAndMarkAndModelAndCategoryAndStateNumber(clientId,mark,model,category,stateNumber);
-        }else if(mark != null && model != null && category != null){
-            return clientsTransportRepository.findByClientIdAndMarkAndModelAndCategory(clientId, mark,model,category);
-        }else if(mark != null && model != null && stateNumber != null){
-            return clientsTransportRepository.findByClientIdAndMarkAndModelAndStateNumber(clientId,mark,model,stateNumber);
-        }else if(mark != null && category != null && stateNumber != null){
-            return clientsTransportRepository.findByClientIdAndMarkAndCategoryAndStateNumber(clientId,mark,category,stateNumber);
-        }else if(model != null && category != null && stateNumber != null){
-            return clientsTransportRepository.findByClientIdAndModelAndCategoryAndStateNumber(clientId,model,category,stateNumber);
-        }else if(mark != null && model != null){
-            return clientsTransportRepository.findByClientIdAndMarkAndModel(clientId, mark,model);
-        }else if(mark != null && category != null){
-            return clientsTransportRepository.findByClientIdAndMarkAndCategory(clientId,mark,category);
-        }else if(mark != null && stateNumber != null){
-            return clientsTransportRepository.findByClientIdAndMarkAndStateNumber(clientId, mark,stateNumber);
-        }else if(model != null && category != null){
-            return clientsTransportRepository.findByClientIdAndModelAndCategory(clientId,model,category);
-        }else if(model != null && stateNumber != null){
-            return clientsTransportRepository.findByClientIdAndModelAndStateNumber(clientId,model,stateNumber);
-        }else if(category != null && stateNumber != null){
-            return clientsTransportRepository.findByClientIdAndCategoryAndStateNumber(clientId, category,stateNumber);
-        }else if(mark != null){
-            return clientsTransportRepository.findByClientIdAndMark(clientId,mark);
-        }else if(model != null){
-            return clientsTransportRepository.findByClientIdAndModel(clientId,model);
-        }else if(category != null){
-            return clientsTransportRepository.findByClientIdAndCategory(clientId,category);
-        }else if(stateNumber != null){
-            return clientsTransportRepository.findByClientIdAndStateNumber(clientId,stateNumber);
-        }
-
-        return null;
+        FilterQueryService.Filter<ClientsTransport> filter = new FilterQueryService.Filter<>(ClientsTransport.class)
+                .equal("client.clId", clientId)
+                .contains("transport.trMark", mark)
+                .contains("transport.trModel", model)
+                .contains("transport.categoryOfTransport.catTrName", category)
+                .contains("clTrStateNumber", stateNumber)
+                .orderBy("transport.trMark", "transport.trModel", "transport.categoryOfTransport.catTrName", "clTrStateNumber");
+        return filterQueryService.find(filter);
     }
 
     /**
@@ -138,11 +183,87 @@ public class ClientsTransportService {
     }
 
     /**
-     * Получение списка транспорта клиентов по госномеру
-     * @param stateNumber госномер
+     * Получение списка транспорта клиентов по госномеру.
+     * Госномер нормализуется, поэтому регистр, пробелы и латинские буквы вместо кириллических не влияют на результат.
+     * Если транспорт с полностью совпадающим госномером не найден, то выполняется поиск по части госномера
+     * @param stateNumber госномер или его часть
      * @return Список транспорта клиента
      */
     public List<ClientsTransport> getByStateNumber(String stateNumber) {
-        return clientsTransportRepository.findByStateNumber(stateNumber);
+        String key = ClientsTransport.normalizeStateNumber(stateNumber);
+        List<ClientsTransport> clientsTransports = getByStateNumberKeys(List.of(key)).get(key);
+        if (clientsTransports.isEmpty()) {
+            clientsTransports = clientsTransportRepository.findByStateNumberKeyContaining(key);
+        }
+        return clientsTransports;
+    }
+
+    /**
+     * Получение транспорта клиентов по нормализованным госномерам.
+     * Госномера, отсутствующие в кэше, загружаются запросами со списком госномеров
+     * @param keys нормализованные госномера
+     * @return Словарь, в котором каждому госномеру соответствует список транспорта клиентов с ним (пустой, если транспорт не найден)
+     */
+    public Map<String, List<ClientsTransport>> getByStateNumberKeys(Collection<String> keys) {
+        Map<String, List<ClientsTransport>> result = new HashMap<>();
+        List<String> missedKeys = new ArrayList<>();
+        long generation;
+        synchronized (stateNumberCache) {
+            generation = stateNumberCacheGeneration;
+            for (String key : keys) {
+                List<ClientsTransport> cached = stateNumberCache.get(key);
+                if (cached != null) {
+                    result.put(key, cached);
+                } else if (!result.containsKey(key)) {
+                    result.put(key, null);
+                    missedKeys.add(key);
+                }
+            }
+        }
+        if (missedKeys.isEmpty()) {
+            return result;
+        }
+
+        Map<String, List<ClientsTransport>> loaded = new HashMap<>();
+        missedKeys.forEach(key -> loaded.put(key, new ArrayList<>()));
+        for (int i = 0; i < missedKeys.size(); i += STATE_NUMBER_KEYS_CHUNK_SIZE) {
+            List<String> chunk = missedKeys.subList(i, Math.min(i + STATE_NUMBER_KEYS_CHUNK_SIZE, missedKeys.size()));
+            clientsTransportRepository.findByStateNumberKeys(chunk)
+                    .forEach(ct -> loaded.get(ct.getClTrStateNumberKey()).add(ct));
+        }
+        synchronized (stateNumberCache) {
+            boolean actual = generation == stateNumberCacheGeneration;
+            loaded.forEach((key, clientsTransports) -> {
+                List<ClientsTransport> cached = List.copyOf(clientsTransports);
+                if (actual) {
+                    stateNumberCache.put(key, cached);
+                }
+                result.put(key, cached);
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Очистка кэша поиска по госномеру после фиксации текущей транзакции или сразу, если транзакция отсутствует.
+     * Вызывается при изменении транспорта клиентов, а также клиентов и транспорта, данные которых содержатся в кэше
+     */
+    public void invalidateStateNumberCache() {
+        Runnable action = () -> {
+            synchronized (stateNumberCache) {
+                stateNumberCacheGeneration++;
+                stateNumberCache.clear();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 }
@@ -0,0 +1,184 @@
+package ru.pin120.carwashAPI.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Сервис для поиска сущностей по набору необязательных фильтров.
+ * Запрос строится из условий, для которых указаны значения, а значения передаются параметрами,
+ * поэтому для одного набора условий (формы фильтра) всегда получается один и тот же текст запроса,
+ * и разобранный план запроса повторно берётся из кэша планов Hibernate (hibernate.query.plan_cache_enabled)
+ */
+@Service
+public class FilterQueryService {
+
+    /**
+     * Допустимые операторы сравнения
+     */
+    private static final Set<String> COMPARE_OPERATORS = Set.of("<", "=", ">");
+
+    /**
+     * Проверка оператора сравнения, подставляемого в текст запроса
+     * @param operator оператор сравнения (null допускается)
+     * @throws IllegalArgumentException если оператор не является одним из &lt;, = или &gt;
+     */
+    public static void checkCompareOperator(String operator) {
+        if (operator != null && !COMPARE_OPERATORS.contains(operator)) {
+            throw new IllegalArgumentException("Неизвестный оператор сравнения " + operator);
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Поиск сущностей, удовлетворяющих фильтру
+     * @param filter фильтр
+     * @return Список найденных сущностей (если ни одно условие не указано, то все сущности)
+     */
+    public <T> List<T> find(Filter<T> filter) {
+        return createQuery(filter).getResultList();
+    }
+
+    /**
+     * Поиск сущностей, удовлетворяющих фильтру, с учётом пагинации
+     * @param filter фильтр
+     * @param pageable страница результатов (сортировка задается фильтром)
+     * @return Список найденных сущностей на странице
+     */
+    public <T> List<T> find(Filter<T> filter, Pageable pageable) {
+        TypedQuery<T> query = createQuery(filter);
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        return query.getResultList();
+    }
+
+    /**
+     * Создание запроса по фильтру
+     * @param filter фильтр
+     * @return Запрос с установленными значениями параметров
+     */
+    <T> TypedQuery<T> createQuery(Filter<T> filter) {
+        String jpql = buildQuery(new Shape(filter.entityClass, filter.conditions, filter.orderBy));
+        TypedQuery<T> query = entityManager.createQuery(jpql, filter.entityClass);
+        for (int i = 0; i < filter.values.size(); i++) {
+            query.setParameter("p" + i, filter.values.get(i));
+        }
+        return query;
+    }
+
+    /**
+     * Построение текста запроса по форме фильтра
+     * @param shape форма фильтра
+     * @return Текст запроса
+     */
+    private String buildQuery(Shape shape) {
+        StringBuilder jpql = new StringBuilder("SELECT e FROM ").append(shape.entityClass().getSimpleName()).append(" e");
+        for (int i = 0; i < shape.conditions().size(); i++) {
+            Condition condition = shape.conditions().get(i);
+            jpql.append(i == 0 ? " WHERE " : " AND ");
+            if (condition.operator() == null) {
+                jpql.append("LOWER(e.").append(condition.path()).append(") LIKE LOWER(CONCAT('%', :p").append(i).append(", '%'))");
+            } else {
+                jpql.append("e.").append(condition.path()).append(' ').append(condition.operator()).append(" :p").append(i);
+            }
+        }
+        if (!shape.orderBy().isEmpty()) {
+            jpql.append(" ORDER BY ");
+            jpql.append(String.join(", ", shape.orderBy().stream().map(path -> "e." + path).toList()));
+        }
+        return jpql.toString();
+    }
+
+    /**
+     * Фильтр по необязательным условиям. Условия, для которых не указано значение, не добавляются в запрос
+     * @param <T> тип сущности
+     */
+    public static class Filter<T> {
+
+        private final Class<T> entityClass;
+        private final List<Condition> conditions = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+        private final List<String> orderBy = new ArrayList<>();
+
+        /**
+         * @param entityClass класс сущности
+         */
+        public Filter(Class<T> entityClass) {
+            this.entityClass = entityClass;
+        }
+
+        /**
+         * Условие вхождения подстроки без учёта регистра
+         * @param path путь к полю сущности
+         * @param value подстрока (если null, то условие не добавляется)
+         * @return Фильтр
+         */
+        public Filter<T> contains(String path, String value) {
+            if (value != null) {
+                conditions.add(new Condition(path, null));
+                values.add(value);
+            }
+            return this;
+        }
+
+        /**
+         * Условие равенства
+         * @param path путь к полю сущности
+         * @param value значение (если null, то условие не добавляется)
+         * @return Фильтр
+         */
+        public Filter<T> equal(String path, Object value) {
+            return compare(path, "=", value);
+        }
+
+        /**
+         * Условие сравнения
+         * @param path путь к полю сущности
+         * @param operator оператор сравнения (&lt;, = или &gt;)
+         * @param value значение (если оператор или значение равны null, то условие не добавляется)
+         * @return Фильтр
+         */
+        public Filter<T> compare(String path, String operator, Object value) {
+            if (operator == null || value == null) {
+                return this;
+            }
+            checkCompareOperator(operator);
+            conditions.add(new Condition(path, operator));
+            values.add(value);
+            return this;
+        }
+
+        /**
+         * Сортировка по возрастанию
+         * @param paths пути к полям сущности в порядке сортировки
+         * @return Фильтр
+         */
+        public Filter<T> orderBy(String... paths) {
+            orderBy.addAll(Arrays.asList(paths));
+            return this;
+        }
+    }
+
+    /**
+     * Условие фильтра
+     * @param path путь к полю сущности
+     * @param operator оператор сравнения (null для условия вхождения подстроки)
+     */
+    private record Condition(String path, String operator) {
+    }
+
+    /**
+     * Форма фильтра: набор условий без значений и сортировка
+     * @param entityClass класс сущности
+     * @param conditions условия
+     * @param orderBy пути к полям сортировки
+     */
+    private record Shape(Class<?> entityClass, List<Condition> conditions, List<String> orderBy) {
+    }
+}
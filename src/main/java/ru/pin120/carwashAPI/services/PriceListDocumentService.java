@@ -0,0 +1,84 @@
+package ru.pin120.carwashAPI.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис готовых JSON-документов прайс-листа категорий транспорта.
+ * Документ формируется один раз для версии прайс-листа и отдается без обращения к базе данных,
+ * пока прайс-лист не изменится
+ */
+@Service
+public class PriceListDocumentService {
+
+    /**
+     * Сервис для работы с позициями прайс-листа
+     */
+    private final PriceListService priceListService;
+
+    /**
+     * Матрица цен прайс-листа, хранящая его версию
+     */
+    private final PriceMatrixService priceMatrixService;
+
+    /**
+     * Преобразователь объектов в JSON
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Документы прайс-листа по id категории транспорта
+     */
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+    /**
+     * Внедрение зависимостей
+     * @param priceListService сервис для работы с позициями прайс-листа
+     * @param priceMatrixService матрица цен прайс-листа
+     * @param objectMapper преобразователь объектов в JSON
+     */
+    public PriceListDocumentService(PriceListService priceListService, PriceMatrixService priceMatrixService, ObjectMapper objectMapper) {
+        this.priceListService = priceListService;
+        this.priceMatrixService = priceMatrixService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Получение тега сущности (ETag) для текущей версии прайс-листа
+     * @return Тег сущности
+     */
+    public String getETag() {
+        return "\"" + priceMatrixService.getVersion() + "\"";
+    }
+
+    /**
+     * Получение JSON-документа со списком услуг вместе со стоимостью и временем выполнения определенной категории транспорта
+     * @param catTrId id категории транспорта
+     * @return JSON-документ
+     * @throws JsonProcessingException если не удалось сформировать документ
+     */
+    public byte[] getTransportPriceList(Long catTrId) throws JsonProcessingException {
+        // версия читается до загрузки данных, чтобы документ, сформированный во время изменения прайс-листа, считался устаревшим
+        long version = priceMatrixService.getVersion();
+        Document document = documents.get(catTrId);
+        if (document != null && document.version() == version) {
+            return document.json();
+        }
+        documents.values().removeIf(d -> d.version() < version);
+        byte[] json = objectMapper.writeValueAsBytes(priceListService.getTransportPriceList(catTrId));
+        documents.put(catTrId, new Document(version, json));
+        return json;
+    }
+
+    /**
+     * Документ прайс-листа категории транспорта
+     * @param version версия прайс-листа, по которой сформирован документ
+     * @param json содержимое документа
+     */
+    private record Document(long version, byte[] json) {
+    }
+}
@@ -0,0 +1,358 @@
+package ru.pin120.carwashAPI.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.pin120.carwashAPI.dtos.PriceListImportErrorDTO;
+import ru.pin120.carwashAPI.dtos.PriceListImportResultDTO;
+import ru.pin120.carwashAPI.dtos.PriceListImportRowDTO;
+import ru.pin120.carwashAPI.models.CategoryOfTransport;
+import ru.pin120.carwashAPI.repositories.PriceListRepository;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис для пакетной загрузки позиций прайс-листа из CSV или JSON-массива.
+ * Позиции читаются потоком и сохраняются пачками одной командой вставки с обновлением по уникальному ключу
+ * (услуга, категория транспорта) в одной транзакции. Позиции с ошибками пропускаются и попадают в результат
+ */
+@Service
+public class PriceListImportService {
+
+    /**
+     * Разделитель полей CSV
+     */
+    private static final char CSV_DELIMITER = ';';
+
+    /**
+     * Обязательные столбцы CSV
+     */
+    private static final List<String> CSV_COLUMNS = List.of("servName", "catTrName", "plPrice", "plTime");
+
+    /**
+     * Вставка позиции или обновление стоимости и времени выполнения существующей позиции
+     */
+    private static final String UPSERT_SQL = "INSERT INTO price_list (pl_serv_name, pl_cat_tr_id, pl_price, pl_time) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (pl_serv_name, pl_cat_tr_id) DO UPDATE SET pl_price = EXCLUDED.pl_price, pl_time = EXCLUDED.pl_time";
+
+    /**
+     * Репозиторий позиции прайс-листа
+     */
+    private final PriceListRepository priceListRepository;
+
+    /**
+     * Сервис для работы с категориями транспорта
+     */
+    private final CategoryOfTransportService categoryOfTransportService;
+
+    /**
+     * Сервис для работы с услугами
+     */
+    private final ServService servService;
+
+    /**
+     * Матрица цен прайс-листа
+     */
+    private final PriceMatrixService priceMatrixService;
+
+    /**
+     * Выполнение пакетных команд JDBC
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Валидатор входных данных
+     */
+    private final Validator validator;
+
+    /**
+     * Преобразователь JSON в объекты
+     */
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Внедрение зависимостей
+     * @param priceListRepository репозиторий позиции прайс-листа
+     * @param categoryOfTransportService сервис для работы с категориями транспорта
+     * @param servService сервис для работы с услугами
+     * @param priceMatrixService матрица цен прайс-листа
+     * @param jdbcTemplate выполнение пакетных команд JDBC
+     * @param validator валидатор входных данных
+     * @param objectMapper преобразователь JSON в объекты
+     */
+    public PriceListImportService(PriceListRepository priceListRepository, CategoryOfTransportService categoryOfTransportService, ServService servService, PriceMatrixService priceMatrixService, JdbcTemplate jdbcTemplate, Validator validator, ObjectMapper objectMapper) {
+        this.priceListRepository = priceListRepository;
+        this.categoryOfTransportService = categoryOfTransportService;
+        this.servService = servService;
+        this.priceMatrixService = priceMatrixService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Получение формата загрузки по типу содержимого запроса
+     * @param contentType тип содержимого
+     * @return Формат загрузки
+     */
+    public Format getFormat(String contentType) {
+        if (contentType != null) {
+            String type = contentType.toLowerCase();
+            if (type.startsWith("text/csv")) {
+                return Format.CSV;
+            }
+            if (type.startsWith("application/json")) {
+                return Format.JSON;
+            }
+        }
+        throw new IllegalArgumentException("Поддерживается загрузка в форматах text/csv и application/json");
+    }
+
+    /**
+     * Загрузка позиций прайс-листа.
+     * CSV должен содержать строку заголовка со столбцами servName, catTrName, plPrice и plTime, разделенными точкой с запятой
+     * @param inputStream поток с данными
+     * @param format формат данных
+     * @return Количество добавленных и измененных позиций и ошибки в пропущенных позициях
+     * @throws IOException если не удалось прочитать данные
+     */
+    @Transactional
+    public PriceListImportResultDTO importPriceList(InputStream inputStream, Format format) throws IOException {
+        Import anImport = new Import();
+        if (format == Format.CSV) {
+            readCsv(inputStream, anImport);
+        } else {
+            try (MappingIterator<JsonNode> rows = objectMapper.readerFor(JsonNode.class).readValues(inputStream)) {
+                int position = 0;
+                while (rows.hasNextValue()) {
+                    JsonNode node = rows.nextValue();
+                    position++;
+                    try {
+                        anImport.accept(position, node == null || node.isNull() ? null : objectMapper.treeToValue(node, PriceListImportRowDTO.class));
+                    } catch (JsonProcessingException e) {
+                        anImport.error(position, "Некорректные данные позиции: " + e.getOriginalMessage());
+                    }
+                }
+            }
+        }
+        anImport.flush();
+        anImport.result.getErrors().sort(Comparator.comparingInt(PriceListImportErrorDTO::getPosition));
+        if (anImport.result.getCreated() + anImport.result.getUpdated() > 0) {
+            priceMatrixService.invalidate();
+        }
+        return anImport.result;
+    }
+
+    /**
+     * Чтение позиций из CSV
+     * @param inputStream поток с данными
+     * @param anImport загрузка, принимающая позиции
+     * @throws IOException если не удалось прочитать данные
+     */
+    private void readCsv(InputStream inputStream, Import anImport) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        List<String> columns = parseCsvLine(header.replace("\uFEFF", "")).stream().map(String::trim).toList();
+        int[] indexes = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < CSV_COLUMNS.size(); i++) {
+            indexes[i] = columns.indexOf(CSV_COLUMNS.get(i));
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("В заголовке CSV отсутствует столбец " + CSV_COLUMNS.get(i));
+            }
+        }
+
+        String line;
+        int position = 1;
+        while ((line = reader.readLine()) != null) {
+            position++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> values = parseCsvLine(line);
+            if (values.size() < columns.size()) {
+                anImport.error(position, "Количество значений в строке меньше количества столбцов");
+                continue;
+            }
+            PriceListImportRowDTO row = new PriceListImportRowDTO();
+            row.setServName(values.get(indexes[0]).trim());
+            row.setCatTrName(values.get(indexes[1]).trim());
+            try {
+                row.setPlPrice(parseInteger(values.get(indexes[2])));
+                row.setPlTime(parseInteger(values.get(indexes[3])));
+            } catch (NumberFormatException e) {
+                anImport.error(position, "Стоимость и время выполнения должны быть целыми числами");
+                continue;
+            }
+            anImport.accept(position, row);
+        }
+    }
+
+    /**
+     * Разбор строки CSV с учётом значений в двойных кавычках
+     * @param line строка
+     * @return Список значений
+     */
+    private List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == CSV_DELIMITER) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private Integer parseInteger(String value) {
+        return value.isBlank() ? null : Integer.valueOf(value.trim());
+    }
+
+    /**
+     * Состояние загрузки: проверка позиций и сохранение их пачками
+     */
+    private class Import {
+
+        private final PriceListImportResultDTO result = new PriceListImportResultDTO();
+        private final int batchSize = Integer.parseInt(environment.getProperty("PRICE_LIST_IMPORT_BATCH_SIZE"));
+
+        /**
+         * id категорий транспорта по названию
+         */
+        private final Map<String, Long> categories = categoryOfTransportService.getAll().stream()
+                .collect(Collectors.toMap(CategoryOfTransport::getCatTrName, CategoryOfTransport::getCatTrId));
+
+        /**
+         * Ключи (id категории транспорта, название услуги) позиций, существовавших до загрузки
+         */
+        private final Set<List<Object>> existingKeys = priceListRepository.findAllPositions().stream()
+                .map(row -> List.of(row[0], row[2]))
+                .collect(Collectors.toSet());
+
+        /**
+         * Номера позиций загрузки по ключу, чтобы не допустить повторов
+         */
+        private final Map<List<Object>, Integer> importedKeys = new HashMap<>();
+
+        /**
+         * Позиции, ожидающие сохранения
+         */
+        private final List<PendingRow> pending = new ArrayList<>();
+
+        void accept(int position, PriceListImportRowDTO row) {
+            if (row == null) {
+                error(position, "Отсутствуют данные о позиции");
+                return;
+            }
+            Set<ConstraintViolation<PriceListImportRowDTO>> violations = validator.validate(row);
+            if (!violations.isEmpty()) {
+                error(position, violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; ")));
+                return;
+            }
+            Long catTrId = categories.get(row.getCatTrName());
+            if (catTrId == null) {
+                error(position, "В базе данных отсутствует категория транспорта " + row.getCatTrName());
+                return;
+            }
+            List<Object> key = List.of(catTrId, row.getServName());
+            Integer previousPosition = importedKeys.putIfAbsent(key, position);
+            if (previousPosition != null) {
+                error(position, String.format("Позиция для услуги %s и категории транспорта %s уже указана в позиции %d", row.getServName(), row.getCatTrName(), previousPosition));
+                return;
+            }
+            pending.add(new PendingRow(position, catTrId, row));
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void error(int position, String message) {
+            result.getErrors().add(new PriceListImportErrorDTO(position, message));
+        }
+
+        /**
+         * Сохранение ожидающих позиций одной пакетной командой. Услуги проверяются одним запросом на пачку
+         */
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Set<String> existingServNames = servService.getByServNames(pending.stream().map(p -> p.row().getServName()).collect(Collectors.toSet())).stream()
+                    .map(ru.pin120.carwashAPI.models.Service::getServName)
+                    .collect(Collectors.toSet());
+            List<Object[]> batch = new ArrayList<>();
+            for (PendingRow p : pending) {
+                if (!existingServNames.contains(p.row().getServName())) {
+                    error(p.position(), "В базе данных отсутствует услуга " + p.row().getServName());
+                    continue;
+                }
+                batch.add(new Object[]{p.row().getServName(), p.catTrId(), p.row().getPlPrice(), p.row().getPlTime()});
+                if (existingKeys.contains(List.of(p.catTrId(), p.row().getServName()))) {
+                    result.setUpdated(result.getUpdated() + 1);
+                } else {
+                    result.setCreated(result.getCreated() + 1);
+                }
+            }
+            if (!batch.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * Позиция, ожидающая сохранения
+     * @param position номер позиции загрузки
+     * @param catTrId id категории транспорта
+     * @param row данные позиции
+     */
+    private record PendingRow(int position, Long catTrId, PriceListImportRowDTO row) {
+    }
+
+    /**
+     * Формат загрузки
+     */
+    public enum Format {
+        /**
+         * Значения, разделенные точкой с запятой, со строкой заголовка
+         */
+        CSV,
+        /**
+         * JSON-массив позиций
+         */
+        JSON
+    }
+}
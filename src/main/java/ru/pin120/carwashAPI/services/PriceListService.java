@@ -24,11 +24,25 @@ public class PriceListService {
     private final PriceListRepository priceListRepository;
 
     /**
-     * Внедрение зависимости
+     * Матрица цен прайс-листа
+     */
+    private final PriceMatrixService priceMatrixService;
+
+    /**
+     * Сервис для поиска по фильтрам
+     */
+    private final FilterQueryService filterQueryService;
+
+    /**
+     * Внедрение зависимостей
      * @param priceListRepository репозиторий позиции прайс-листа
+     * @param priceMatrixService матрица цен прайс-листа
+     * @param filterQueryService сервис для поиска по фильтрам
      */
-    public PriceListService(PriceListRepository priceListRepository) {
+    public PriceListService(PriceListRepository priceListRepository, PriceMatrixService priceMatrixService, FilterQueryService filterQueryService) {
         this.priceListRepository = priceListRepository;
+        this.priceMatrixService = priceMatrixService;
+        this.filterQueryService = filterQueryService;
     }
 
     /**
@@ -58,6 +72,16 @@ public class PriceListService {
         return serviceWithPriceListDTOS;
     }
 
+    /**
+     * Получение позиций определенной категории транспорта для указанных услуг
+     * @param catTrId id категории транспорта
+     * @param servNames названия услуг
+     * @return Список позиций
+     */
+    public List<PriceList> getByCatTrIdAndServNames(Long catTrId, List<String> servNames){
+        return priceListRepository.findByCategoryOfTransportCatTrIdAndServiceServNameIn(catTrId, servNames);
+    }
+
     /**
      * Проверяет существование позиции
      * @param priceListPosition позиция в прайс-листе
@@ -93,6 +117,7 @@ public class PriceListService {
      */
     public void save(PriceList priceListPosition) {
         priceListRepository.save(priceListPosition);
+        priceMatrixService.invalidate();
     }
 
     /**
@@ -111,6 +136,7 @@ public class PriceListService {
     @Transactional
     public void delete(PriceList priceList) {
         priceListRepository.delete(priceList);
+        priceMatrixService.invalidate();
     }
 
     /**
@@ -124,98 +150,12 @@ public class PriceListService {
      * @return Список найденных позиций
      */
     public List<PriceList> search(String servName, String catTrName, String priceOperator, Integer price, String timeOperator, Integer time) {
-        if(catTrName != null && priceOperator != null && price != null && timeOperator != null && time != null){
-            if(priceOperator.equals("<") && timeOperator.equals(">")){
-                return priceListRepository.query1(servName, catTrName, time, price);
-            }else if(priceOperator.equals("<") && timeOperator.equals("=")){
-                return priceListRepository.query3(servName,catTrName, time, price);
-            }else if(priceOperator.equals("<") && timeOperator.equals("<")){
-                return priceListRepository.query5(servName,catTrName, time, price);
-            }else if(priceOperator.equals("=") && timeOperator.equals(">")){
-                return priceListRepository.query7(servName,catTrName, time, price);
-            }else if(priceOperator.equals("=") && timeOperator.equals("=")){
-                return priceListRepository.query9(servName,catTrName, time, price);
-            }else if(priceOperator.equals("=") && timeOperator.equals("<")){
-                return priceListRepository.query11(servName,catTrName, time, price);
-            }else if(priceOperator.equals(">") && timeOperator.equals("<")){
-                return priceListRepository.query13(servName,catTrName, time, price);
-            }else if(priceOperator.equals(">") && timeOperator.equals("=")){
-                return priceListRepository.query15(servName,catTrName, time, price);
-            }else if(priceOperator.equals(">") && timeOperator.equals(">")){
-                return priceListRepository.query17(servName,catTrName, time, price);
-            }
-        }else if(priceOperator != null && price != null && timeOperator != null && time != null){
-            if(priceOperator.equals("<") && timeOperator.equals(">")){
-                return priceListRepository.query2(servName,time, price);
-            }else if(priceOperator.equals("<") && timeOperator.equals("=")){
-                return priceListRepository.query4(servName,time, price);
-            }else if(priceOperator.equals("<") && timeOperator.equals("<")){
-                return priceListRepository.query6(servName,time, price);
-            }else if(priceOperator.equals("=") && timeOperator.equals(">")){
-                return priceListRepository.query8(servName,time, price);
-            }else if(priceOperator.equals("=") && timeOperator.equals("=")){
-                return priceListRepository.query10(servName,time, price);
-            }else if(priceOperator.equals("=") && timeOperator.equals("<")){
-                return priceListRepository.query12(servName,time, price);
-            }else if(priceOperator.equals(">") && timeOperator.equals("<")){
-                return priceListRepository.query14(servName,time, price);
-            }else if(priceOperator.equals(">") && timeOperator.equals("=")){
-                return priceListRepository.query16(servName,time, price);
-            }else if(priceOperator.equals(">") && timeOperator.equals(">")){
-                return priceListRepository.query18(servName,time, price);
-            }
-        }else if(catTrName != null && priceOperator != null && price != null){
-            switch (priceOperator) {
-                case "<" -> {
-                    return priceListRepository.query19(servName,catTrName, price);
-                }
-                case "=" -> {
-                    return priceListRepository.query21(servName,catTrName, price);
-                }
-                case ">" -> {
-                    return priceListRepository.query23(servName,catTrName, price);
-                }
-            }
-        }else if(catTrName != null && timeOperator != null && time != null){
-            switch (timeOperator) {
-                case "<" -> {
-                    return priceListRepository.query25(servName,catTrName, time);
-                }
-                case "=" -> {
-                    return priceListRepository.query27(servName,catTrName, time);
-                }
-                case ">" -> {
-                    return priceListRepository.query29(servName,catTrName, time);
-                }
-            }
-        }else if(timeOperator != null && time != null){
-            switch (timeOperator) {
-                case "<" -> {
-                    return priceListRepository.query26(servName,time);
-                }
-                case "=" -> {
-                    return priceListRepository.query28(servName,time);
-                }
-                case ">" -> {
-                    return priceListRepository.query30(servName, time);
-                }
-            }
-        }else if(priceOperator != null && price != null){
-            switch (priceOperator) {
-                case "<" -> {
-                    return priceListRepository.query20(servName,price);
-                }
-                case "=" -> {
-                    return priceListRepository.query22(servName,price);
-                }
-                case ">" -> {
-                    return priceListRepository.query24(servName,price);
-                }
-            }
-        }else if(catTrName != null){
-            return priceListRepository.query31(servName,catTrName);
-        }
-
-        return new ArrayList<>();
+        FilterQueryService.Filter<PriceList> filter = new FilterQueryService.Filter<>(PriceList.class)
+                .equal("service.servName", servName)
+                .contains("categoryOfTransport.catTrName", catTrName)
+                .compare("plPrice", priceOperator, price)
+                .compare("plTime", timeOperator, time)
+                .orderBy("categoryOfTransport.catTrName");
+        return filterQueryService.find(filter);
     }
 }
@@ -0,0 +1,127 @@
+package ru.pin120.carwashAPI.services;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.pin120.carwashAPI.dtos.ServiceWithPriceListDTO;
+import ru.pin120.carwashAPI.repositories.PriceListRepository;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Матрица цен в памяти: стоимость и время выполнения услуг по категориям транспорта.
+ * Загружается из прайс-листа при первом обращении и сбрасывается после фиксации транзакций, изменяющих прайс-лист.
+ * Каждый сброс увеличивает версию прайс-листа
+ */
+@Service
+public class PriceMatrixService {
+
+    /**
+     * Репозиторий позиции прайс-листа
+     */
+    private final PriceListRepository priceListRepository;
+
+    /**
+     * Позиции прайс-листа и категории транспорта по услугам (null, если матрица не загружена)
+     */
+    private volatile Matrix matrix;
+
+    /**
+     * Версия прайс-листа. Начинается со времени запуска, чтобы не повторяться после перезапуска приложения
+     */
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Внедрение зависимости
+     * @param priceListRepository репозиторий позиции прайс-листа
+     */
+    public PriceMatrixService(PriceListRepository priceListRepository) {
+        this.priceListRepository = priceListRepository;
+    }
+
+    /**
+     * Получение позиции прайс-листа
+     * @param catTrId id категории транспорта
+     * @param servName название услуги
+     * @return Объект Optional с услугой, ее стоимостью и временем выполнения, если позиция существует
+     */
+    public Optional<ServiceWithPriceListDTO> get(Long catTrId, String servName) {
+        ServiceWithPriceListDTO position = getMatrix().positions().getOrDefault(catTrId, Map.of()).get(servName);
+        return position == null ? Optional.empty() : Optional.of(new ServiceWithPriceListDTO(position.getCatName(), position.getServName(), position.getPlPrice(), position.getPlTime()));
+    }
+
+    /**
+     * Получение id категорий транспорта, для которых указаны стоимость и время выполнения услуги
+     * @param servName название услуги
+     * @return Множество id категорий транспорта (номер бита равен id категории)
+     */
+    public BitSet getPricedCategories(String servName) {
+        BitSet categories = getMatrix().pricedCategories().get(servName);
+        return categories == null ? new BitSet() : (BitSet) categories.clone();
+    }
+
+    /**
+     * Получение текущей версии прайс-листа
+     * @return Версия, увеличивающаяся при каждом изменении прайс-листа
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Сброс матрицы и увеличение версии прайс-листа после фиксации текущей транзакции или сразу, если транзакция отсутствует
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+        } else {
+            clear();
+        }
+    }
+
+    private synchronized void clear() {
+        matrix = null;
+        version.incrementAndGet();
+    }
+
+    /**
+     * Получение матрицы с загрузкой из базы данных, если она еще не загружена
+     * @return Матрица цен
+     */
+    private Matrix getMatrix() {
+        Matrix current = matrix;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (matrix == null) {
+                Map<Long, Map<String, ServiceWithPriceListDTO>> positions = new HashMap<>();
+                Map<String, BitSet> pricedCategories = new HashMap<>();
+                for (Object[] row : priceListRepository.findAllPositions()) {
+                    positions.computeIfAbsent((Long) row[0], k -> new HashMap<>())
+                            .put((String) row[2], new ServiceWithPriceListDTO((String) row[1], (String) row[2], (Integer) row[3], (Integer) row[4]));
+                    pricedCategories.computeIfAbsent((String) row[2], k -> new BitSet()).set(Math.toIntExact((Long) row[0]));
+                }
+                matrix = new Matrix(positions, pricedCategories);
+            }
+            return matrix;
+        }
+    }
+
+    /**
+     * Загруженная матрица цен
+     * @param positions позиции прайс-листа по id категории транспорта и названию услуги
+     * @param pricedCategories id категорий транспорта, для которых есть позиции, по названию услуги
+     */
+    private record Matrix(Map<Long, Map<String, ServiceWithPriceListDTO>> positions, Map<String, BitSet> pricedCategories) {
+    }
+}
@@ -10,7 +10,10 @@ import ru.pin120.carwashAPI.repositories.CategoryOfServicesRepository;
 import ru.pin120.carwashAPI.repositories.ServiceRepository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -29,14 +32,21 @@ public class ServService {
      */
     private final CategoryOfServicesRepository categoryOfServicesRepository;
 
+    /**
+     * Матрица цен прайс-листа
+     */
+    private final PriceMatrixService priceMatrixService;
+
     /**
      * Внедрение зависимостей
      * @param serviceRepository репозиторий услуг
      * @param categoryOfServicesRepository репозиторий категорий услуг
+     * @param priceMatrixService матрица цен прайс-листа
      */
-    public ServService(ServiceRepository serviceRepository, CategoryOfServicesRepository categoryOfServicesRepository) {
+    public ServService(ServiceRepository serviceRepository, CategoryOfServicesRepository categoryOfServicesRepository, PriceMatrixService priceMatrixService) {
         this.serviceRepository = serviceRepository;
         this.categoryOfServicesRepository = categoryOfServicesRepository;
+        this.priceMatrixService = priceMatrixService;
     }
 
     /**
@@ -57,6 +67,28 @@ public class ServService {
         return serviceRepository.findByServName(servName);
     }
 
+    /**
+     * Получение услуг по списку названий
+     * @param servNames названия
+     * @return Список найденных услуг
+     */
+    public List<ru.pin120.carwashAPI.models.Service> getByServNames(Collection<String> servNames){
+        return serviceRepository.findByServNameIn(servNames);
+    }
+
+    /**
+     * Получение категорий расходных материалов, необходимых для выполнения услуг
+     * @param servNames названия услуг
+     * @return Названия категорий расходных материалов по названию услуги
+     */
+    public Map<String, List<String>> getCategoriesOfSuppliesByServNames(Collection<String> servNames){
+        Map<String, List<String>> categories = new HashMap<>();
+        for(Object[] row : serviceRepository.findCategoriesOfSuppliesByServNames(servNames)){
+            categories.computeIfAbsent((String) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+        return categories;
+    }
+
     /**
      * Получение DTO услуги с указанным названием
      * @param servName название
@@ -95,6 +127,7 @@ public class ServService {
      */
     public void edit(ru.pin120.carwashAPI.models.Service service){
         serviceRepository.save(service);
+        priceMatrixService.invalidate();
     }
 
     /**
@@ -122,6 +155,7 @@ public class ServService {
                 service.setCategory(newCategory.get());
                 serviceRepository.save(service);
             }
+            priceMatrixService.invalidate();
         }else{
             if(pastCategory.isEmpty()){
                 throw new EntityNotFoundException("В базе данных не сущетсвует категории " + pastCategoryName);
@@ -144,6 +178,7 @@ public class ServService {
             ru.pin120.carwashAPI.models.Service existsService = service.get();
             existsService.setCategory(newCategory.get());
             serviceRepository.save(existsService);
+            priceMatrixService.invalidate();
         }else{
             if(newCategory.isEmpty()){
                 throw new EntityNotFoundException("В базе данных не существует категории " + catName);
@@ -160,6 +195,7 @@ public class ServService {
     @Transactional
     public void delete(String servName) {
         serviceRepository.deleteByServName(servName);
+        priceMatrixService.invalidate();
     }
 
 }
@@ -0,0 +1,114 @@
+package ru.pin120.carwashAPI.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import ru.pin120.carwashAPI.dtos.ActiveBookingDTO;
+import ru.pin120.carwashAPI.dtos.StateNumberLookupDTO;
+import ru.pin120.carwashAPI.models.BookingStatus;
+import ru.pin120.carwashAPI.models.ClientsTransport;
+import ru.pin120.carwashAPI.repositories.BookingRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Сервис для пакетного поиска транспорта клиентов по госномерам (например, распознанным камерой на въезде).
+ * Транспорт берется из кэша госномеров или загружается запросами со списком госномеров,
+ * текущие заказы найденного транспорта загружаются запросами со списком id транспорта
+ */
+@Service
+public class StateNumberLookupService {
+
+    /**
+     * Максимальное количество id транспорта клиентов в одном запросе к базе данных
+     */
+    private static final int TRANSPORT_IDS_CHUNK_SIZE = 1000;
+
+    /**
+     * Статусы заказов, которые считаются текущими
+     */
+    private static final List<BookingStatus> CURRENT_STATUSES = List.of(BookingStatus.IN_PROGRESS, BookingStatus.BOOKED);
+
+    /**
+     * Сервис транспорта клиента
+     */
+    private final ClientsTransportService clientsTransportService;
+
+    /**
+     * Репозиторий заказа
+     */
+    private final BookingRepository bookingRepository;
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Внедрение зависимостей
+     * @param clientsTransportService сервис транспорта клиента
+     * @param bookingRepository репозиторий заказа
+     */
+    public StateNumberLookupService(ClientsTransportService clientsTransportService, BookingRepository bookingRepository) {
+        this.clientsTransportService = clientsTransportService;
+        this.bookingRepository = bookingRepository;
+    }
+
+    /**
+     * Поиск транспорта клиентов и их текущих заказов по списку госномеров.
+     * Текущим считается выполняющийся заказ, а если его нет, то ближайший забронированный заказ,
+     * который ещё не закончился и начинается сегодня
+     * @param stateNumbers список госномеров
+     * @return Список результатов в порядке переданных госномеров
+     */
+    public List<StateNumberLookupDTO> lookup(List<String> stateNumbers) {
+        int maxSize = Integer.parseInt(environment.getProperty("STATE_NUMBER_LOOKUP_MAX_SIZE"));
+        if (stateNumbers.size() > maxSize) {
+            throw new IllegalArgumentException("Количество госномеров в запросе не должно превышать " + maxSize);
+        }
+        if (stateNumbers.stream().anyMatch(stateNumber -> stateNumber == null || stateNumber.isBlank())) {
+            throw new IllegalArgumentException("Госномер не может быть пустым");
+        }
+
+        List<String> keys = stateNumbers.stream().map(ClientsTransport::normalizeStateNumber).toList();
+        Map<String, List<ClientsTransport>> clientsTransports = clientsTransportService.getByStateNumberKeys(keys);
+        Map<Long, ActiveBookingDTO> activeBookings = getActiveBookings(clientsTransports.values().stream()
+                .flatMap(List::stream)
+                .map(ClientsTransport::getClTrId)
+                .distinct()
+                .toList());
+
+        List<StateNumberLookupDTO> result = new ArrayList<>(stateNumbers.size());
+        for (int i = 0; i < stateNumbers.size(); i++) {
+            StateNumberLookupDTO lookup = new StateNumberLookupDTO();
+            lookup.setStateNumber(stateNumbers.get(i));
+            for (ClientsTransport clientsTransport : clientsTransports.get(keys.get(i))) {
+                lookup.getMatches().add(new StateNumberLookupDTO.Match(clientsTransport, activeBookings.get(clientsTransport.getClTrId())));
+            }
+            result.add(lookup);
+        }
+        return result;
+    }
+
+    /**
+     * Получение текущих заказов транспорта клиентов
+     * @param clTrIds список id транспорта клиентов
+     * @return Словарь, в котором id транспорта клиента соответствует его текущий заказ
+     */
+    private Map<Long, ActiveBookingDTO> getActiveBookings(List<Long> clTrIds) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime tomorrow = LocalDate.now().plusDays(1).atStartOfDay();
+        Map<Long, ActiveBookingDTO> activeBookings = new HashMap<>();
+        for (int i = 0; i < clTrIds.size(); i += TRANSPORT_IDS_CHUNK_SIZE) {
+            List<Long> chunk = clTrIds.subList(i, Math.min(i + TRANSPORT_IDS_CHUNK_SIZE, clTrIds.size()));
+            // заказы отсортированы по времени начала, поэтому первым остается ближайший, если он не заменен выполняющимся
+            for (ActiveBookingDTO booking : bookingRepository.findActiveOfTransports(chunk, now, tomorrow, CURRENT_STATUSES)) {
+                ActiveBookingDTO current = activeBookings.get(booking.getClTrId());
+                if (current == null || (booking.getBkStatus() == BookingStatus.IN_PROGRESS && current.getBkStatus() != BookingStatus.IN_PROGRESS)) {
+                    activeBookings.put(booking.getClTrId(), booking);
+                }
+            }
+        }
+        return activeBookings;
+    }
+}
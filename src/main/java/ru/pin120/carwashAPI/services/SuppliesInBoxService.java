@@ -15,10 +15,13 @@ import ru.pin120.carwashAPI.models.SuppliesInBox;
 import ru.pin120.carwashAPI.models.Supply;
 import ru.pin120.carwashAPI.repositories.SuppliesInBoxRepository;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Сервис расходных материалов в боксе
@@ -196,4 +199,17 @@ public class SuppliesInBoxService {
     public List<SuppliesInBox> getListExistingSuppliesCertainCategory(Long boxId, String categoryName){
         return suppliesInBoxRepository.findByBox_BoxIdAndSupply_Category_cSupNameAndCountSuppliesGreaterThan(boxId, categoryName, 0);
     }
+
+    /**
+     * Получение названий категорий расходных материалов, которые есть в боксе
+     * @param boxId id бокса
+     * @param categoryNames названия проверяемых категорий расходных материалов
+     * @return Названия категорий, расходные материалы которых есть в боксе
+     */
+    public Set<String> getAvailableCategoryNames(Long boxId, Collection<String> categoryNames){
+        if(categoryNames.isEmpty()){
+            return new HashSet<>();
+        }
+        return new HashSet<>(suppliesInBoxRepository.findAvailableCategoryNames(boxId, categoryNames));
+    }
 }
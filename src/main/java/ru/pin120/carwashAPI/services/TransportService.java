@@ -27,16 +27,37 @@ public class TransportService {
      */
     private final TransportRepository transportRepository;
 
+    /**
+     * Сервис для поиска по фильтрам
+     */
+    private final FilterQueryService filterQueryService;
+
+    /**
+     * Сервис транспорта клиента
+     */
+    private final ClientsTransportService clientsTransportService;
+
+    /**
+     * Индекс каталога транспорта в памяти
+     */
+    private final TransportSuggestIndex transportSuggestIndex;
+
     @Autowired
     private Environment environment;
 
 
     /**
-     * Внедрение зависимости
+     * Внедрение зависимостей
      * @param transportRepository репозиторий транспорта
+     * @param filterQueryService сервис для поиска по фильтрам
+     * @param clientsTransportService сервис транспорта клиента
+     * @param transportSuggestIndex индекс каталога транспорта в памяти
      */
-    public TransportService(TransportRepository transportRepository) {
+    public TransportService(TransportRepository transportRepository, FilterQueryService filterQueryService, ClientsTransportService clientsTransportService, TransportSuggestIndex transportSuggestIndex) {
         this.transportRepository = transportRepository;
+        this.filterQueryService = filterQueryService;
+        this.clientsTransportService = clientsTransportService;
+        this.transportSuggestIndex = transportSuggestIndex;
     }
 
     /**
@@ -85,6 +106,8 @@ public class TransportService {
      */
     public void save(Transport transport){
         transportRepository.save(transport);
+        clientsTransportService.invalidateStateNumberCache();
+        transportSuggestIndex.invalidate();
     }
 
     /**
@@ -94,6 +117,7 @@ public class TransportService {
     @Transactional
     public void deleteById(Long trId) {
         transportRepository.deleteByTrId(trId);
+        transportSuggestIndex.invalidate();
     }
 
     /**
@@ -105,23 +129,32 @@ public class TransportService {
      * @return Список найденного транспорта
      */
     public List<Transport> search(Integer pageIndex, String category, String mark, String model) {
-        Pageable pageable = PageRequest.of(pageIndex, Integer.parseInt(environment.getProperty("COUNT_ITEMS_IN_PAGE")), Sort.by( "trMark", "trModel", "categoryOfTransport.catTrName"));
-        if(mark != null && model != null && category != null){
-            return transportRepository.findByMarkAndModelAndCategory(mark,model,category,pageable);
-        }else if(mark != null && model != null){
-            return transportRepository.findByMarkAndModel(mark,model,pageable);
-        }else if(mark != null && category != null){
-            return transportRepository.findByMarkAndCategory(mark,category,pageable);
-        }else if(model != null && category != null){
-            return transportRepository.findByModelAndCategory(model,category,pageable);
-        }else if(mark != null){
-            return transportRepository.findByMark(mark,pageable);
-        }else if(model != null){
-            return transportRepository.findByModel(model,pageable);
-        }else if(category != null){
-            return transportRepository.findByCategory(category,pageable);
+        if (transportSuggestIndex.isReady()) {
+            return transportSuggestIndex.search(mark, model, category, pageIndex, Integer.parseInt(environment.getProperty("COUNT_ITEMS_IN_PAGE")));
         }
+        Pageable pageable = PageRequest.of(pageIndex, Integer.parseInt(environment.getProperty("COUNT_ITEMS_IN_PAGE")));
+        FilterQueryService.Filter<Transport> filter = new FilterQueryService.Filter<>(Transport.class)
+                .contains("trMark", mark)
+                .contains("trModel", model)
+                .contains("categoryOfTransport.catTrName", category)
+                .orderBy("trMark", "trModel", "categoryOfTransport.catTrName");
+        return filterQueryService.find(filter, pageable);
+    }
 
-        return null;
+    /**
+     * Подсказки для ввода транспорта по части марки, модели или названия категории
+     * @param query строка поиска
+     * @param pageIndex индекс страницы
+     * @return Список транспорта, в котором сначала идет транспорт с полями, начинающимися со строки поиска
+     */
+    public List<Transport> suggest(String query, Integer pageIndex) {
+        if (pageIndex < 0) {
+            throw new IllegalArgumentException("Индекс страницы не может быть отрицательным");
+        }
+        int pageSize = Integer.parseInt(environment.getProperty("COUNT_ITEMS_IN_PAGE"));
+        if (!transportSuggestIndex.isReady()) {
+            transportSuggestIndex.rebuild();
+        }
+        return transportSuggestIndex.suggest(query, pageIndex, pageSize);
     }
 }
@@ -0,0 +1,250 @@
+package ru.pin120.carwashAPI.services;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.pin120.carwashAPI.models.Transport;
+import ru.pin120.carwashAPI.repositories.TransportRepository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Индекс каталога транспорта в памяти для поиска по части марки, модели и названия категории.
+ * Для каждого поля хранится отсортированный массив суффиксов значений, поэтому поиск подстроки сводится к бинарному поиску.
+ * Также для каждой пары марки и модели хранится множество id категорий, к которым они уже привязаны.
+ * Индекс перестраивается целиком при изменении каталога
+ */
+@Service
+public class TransportSuggestIndex {
+
+    /**
+     * Репозиторий транспорта
+     */
+    private final TransportRepository transportRepository;
+
+    /**
+     * Текущее состояние индекса (null, пока индекс не построен)
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * Внедрение зависимости
+     * @param transportRepository репозиторий транспорта
+     */
+    public TransportSuggestIndex(TransportRepository transportRepository) {
+        this.transportRepository = transportRepository;
+    }
+
+    /**
+     * Проверяет, построен ли индекс
+     * @return true, если индекс можно использовать вместо запросов к базе данных, иначе false
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Построение индекса по данным из базы данных при запуске приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        List<Transport> transports = List.copyOf(transportRepository.findAllWithCategory());
+        Map<List<String>, BitSet> categoriesByMarkAndModel = new HashMap<>();
+        Map<Long, Transport> transportsById = new HashMap<>();
+        for (Transport transport : transports) {
+            categoriesByMarkAndModel.computeIfAbsent(List.of(transport.getTrMark(), transport.getTrModel()), k -> new BitSet())
+                    .set(Math.toIntExact(transport.getCategoryOfTransport().getCatTrId()));
+            transportsById.put(transport.getTrId(), transport);
+        }
+        snapshot = new Snapshot(transports, categoriesByMarkAndModel, transportsById,
+                new FieldIndex(transports, Transport::getTrMark),
+                new FieldIndex(transports, Transport::getTrModel),
+                new FieldIndex(transports, t -> t.getCategoryOfTransport().getCatTrName()));
+    }
+
+    /**
+     * Перестроение индекса после фиксации текущей транзакции или сразу, если транзакция отсутствует
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild();
+                }
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    /**
+     * Получение id категорий, к которым привязан транспорт с указанными маркой и моделью
+     * @param mark марка
+     * @param model модель
+     * @param excludedTrId id транспорта, категория которого не учитывается (может быть null)
+     * @return Множество id категорий транспорта (номер бита равен id категории)
+     */
+    public BitSet getUsedCategories(String mark, String model, Long excludedTrId) {
+        Snapshot current = snapshot;
+        BitSet categories = current.categoriesByMarkAndModel().get(List.of(mark, model));
+        categories = categories == null ? new BitSet() : (BitSet) categories.clone();
+        Transport excluded = excludedTrId == null ? null : current.transportsById().get(excludedTrId);
+        // марка, модель и категория транспорта уникальны, поэтому категория исключаемого транспорта больше ни к чему не привязана
+        if (excluded != null && excluded.getTrMark().equals(mark) && excluded.getTrModel().equals(model)) {
+            categories.clear(Math.toIntExact(excluded.getCategoryOfTransport().getCatTrId()));
+        }
+        return categories;
+    }
+
+    /**
+     * Поиск транспорта, у которого каждое из указанных полей содержит заданную строку без учета регистра
+     * @param mark часть марки (если null, то не учитывается)
+     * @param model часть модели (если null, то не учитывается)
+     * @param category часть названия категории (если null, то не учитывается)
+     * @param pageIndex индекс страницы
+     * @param pageSize количество транспорта на странице
+     * @return Страница транспорта, упорядоченного по марке, модели и категории
+     */
+    public List<Transport> search(String mark, String model, String category, int pageIndex, int pageSize) {
+        Snapshot current = snapshot;
+        BitSet found = new BitSet(current.transports().size());
+        found.set(0, current.transports().size());
+        if (mark != null) {
+            found.and(current.marks().find(mark.toLowerCase(), false));
+        }
+        if (model != null) {
+            found.and(current.models().find(model.toLowerCase(), false));
+        }
+        if (category != null) {
+            found.and(current.categories().find(category.toLowerCase(), false));
+        }
+        return getPage(current, found.stream(), pageIndex, pageSize);
+    }
+
+    /**
+     * Подсказки для ввода транспорта: транспорт, у которого марка, модель или название категории содержит заданную строку.
+     * Сначала идет транспорт, у которого одно из полей начинается с заданной строки
+     * @param query строка поиска
+     * @param pageIndex индекс страницы
+     * @param pageSize количество транспорта на странице
+     * @return Страница найденного транспорта
+     */
+    public List<Transport> suggest(String query, int pageIndex, int pageSize) {
+        Snapshot current = snapshot;
+        String value = query.trim().toLowerCase();
+        BitSet prefixMatches = current.marks().find(value, true);
+        prefixMatches.or(current.models().find(value, true));
+        prefixMatches.or(current.categories().find(value, true));
+        BitSet infixMatches = current.marks().find(value, false);
+        infixMatches.or(current.models().find(value, false));
+        infixMatches.or(current.categories().find(value, false));
+        infixMatches.andNot(prefixMatches);
+        return getPage(current, IntStream.concat(prefixMatches.stream(), infixMatches.stream()), pageIndex, pageSize);
+    }
+
+    /**
+     * Получение страницы транспорта по позициям в индексе
+     * @param current состояние индекса
+     * @param positions позиции транспорта в порядке вывода
+     * @param pageIndex индекс страницы
+     * @param pageSize количество транспорта на странице
+     * @return Страница транспорта
+     */
+    private List<Transport> getPage(Snapshot current, IntStream positions, int pageIndex, int pageSize) {
+        return positions.skip((long) pageIndex * pageSize)
+                .limit(pageSize)
+                .mapToObj(current.transports()::get)
+                .toList();
+    }
+
+    /**
+     * Состояние индекса
+     * @param transports весь транспорт, упорядоченный по марке, модели и категории
+     * @param categoriesByMarkAndModel id категорий по марке и модели
+     * @param transportsById транспорт по id
+     * @param marks индекс марок
+     * @param models индекс моделей
+     * @param categories индекс названий категорий
+     */
+    private record Snapshot(List<Transport> transports, Map<List<String>, BitSet> categoriesByMarkAndModel, Map<Long, Transport> transportsById, FieldIndex marks, FieldIndex models, FieldIndex categories) {
+    }
+
+    /**
+     * Массив суффиксов значений одного поля, отсортированный в лексикографическом порядке
+     */
+    private static class FieldIndex {
+
+        /**
+         * Суффиксы значений в нижнем регистре
+         */
+        private final String[] suffixes;
+
+        /**
+         * Позиция транспорта, которому принадлежит суффикс
+         */
+        private final int[] positions;
+
+        /**
+         * Является ли суффикс значением поля целиком
+         */
+        private final boolean[] prefixes;
+
+        FieldIndex(List<Transport> transports, Function<Transport, String> field) {
+            List<String> values = new ArrayList<>();
+            List<Integer> owners = new ArrayList<>();
+            List<Boolean> starts = new ArrayList<>();
+            for (int i = 0; i < transports.size(); i++) {
+                String value = field.apply(transports.get(i)).toLowerCase();
+                for (int offset = 0; offset < value.length(); offset++) {
+                    values.add(value.substring(offset));
+                    owners.add(i);
+                    starts.add(offset == 0);
+                }
+            }
+            Integer[] order = new Integer[values.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(values::get));
+            suffixes = new String[order.length];
+            positions = new int[order.length];
+            prefixes = new boolean[order.length];
+            for (int i = 0; i < order.length; i++) {
+                suffixes[i] = values.get(order[i]);
+                positions[i] = owners.get(order[i]);
+                prefixes[i] = starts.get(order[i]);
+            }
+        }
+
+        /**
+         * Поиск транспорта, значение поля которого содержит строку
+         * @param value строка в нижнем регистре
+         * @param onlyPrefix учитывать только значения, начинающиеся со строки
+         * @return Множество позиций найденного транспорта
+         */
+        BitSet find(String value, boolean onlyPrefix) {
+            BitSet found = new BitSet();
+            int low = 0;
+            int high = suffixes.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (suffixes[middle].compareTo(value) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            for (int i = low; i < suffixes.length && suffixes[i].startsWith(value); i++) {
+                if (!onlyPrefix || prefixes[i]) {
+                    found.set(positions[i]);
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.pin120.carwashAPI.services;
+
+import org.springframework.stereotype.Service;
+import ru.pin120.carwashAPI.dtos.CleanerDTO;
+import ru.pin120.carwashAPI.dtos.WorkScheduleDTO;
+import ru.pin120.carwashAPI.models.Box;
+import ru.pin120.carwashAPI.models.CleanerStatus;
+import ru.pin120.carwashAPI.repositories.CleanerRepository;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Сервис для составления графика работы мойщиков в боксе за период.
+ * Рабочие дни загружаются одним запросом только за нужный период и бокс,
+ * а дни каждого мойщика хранятся в битовой маске по номеру дня от начала периода
+ */
+@Service
+public class WorkScheduleRosterService {
+
+    /**
+     * Репозиторий мойщика
+     */
+    private final CleanerRepository cleanerRepository;
+
+    /**
+     * Внедрение зависимости
+     * @param cleanerRepository репозиторий мойщика
+     */
+    public WorkScheduleRosterService(CleanerRepository cleanerRepository) {
+        this.cleanerRepository = cleanerRepository;
+    }
+
+    /**
+     * Получение списка мойщиков с их рабочими днями в боксе за период
+     * @param startInterval начальный день периода
+     * @param endInterval конечный день периода
+     * @param box бокс
+     * @param currentMonth текущий ли месяц (если да, то в список входят также работающие мойщики без рабочих дней в периоде)
+     * @return Список мойщиков, упорядоченный по статусу, фамилии, имени, отчеству и номеру телефона
+     */
+    public List<CleanerDTO> getRoster(LocalDate startInterval, LocalDate endInterval, Box box, boolean currentMonth) {
+        int daysInPeriod = (int) ChronoUnit.DAYS.between(startInterval, endInterval) + 1;
+        Map<Long, Roster> rosters = new HashMap<>();
+        for (Object[] row : cleanerRepository.findRosterRows(box.getBoxId(), startInterval, endInterval, currentMonth ? CleanerStatus.ACT : null)) {
+            Roster roster = rosters.computeIfAbsent((Long) row[0], k -> new Roster(
+                    new CleanerDTO((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4], (CleanerStatus) row[5], box, null),
+                    daysInPeriod));
+            if (row[6] != null) {
+                roster.add((int) ChronoUnit.DAYS.between(startInterval, (LocalDate) row[7]), (Long) row[6]);
+            }
+        }
+
+        return rosters.values().stream()
+                .map(roster -> roster.toDTO(startInterval))
+                .sorted(Comparator.comparing(CleanerDTO::getClrStatus)
+                        .thenComparing(CleanerDTO::getClrSurname)
+                        .thenComparing(CleanerDTO::getClrName)
+                        .thenComparing(CleanerDTO::getClrPatronymic)
+                        .thenComparing(CleanerDTO::getClrPhone))
+                .toList();
+    }
+
+    /**
+     * Рабочие дни мойщика за период
+     */
+    private static class Roster {
+
+        /**
+         * Данные о мойщике
+         */
+        private final CleanerDTO cleaner;
+
+        /**
+         * Маска рабочих дней: номер бита равен номеру дня от начала периода
+         */
+        private final BitSet days = new BitSet();
+
+        /**
+         * id рабочих дней по номеру дня от начала периода
+         */
+        private final long[] wsIds;
+
+        Roster(CleanerDTO cleaner, int daysInPeriod) {
+            this.cleaner = cleaner;
+            this.wsIds = new long[daysInPeriod];
+        }
+
+        /**
+         * Добавление рабочего дня
+         * @param day номер дня от начала периода
+         * @param wsId id рабочего дня
+         */
+        void add(int day, long wsId) {
+            days.set(day);
+            wsIds[day] = wsId;
+        }
+
+        /**
+         * Формирование DTO мойщика с рабочими днями, упорядоченными по дате
+         * @param startInterval начальный день периода
+         * @return DTO мойщика
+         */
+        CleanerDTO toDTO(LocalDate startInterval) {
+            List<WorkScheduleDTO> workSchedules = new ArrayList<>(days.cardinality());
+            for (int day = days.nextSetBit(0); day >= 0; day = days.nextSetBit(day + 1)) {
+                workSchedules.add(new WorkScheduleDTO(wsIds[day], startInterval.plusDays(day)));
+            }
+            cleaner.setWorkSchedules(workSchedules);
+            return cleaner;
+        }
+    }
+}
@@ -53,6 +53,16 @@ public class WorkScheduleService {
         this.cleanerRepository = cleanerRepository;
     }
 
+    /**
+     * Получение рабочего дня в боксе на указанную дату
+     * @param boxId id бокса
+     * @param workDay дата
+     * @return объект Optional, содержащий рабочий день или пустой, если в этот день в боксе нет мойщика
+     */
+    public Optional<WorkSchedule> getByBoxIdAndWorkDay(Long boxId, LocalDate workDay){
+        return workScheduleRepository.findFirstByBox_BoxIdAndWsWorkDay(boxId, workDay);
+    }
+
     /**
      * Удаление рабочих дней мойщика после определенного для
      * @param clrId id мойщика
@@ -0,0 +1,38 @@
+package ru.pin120.carwashAPI.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ClientsTransportTest {
+
+	@Test
+	void normalizeStateNumberReplacesLatinLookAlikes() {
+		assertEquals("А123ВС777", ClientsTransport.normalizeStateNumber("A123BC777"));
+		assertEquals(ClientsTransport.normalizeStateNumber("А123ВС777"), ClientsTransport.normalizeStateNumber("A123BC777"));
+		assertEquals("ЕКМНОРТУХ", ClientsTransport.normalizeStateNumber("EKMHOPTYX"));
+	}
+
+	@Test
+	void normalizeStateNumberIgnoresCaseSpacesAndHyphens() {
+		assertEquals("А123ВС777", ClientsTransport.normalizeStateNumber(" a 123-bc 777 "));
+		assertEquals("А123ВС777", ClientsTransport.normalizeStateNumber("а123вс777"));
+	}
+
+	@Test
+	void normalizeStateNumberKeepsOtherCharacters() {
+		assertEquals("Ж123ZQ", ClientsTransport.normalizeStateNumber("ж123zq"));
+		assertEquals("", ClientsTransport.normalizeStateNumber(" - "));
+		assertNull(ClientsTransport.normalizeStateNumber(null));
+	}
+
+	@Test
+	void updateStateNumberKeyStoresNormalizedStateNumber() {
+		ClientsTransport clientsTransport = new ClientsTransport();
+		clientsTransport.setClTrStateNumber("x 001 xx 99");
+		clientsTransport.updateStateNumberKey();
+		assertEquals("Х001ХХ99", clientsTransport.getClTrStateNumberKey());
+	}
+
+}
@@ -0,0 +1,44 @@
+package ru.pin120.carwashAPI.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BookingCursorTest {
+
+	@Test
+	void cursorRoundTrip() {
+		LocalDateTime bkEndTime = LocalDateTime.of(2024, 5, 20, 10, 0);
+		String cursor = BookingService.encodeCursor(bkEndTime, "2024-15");
+
+		assertFalse(cursor.contains("=") || cursor.contains("+") || cursor.contains("/"));
+		assertArrayEquals(new String[]{"2024-05-20T10:00", "2024-15"}, BookingService.decodeCursor(cursor));
+	}
+
+	@Test
+	void cursorKeepsSecondsAndSeparatorInBookingId() {
+		LocalDateTime bkEndTime = LocalDateTime.of(2024, 12, 31, 23, 59, 30);
+		String[] parts = BookingService.decodeCursor(BookingService.encodeCursor(bkEndTime, "a|b"));
+
+		assertArrayEquals(new String[]{"2024-12-31T23:59:30", "a|b"}, parts);
+	}
+
+	@Test
+	void malformedCursorIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> BookingService.decodeCursor("not base64!"));
+		assertThrows(IllegalArgumentException.class, () -> BookingService.decodeCursor(encode("2024-05-20T10:00")));
+		assertThrows(IllegalArgumentException.class, () -> BookingService.decodeCursor(encode("2024-05-20T10:00| ")));
+		assertThrows(IllegalArgumentException.class, () -> BookingService.decodeCursor(encode("yesterday|2024-15")));
+	}
+
+	private static String encode(String value) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,95 @@
+package ru.pin120.carwashAPI.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.pin120.carwashAPI.repositories.BookingIdSequenceRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingIdSequenceServiceTest {
+
+	private BookingIdSequenceRepository bookingIdSequenceRepository;
+
+	private BookingIdSequenceService bookingIdSequenceService;
+
+	@BeforeEach
+	void setUp() {
+		Map<Integer, Integer> lastIds = new HashMap<>();
+		bookingIdSequenceRepository = mock(BookingIdSequenceRepository.class);
+		when(bookingIdSequenceRepository.leaseBlock(anyInt(), anyInt())).thenAnswer(invocation -> {
+			synchronized (lastIds) {
+				return lastIds.merge(invocation.getArgument(0), invocation.getArgument(1), Integer::sum);
+			}
+		});
+		bookingIdSequenceService = new BookingIdSequenceService(bookingIdSequenceRepository);
+		ReflectionTestUtils.setField(bookingIdSequenceService, "environment", new MockEnvironment().withProperty("BOOKING_ID_BLOCK_SIZE", "3"));
+	}
+
+	@Test
+	void idsAreIssuedFromLeasedBlocks() {
+		List<String> ids = List.of(bookingIdSequenceService.generateId(2024), bookingIdSequenceService.generateId(2024),
+				bookingIdSequenceService.generateId(2024), bookingIdSequenceService.generateId(2024));
+
+		assertEquals(List.of("2024-1", "2024-2", "2024-3", "2024-4"), ids);
+		verify(bookingIdSequenceRepository, times(2)).leaseBlock(2024, 3);
+	}
+
+	@Test
+	void yearRolloverLeasesBlockOfNewYear() {
+		assertEquals("2024-1", bookingIdSequenceService.generateId(2024));
+		assertEquals("2025-1", bookingIdSequenceService.generateId(2025));
+		assertEquals("2025-2", bookingIdSequenceService.generateId(2025));
+
+		verify(bookingIdSequenceRepository, times(1)).leaseBlock(2024, 3);
+		verify(bookingIdSequenceRepository, times(1)).leaseBlock(2025, 3);
+	}
+
+	@Test
+	void batchLargerThanBlockLeasesOwnBlock() {
+		assertEquals("2024-1", bookingIdSequenceService.generateId(2024));
+		assertEquals(List.of("2024-4", "2024-5", "2024-6", "2024-7", "2024-8"), bookingIdSequenceService.generateIds(5, 2024));
+		assertEquals("2024-2", bookingIdSequenceService.generateId(2024));
+		assertEquals(List.of("2025-1", "2025-2"), bookingIdSequenceService.generateIds(2, 2025));
+	}
+
+	@Test
+	void concurrentGenerationIssuesUniqueIds() throws Exception {
+		Set<String> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < 100; j++) {
+						ids.add(bookingIdSequenceService.generateId(2024));
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(800, ids.size());
+	}
+
+}
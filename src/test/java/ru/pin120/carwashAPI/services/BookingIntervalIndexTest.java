@@ -0,0 +1,119 @@
+package ru.pin120.carwashAPI.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.pin120.carwashAPI.dtos.BookingIntervalDTO;
+import ru.pin120.carwashAPI.repositories.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookingIntervalIndexTest {
+
+	private static final LocalDateTime DAY = LocalDateTime.of(2024, 5, 20, 0, 0);
+
+	private BookingIntervalIndex index;
+
+	@BeforeEach
+	void setUp() {
+		BookingRepository bookingRepository = mock(BookingRepository.class);
+		when(bookingRepository.findIntervalsByStatuses(BookingIntervalIndex.ACTIVE_STATUSES)).thenReturn(List.of(
+				interval("1", 1L, "А001АА", 10, 0, 11, 0),
+				interval("2", 1L, "В002ВВ", 12, 0, 13, 0),
+				interval("3", 2L, "А001АА", 8, 0, 18, 0)
+		));
+		index = new BookingIntervalIndex(bookingRepository);
+		assertFalse(index.isReady());
+		index.rebuild();
+		assertTrue(index.isReady());
+	}
+
+	@Test
+	void findCrossedInBoxTreatsIntervalsAsClosed() {
+		assertEquals("1", index.findCrossedInBox(at(10, 30), at(10, 45), 1L, null).orElseThrow().getBkId());
+		assertEquals("1", index.findCrossedInBox(at(9, 0), at(10, 0), 1L, null).orElseThrow().getBkId());
+		assertEquals("1", index.findCrossedInBox(at(11, 0), at(11, 30), 1L, null).orElseThrow().getBkId());
+		assertTrue(index.findCrossedInBox(at(11, 1), at(11, 59), 1L, null).isEmpty());
+		assertTrue(index.findCrossedInBox(at(8, 0), at(9, 59), 1L, null).isEmpty());
+		assertTrue(index.findCrossedInBox(at(10, 0), at(11, 0), 3L, null).isEmpty());
+	}
+
+	@Test
+	void findCrossedInBoxReturnsEarliestAndSkipsExcluded() {
+		assertEquals("1", index.findCrossedInBox(at(10, 30), at(12, 30), 1L, null).orElseThrow().getBkId());
+		assertEquals("2", index.findCrossedInBox(at(10, 30), at(12, 30), 1L, "1").orElseThrow().getBkId());
+		assertTrue(index.findCrossedInBox(at(10, 30), at(10, 45), 1L, "1").isEmpty());
+	}
+
+	@Test
+	void longIntervalStartedBeforeSearchIsFound() {
+		assertEquals("3", index.findCrossedInBox(at(16, 0), at(16, 30), 2L, null).orElseThrow().getBkId());
+		assertEquals(List.of("3", "1"), ids(index.getCrossedOfTransport(at(10, 30), at(10, 45), "А001АА")));
+		assertEquals(List.of("3"), ids(index.getCrossedOfTransport(at(17, 0), at(19, 0), "А001АА")));
+	}
+
+	@Test
+	void getCrossedInBoxIsOrderedByStart() {
+		assertEquals(List.of("1", "2"), ids(index.getCrossedInBox(at(9, 0), at(14, 0), 1L)));
+		assertEquals(List.of("2"), ids(index.getCrossedInBox(at(11, 30), at(14, 0), 1L)));
+		assertTrue(index.getCrossedInBox(at(9, 0), at(14, 0), 3L).isEmpty());
+	}
+
+	@Test
+	void updateMovesIntervalAndDeleteRemovesIt() {
+		index.update("2", interval("2", 2L, "В002ВВ", 19, 0, 20, 0));
+		assertTrue(index.findCrossedInBox(at(12, 0), at(13, 0), 1L, null).isEmpty());
+		assertEquals("2", index.findCrossedInBox(at(19, 30), at(19, 45), 2L, null).orElseThrow().getBkId());
+
+		index.update("3", null);
+		assertTrue(index.findCrossedInBox(at(16, 0), at(16, 30), 2L, null).isEmpty());
+
+		index.delete("1");
+		assertTrue(index.findCrossedOfTransport(at(9, 0), at(18, 0), "А001АА", null).isEmpty());
+	}
+
+	@Test
+	void changeStateNumberMovesTransportIntervals() {
+		index.changeStateNumber(5L, "Е005ЕЕ");
+		assertTrue(index.findCrossedOfTransport(at(10, 0), at(11, 0), "А001АА", null).isEmpty());
+		assertEquals(List.of("3", "1"), ids(index.getCrossedOfTransport(at(10, 0), at(11, 0), "Е005ЕЕ")));
+		assertEquals("1", index.findCrossedInBox(at(10, 0), at(11, 0), 1L, null).orElseThrow().getBkId());
+	}
+
+	@Test
+	void changesCommittedDuringRebuildAreNotLost() {
+		BookingRepository bookingRepository = mock(BookingRepository.class);
+		BookingIntervalIndex rebuiltIndex = new BookingIntervalIndex(bookingRepository);
+		when(bookingRepository.findIntervalsByStatuses(BookingIntervalIndex.ACTIVE_STATUSES)).thenAnswer(invocation -> {
+			rebuiltIndex.delete("1");
+			rebuiltIndex.update("4", interval("4", 3L, "В002ВВ", 14, 0, 15, 0));
+			return List.of(interval("1", 1L, "А001АА", 10, 0, 11, 0), interval("2", 1L, "В002ВВ", 12, 0, 13, 0));
+		});
+
+		rebuiltIndex.rebuild();
+
+		assertTrue(rebuiltIndex.isReady());
+		assertEquals(List.of("2"), ids(rebuiltIndex.getCrossedInBox(at(9, 0), at(14, 0), 1L)));
+		assertEquals("4", rebuiltIndex.findCrossedInBox(at(14, 30), at(14, 45), 3L, null).orElseThrow().getBkId());
+	}
+
+	private static BookingIntervalDTO interval(String bkId, Long boxId, String stateNumber, int startHour, int startMinute, int endHour, int endMinute) {
+		Long clTrId = "А001АА".equals(stateNumber) ? 5L : 6L;
+		return new BookingIntervalDTO(bkId, boxId, clTrId, stateNumber, at(startHour, startMinute), at(endHour, endMinute));
+	}
+
+	private static LocalDateTime at(int hour, int minute) {
+		return DAY.withHour(hour).withMinute(minute);
+	}
+
+	private static List<String> ids(List<BookingIntervalDTO> intervals) {
+		return intervals.stream().map(BookingIntervalDTO::getBkId).toList();
+	}
+
+}
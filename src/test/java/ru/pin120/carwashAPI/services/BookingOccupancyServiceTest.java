@@ -0,0 +1,137 @@
+package ru.pin120.carwashAPI.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.pin120.carwashAPI.dtos.BoxOccupancyDTO;
+import ru.pin120.carwashAPI.repositories.BookingRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingOccupancyServiceTest {
+
+	private static final LocalDate MONDAY = LocalDate.of(2024, 5, 20);
+
+	private final List<Object[]> rows = new ArrayList<>();
+
+	private BookingRepository bookingRepository;
+
+	private BookingOccupancyService bookingOccupancyService;
+
+	@BeforeEach
+	void setUp() {
+		bookingRepository = mock(BookingRepository.class);
+		when(bookingRepository.streamIntervals(any(), any(), any(), any())).thenAnswer(invocation -> new ArrayList<>(rows).stream());
+		bookingOccupancyService = new BookingOccupancyService(bookingRepository);
+		ReflectionTestUtils.setField(bookingOccupancyService, "environment", new MockEnvironment()
+				.withProperty("OCCUPANCY_CACHE_SIZE", "10")
+				.withProperty("START_WORK_TIME", "08:00")
+				.withProperty("END_WORK_TIME", "20:00"));
+	}
+
+	@Test
+	void intervalInsideHourFillsOneBucket() {
+		long[] minutes = new long[7 * 24];
+
+		BookingOccupancyService.addInterval(minutes, MONDAY.atTime(10, 15), MONDAY.atTime(10, 40));
+
+		assertEquals(25, minutes[10]);
+		assertEquals(25, sum(minutes));
+	}
+
+	@Test
+	void intervalIsSplitAtHourBoundaries() {
+		long[] minutes = new long[7 * 24];
+
+		BookingOccupancyService.addInterval(minutes, MONDAY.atTime(10, 45), MONDAY.atTime(13, 10));
+
+		assertEquals(15, minutes[10]);
+		assertEquals(60, minutes[11]);
+		assertEquals(60, minutes[12]);
+		assertEquals(10, minutes[13]);
+		assertEquals(145, sum(minutes));
+	}
+
+	@Test
+	void intervalCrossingMidnightIsSplitBetweenDays() {
+		long[] minutes = new long[7 * 24];
+
+		BookingOccupancyService.addInterval(minutes, MONDAY.atTime(23, 30), MONDAY.plusDays(1).atTime(0, 45));
+		BookingOccupancyService.addInterval(minutes, MONDAY.plusDays(6).atTime(23, 50), MONDAY.plusDays(7).atTime(0, 10));
+
+		assertEquals(30, minutes[23]);
+		assertEquals(45, minutes[24]);
+		assertEquals(10, minutes[0]);
+		assertEquals(10, minutes[6 * 24 + 23]);
+		assertEquals(95, sum(minutes));
+	}
+
+	@Test
+	void intervalsAreClippedByRange() {
+		rows.add(new Object[]{1L, MONDAY.minusDays(1).atTime(23, 0), MONDAY.atTime(1, 30)});
+		rows.add(new Object[]{1L, MONDAY.atTime(23, 40), MONDAY.plusDays(1).atTime(0, 20)});
+		rows.add(new Object[]{2L, MONDAY.atTime(9, 0), MONDAY.atTime(9, 30)});
+
+		List<BoxOccupancyDTO> occupancy = bookingOccupancyService.getOccupancy(MONDAY, MONDAY, null);
+
+		assertEquals(2, occupancy.size());
+		BoxOccupancyDTO first = occupancy.get(0);
+		assertEquals(1L, first.getBoxId());
+		int[] expectedMonday = new int[24];
+		expectedMonday[0] = 60;
+		expectedMonday[1] = 30;
+		expectedMonday[23] = 20;
+		assertArrayEquals(expectedMonday, first.getMinutes()[0]);
+		assertArrayEquals(new int[24], first.getMinutes()[6]);
+		assertEquals(110, first.getTotalMinutes());
+		assertEquals(110.0 / 720, first.getUtilisation());
+		assertEquals(30, occupancy.get(1).getTotalMinutes());
+	}
+
+	@Test
+	void closedPeriodIsCachedUntilEvicted() {
+		rows.add(new Object[]{1L, MONDAY.atTime(9, 0), MONDAY.atTime(9, 30)});
+
+		bookingOccupancyService.getOccupancy(MONDAY, MONDAY, null);
+		bookingOccupancyService.getOccupancy(MONDAY, MONDAY, null);
+		verify(bookingRepository, times(1)).streamIntervals(any(), any(), any(), any());
+
+		bookingOccupancyService.evict(MONDAY.atTime(12, 0), MONDAY.atTime(13, 0));
+		bookingOccupancyService.getOccupancy(MONDAY, MONDAY, null);
+		verify(bookingRepository, times(2)).streamIntervals(any(), any(), any(), any());
+	}
+
+	@Test
+	void resultComputedDuringEvictIsNotCached() {
+		rows.add(new Object[]{1L, MONDAY.atTime(9, 0), MONDAY.atTime(9, 30)});
+		when(bookingRepository.streamIntervals(any(), any(), any(), any())).thenAnswer(invocation -> {
+			bookingOccupancyService.evict(MONDAY.atTime(12, 0), MONDAY.atTime(13, 0));
+			return new ArrayList<>(rows).stream();
+		});
+
+		bookingOccupancyService.getOccupancy(MONDAY, MONDAY, null);
+		bookingOccupancyService.getOccupancy(MONDAY, MONDAY, null);
+
+		verify(bookingRepository, times(2)).streamIntervals(any(), any(), any(), any());
+	}
+
+	private static long sum(long[] minutes) {
+		long total = 0;
+		for (long value : minutes) {
+			total += value;
+		}
+		return total;
+	}
+
+}
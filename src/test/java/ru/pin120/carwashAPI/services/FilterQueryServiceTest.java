@@ -0,0 +1,75 @@
+package ru.pin120.carwashAPI.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.pin120.carwashAPI.models.Client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Запросы только разбираются Hibernate и не выполняются, поэтому подключение к базе данных не требуется
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.hibernate.ddl-auto=none",
+		"spring.jpa.properties.hibernate.temp.use_jdbc_metadata_defaults=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(FilterQueryService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FilterQueryServiceTest {
+
+	@Autowired
+	private FilterQueryService filterQueryService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void clearStatistics() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void sameFilterShapeWithOtherValuesReusesQueryPlan() {
+		filterQueryService.createQuery(new FilterQueryService.Filter<>(Client.class)
+				.contains("clSurname", "Ив").compare("clDiscount", ">", 5).orderBy("clSurname", "clName"));
+		filterQueryService.createQuery(new FilterQueryService.Filter<>(Client.class)
+				.contains("clSurname", "Пет").compare("clDiscount", ">", 10).orderBy("clSurname", "clName"));
+
+		assertEquals(1, statistics.getQueryPlanCacheMissCount());
+		assertEquals(1, statistics.getQueryPlanCacheHitCount());
+	}
+
+	@Test
+	void otherFilterShapeGetsOwnQueryPlan() {
+		filterQueryService.createQuery(new FilterQueryService.Filter<>(Client.class)
+				.contains("clSurname", "Ив").contains("clName", null).orderBy("clSurname"));
+		filterQueryService.createQuery(new FilterQueryService.Filter<>(Client.class)
+				.contains("clSurname", "Ив").contains("clName", "Иван").orderBy("clSurname"));
+
+		assertEquals(2, statistics.getQueryPlanCacheMissCount());
+		assertEquals(0, statistics.getQueryPlanCacheHitCount());
+	}
+
+	@Test
+	void unknownCompareOperatorIsRejected() {
+		FilterQueryService.Filter<Client> filter = new FilterQueryService.Filter<>(Client.class);
+		assertThrows(IllegalArgumentException.class, () -> filter.compare("clDiscount", "> 0 OR 1 =", 1));
+		assertThrows(IllegalArgumentException.class, () -> FilterQueryService.checkCompareOperator("<>"));
+	}
+
+}
@@ -0,0 +1,73 @@
+package ru.pin120.carwashAPI.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.pin120.carwashAPI.dtos.ServiceWithPriceListDTO;
+import ru.pin120.carwashAPI.repositories.PriceListRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceListDocumentServiceTest {
+
+	private PriceListService priceListService;
+
+	private PriceMatrixService priceMatrixService;
+
+	private PriceListDocumentService priceListDocumentService;
+
+	@BeforeEach
+	void setUp() {
+		priceListService = mock(PriceListService.class);
+		when(priceListService.getTransportPriceList(1L)).thenReturn(List.of(new ServiceWithPriceListDTO("Мойка", "Мойка кузова", 500, 30)));
+		when(priceListService.getTransportPriceList(2L)).thenReturn(List.of());
+		priceMatrixService = new PriceMatrixService(mock(PriceListRepository.class));
+		priceListDocumentService = new PriceListDocumentService(priceListService, priceMatrixService, new ObjectMapper());
+	}
+
+	@Test
+	void eTagIsQuotedVersionAndChangesAfterInvalidate() {
+		String eTag = priceListDocumentService.getETag();
+		assertEquals("\"" + priceMatrixService.getVersion() + "\"", eTag);
+		assertEquals(eTag, priceListDocumentService.getETag());
+
+		priceMatrixService.invalidate();
+
+		assertNotEquals(eTag, priceListDocumentService.getETag());
+	}
+
+	@Test
+	void documentIsReusedWhileVersionIsUnchanged() throws Exception {
+		byte[] first = priceListDocumentService.getTransportPriceList(1L);
+		byte[] second = priceListDocumentService.getTransportPriceList(1L);
+
+		assertSame(first, second);
+		assertTrue(new String(first, StandardCharsets.UTF_8).contains("Мойка кузова"));
+		verify(priceListService, times(1)).getTransportPriceList(1L);
+	}
+
+	@Test
+	void documentIsRebuiltAfterVersionBump() throws Exception {
+		priceListDocumentService.getTransportPriceList(1L);
+		priceListDocumentService.getTransportPriceList(2L);
+		when(priceListService.getTransportPriceList(1L)).thenReturn(List.of(new ServiceWithPriceListDTO("Мойка", "Мойка кузова", 600, 30)));
+
+		priceMatrixService.invalidate();
+
+		assertTrue(new String(priceListDocumentService.getTransportPriceList(1L), StandardCharsets.UTF_8).contains("600"));
+		priceListDocumentService.getTransportPriceList(2L);
+		verify(priceListService, times(2)).getTransportPriceList(1L);
+		verify(priceListService, times(2)).getTransportPriceList(2L);
+	}
+
+}
@@ -0,0 +1,96 @@
+package ru.pin120.carwashAPI.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.pin120.carwashAPI.repositories.PriceListRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceMatrixServiceTest {
+
+	private PriceListRepository priceListRepository;
+
+	private PriceMatrixService priceMatrixService;
+
+	private final List<Object[]> positions = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		positions.add(new Object[]{1L, "Мойка", "Мойка кузова", 500, 30});
+		priceListRepository = mock(PriceListRepository.class);
+		when(priceListRepository.findAllPositions()).thenAnswer(invocation -> new ArrayList<>(positions));
+		priceMatrixService = new PriceMatrixService(priceListRepository);
+	}
+
+	@AfterEach
+	void clearSynchronization() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void readsDoNotChangeVersion() {
+		long version = priceMatrixService.getVersion();
+
+		assertEquals(500, priceMatrixService.get(1L, "Мойка кузова").orElseThrow().getPlPrice());
+		assertTrue(priceMatrixService.get(2L, "Мойка кузова").isEmpty());
+		assertTrue(priceMatrixService.getPricedCategories("Мойка кузова").get(1));
+
+		assertEquals(version, priceMatrixService.getVersion());
+		verify(priceListRepository, times(1)).findAllPositions();
+	}
+
+	@Test
+	void invalidateWithoutTransactionBumpsVersionAndReloadsMatrix() {
+		long version = priceMatrixService.getVersion();
+		priceMatrixService.get(1L, "Мойка кузова");
+		positions.add(new Object[]{2L, "Мойка", "Мойка кузова", 700, 40});
+
+		priceMatrixService.invalidate();
+
+		assertEquals(version + 1, priceMatrixService.getVersion());
+		assertEquals(700, priceMatrixService.get(2L, "Мойка кузова").orElseThrow().getPlPrice());
+		verify(priceListRepository, times(2)).findAllPositions();
+	}
+
+	@Test
+	void invalidateInTransactionBumpsVersionOnlyAfterCommit() {
+		long version = priceMatrixService.getVersion();
+		TransactionSynchronizationManager.initSynchronization();
+
+		priceMatrixService.invalidate();
+		priceMatrixService.invalidate();
+		assertEquals(version, priceMatrixService.getVersion());
+
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		synchronizations.forEach(TransactionSynchronization::afterCommit);
+		assertEquals(version + 2, priceMatrixService.getVersion());
+	}
+
+	@Test
+	void rolledBackTransactionKeepsVersion() {
+		long version = priceMatrixService.getVersion();
+		TransactionSynchronizationManager.initSynchronization();
+
+		priceMatrixService.invalidate();
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertEquals(version, priceMatrixService.getVersion());
+		assertFalse(priceMatrixService.getPricedCategories("Мойка кузова").isEmpty());
+	}
+
+}
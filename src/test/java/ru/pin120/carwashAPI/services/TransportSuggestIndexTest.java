@@ -0,0 +1,116 @@
+package ru.pin120.carwashAPI.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.pin120.carwashAPI.models.CategoryOfTransport;
+import ru.pin120.carwashAPI.models.Transport;
+import ru.pin120.carwashAPI.repositories.TransportRepository;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransportSuggestIndexTest {
+
+	private final List<Transport> transports = new ArrayList<>();
+
+	private TransportSuggestIndex index;
+
+	@BeforeEach
+	void setUp() {
+		CategoryOfTransport car = category(1L, "Легковой");
+		CategoryOfTransport crossover = category(2L, "Кроссовер");
+		CategoryOfTransport suv = category(3L, "Внедорожник");
+		transports.add(transport(1L, "Lada", "Granta", car));
+		transports.add(transport(2L, "Lada", "Vesta", car));
+		transports.add(transport(3L, "Toyota", "Camry", car));
+		transports.add(transport(4L, "Toyota", "Land Cruiser", suv));
+		transports.add(transport(5L, "Volkswagen", "Atlas", crossover));
+
+		TransportRepository transportRepository = mock(TransportRepository.class);
+		when(transportRepository.findAllWithCategory()).thenAnswer(invocation -> new ArrayList<>(transports));
+		index = new TransportSuggestIndex(transportRepository);
+		assertFalse(index.isReady());
+		index.rebuild();
+		assertTrue(index.isReady());
+	}
+
+	@Test
+	void searchMatchesSubstringsOfEveryGivenField() {
+		assertEquals(List.of(1L, 2L), ids(index.search("LADA", null, null, 0, 10)));
+		assertEquals(List.of(3L, 4L), ids(index.search("ota", null, null, 0, 10)));
+		assertEquals(List.of(1L, 2L, 3L), ids(index.search(null, "a", "лег", 0, 10)));
+		assertEquals(List.of(4L), ids(index.search("toy", "cruiser", "внедорож", 0, 10)));
+		assertTrue(index.search("lada", "camry", null, 0, 10).isEmpty());
+		assertTrue(index.search("я", null, null, 0, 10).isEmpty());
+	}
+
+	@Test
+	void searchWithoutFiltersReturnsPagesInCatalogOrder() {
+		assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(index.search(null, null, null, 0, 10)));
+		assertEquals(List.of(3L, 4L), ids(index.search(null, null, null, 1, 2)));
+		assertTrue(index.search(null, null, null, 3, 2).isEmpty());
+	}
+
+	@Test
+	void suggestPutsPrefixMatchesFirst() {
+		assertEquals(List.of(1L, 2L, 4L, 5L), ids(index.suggest(" LA ", 0, 10)));
+		assertEquals(List.of(4L, 5L), ids(index.suggest("la", 1, 2)));
+		assertEquals(List.of(5L, 1L, 2L, 3L, 4L), ids(index.suggest("a", 0, 10)));
+		assertEquals(List.of(5L), ids(index.suggest("кросс", 0, 10)));
+		assertTrue(index.suggest("zzz", 0, 10).isEmpty());
+	}
+
+	@Test
+	void usedCategoriesExcludeEditedTransport() {
+		assertEquals(bits(3), index.getUsedCategories("Toyota", "Land Cruiser", null));
+		assertEquals(bits(1), index.getUsedCategories("Toyota", "Camry", null));
+		assertEquals(bits(), index.getUsedCategories("Toyota", "Camry", 3L));
+		assertEquals(bits(1), index.getUsedCategories("Toyota", "Camry", 1L));
+		assertEquals(bits(), index.getUsedCategories("Kia", "Rio", null));
+	}
+
+	@Test
+	void invalidateRebuildsIndex() {
+		transports.add(transport(6L, "Volvo", "XC90", category(2L, "Кроссовер")));
+
+		index.invalidate();
+
+		assertEquals(List.of(5L, 6L), ids(index.search("vo", null, null, 0, 10)));
+	}
+
+	private static List<Long> ids(List<Transport> transports) {
+		return transports.stream().map(Transport::getTrId).toList();
+	}
+
+	private static BitSet bits(int... values) {
+		BitSet bits = new BitSet();
+		for (int value : values) {
+			bits.set(value);
+		}
+		return bits;
+	}
+
+	private static CategoryOfTransport category(Long catTrId, String catTrName) {
+		CategoryOfTransport category = new CategoryOfTransport();
+		category.setCatTrId(catTrId);
+		category.setCatTrName(catTrName);
+		return category;
+	}
+
+	private static Transport transport(Long trId, String mark, String model, CategoryOfTransport category) {
+		Transport transport = new Transport();
+		transport.setTrId(trId);
+		transport.setTrMark(mark);
+		transport.setTrModel(model);
+		transport.setCategoryOfTransport(category);
+		return transport;
+	}
+
+}